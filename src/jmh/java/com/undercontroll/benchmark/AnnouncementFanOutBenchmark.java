@@ -0,0 +1,161 @@
+package com.undercontroll.benchmark;
+
+import com.undercontroll.application.port.DeliveryPublisher;
+import com.undercontroll.application.usecase.impl.AnnouncementCreatedImpl;
+import com.undercontroll.application.usecase.impl.AnnouncementDeliveryImpl;
+import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.config.DeliveryProperties;
+import com.undercontroll.infrastructure.config.MailAsyncProperties;
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import com.undercontroll.infrastructure.config.TemplateProperties;
+import com.undercontroll.infrastructure.config.UnsubscribeProperties;
+import com.undercontroll.infrastructure.delivery.ConcurrentDeliveryEngine;
+import com.undercontroll.infrastructure.email.HmacUnsubscribeLinks;
+import com.undercontroll.infrastructure.email.JavaMailAdapter;
+import com.undercontroll.infrastructure.email.PooledJavaMailSender;
+import com.undercontroll.infrastructure.ledger.NoopDeliveryLedger;
+import com.undercontroll.infrastructure.resource_loader.EmailTemplateLoaderAdapter;
+import com.undercontroll.support.SmtpStub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Anuncio de ponta a ponta contra o {@link SmtpStub}: paginas de clientes, render, fatias de entrega,
+ * pool de conexoes SMTP e envio real pelo protocolo. A fila de entrega e trocada por uma chamada
+ * direta ao caso de uso de entrega, entao o RabbitMQ fica fora da medida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AnnouncementFanOutBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int recipients;
+
+    private SmtpStub smtp;
+    private PooledJavaMailSender mailSender;
+    private ConcurrentDeliveryEngine deliveryEngine;
+    private AnnouncementCreatedImpl announcementCreated;
+    private final AtomicLong retried = new AtomicLong();
+
+    private final AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(
+            null, "Horario de fim de ano", "A loja fecha mais cedo nos dias 24 e 31.", "UPDATES", LocalDateTime.now(), "token");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        smtp = new SmtpStub();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        mailSender = new PooledJavaMailSender(
+                new MailPoolProperties(true, 8, 100, Duration.ofSeconds(5), Duration.ofSeconds(60), Duration.ofSeconds(30)),
+                meterRegistry
+        );
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.port());
+
+        // Sem limite por dominio: todos os destinatarios sao do mesmo host e o stub nao faz throttling
+        DeliveryProperties deliveryProperties = new DeliveryProperties(8, 20, 0, 10, 100);
+        deliveryEngine = new ConcurrentDeliveryEngine(
+                new JavaMailAdapter(mailSender, meterRegistry, new MailAsyncProperties(Duration.ofSeconds(30), 8), Stubs.inlineImages()),
+                deliveryProperties
+        );
+
+        EmailTemplateLoaderAdapter templateLoader = new EmailTemplateLoaderAdapter(new TemplateProperties(null, false));
+        templateLoader.warmUp();
+
+        InProcessPublisher publisher = new InProcessPublisher(deliveryProperties.chunkSize());
+        publisher.delivery = new AnnouncementDeliveryImpl(
+                deliveryEngine,
+                new NoopDeliveryLedger(),
+                publisher,
+                new HmacUnsubscribeLinks(new UnsubscribeProperties("https://example.com/descadastro", "benchmark"))
+        );
+
+        announcementCreated = new AnnouncementCreatedImpl(
+                templateLoader,
+                Stubs.customers(Stubs.recipients(recipients), 500),
+                publisher
+        );
+    }
+
+    @Benchmark
+    public long fanOut() {
+        long before = smtp.received();
+        announcementCreated.execute(event);
+        return smtp.received() - before;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (retried.get() > 0) {
+            System.out.println("Recipients sent back for retry or deferred: " + retried.get());
+        }
+        deliveryEngine.shutdown();
+        mailSender.destroy();
+        smtp.close();
+    }
+
+    // Faz o papel da fila de entrega: cada fatia e entregue na hora, na thread que publicou
+    private final class InProcessPublisher implements DeliveryPublisher {
+
+        private final int chunkSize;
+        private AnnouncementDeliveryImpl delivery;
+
+        private InProcessPublisher(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int publish(Integer announcementId, String subject, String body, List<Recipient> recipients) {
+            int messages = 0;
+            for (int start = 0; start < recipients.size(); start += chunkSize) {
+                List<Recipient> chunk = recipients.subList(start, Math.min(start + chunkSize, recipients.size()));
+                delivery.execute(new AnnouncementDeliveryEvent(
+                        announcementId,
+                        subject,
+                        body,
+                        chunk.stream().map(Recipient::email).toList(),
+                        chunk.stream().collect(Collectors.toMap(Recipient::email, Recipient::name, (first, second) -> first)),
+                        0
+                ));
+                messages++;
+            }
+            return messages;
+        }
+
+        @Override
+        public void retry(AnnouncementDeliveryEvent retry) {
+            retried.addAndGet(retry.recipients().size());
+        }
+
+        @Override
+        public void defer(AnnouncementDeliveryEvent deferred) {
+            retried.addAndGet(deferred.recipients().size());
+        }
+    }
+}
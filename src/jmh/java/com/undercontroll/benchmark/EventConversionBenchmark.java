@@ -0,0 +1,92 @@
+package com.undercontroll.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.undercontroll.domain.enums.EmailEventType;
+import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.events.EmailEvent;
+import com.undercontroll.domain.events.UserCreatedEvent;
+import com.undercontroll.infrastructure.messaging.converter.EmailEventMixin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho de conversao do EmailConsumer: corpo AMQP para EmailEvent pelo message converter, com o
+ * {@code data} ja tipado pelo discriminador. O twoPass mede o caminho antigo, via mapa e convertValue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventConversionBenchmark {
+
+    // Mesmos modulos e mixins que o ObjectMapper do Spring Boot registra
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .addMixIn(EmailEvent.class, EmailEventMixin.class)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final ObjectMapper untypedMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private Jackson2JsonMessageConverter converter;
+    private Jackson2JsonMessageConverter untypedConverter;
+    private Message announcementMessage;
+    private Message userMessage;
+
+    @Setup
+    public void setUp() {
+        converter = new Jackson2JsonMessageConverter(objectMapper);
+        untypedConverter = new Jackson2JsonMessageConverter(untypedMapper);
+
+        LocalDateTime now = LocalDateTime.now();
+        announcementMessage = message(new EmailEvent("main-service", EmailEventType.ANNOUNCEMENT_CREATED,
+                new AnnouncementCreatedEvent(42, "Horario de fim de ano", "A loja fecha mais cedo.", "UPDATES", now, "token"), now));
+        userMessage = message(new EmailEvent("main-service", EmailEventType.USER_CREATED,
+                new UserCreatedEvent("Maria", "maria@example.com", now), now));
+    }
+
+    private Message message(EmailEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setInferredArgumentType(EmailEvent.class);
+        return converter.toMessage(event, properties);
+    }
+
+    @Benchmark
+    public AnnouncementCreatedEvent announcementCreated() {
+        EmailEvent event = (EmailEvent) converter.fromMessage(announcementMessage);
+        return (AnnouncementCreatedEvent) event.data();
+    }
+
+    @Benchmark
+    public UserCreatedEvent userCreated() {
+        EmailEvent event = (EmailEvent) converter.fromMessage(userMessage);
+        return (UserCreatedEvent) event.data();
+    }
+
+    @Benchmark
+    public AnnouncementCreatedEvent announcementCreatedTwoPass() {
+        EmailEvent event = (EmailEvent) untypedConverter.fromMessage(announcementMessage);
+        return untypedMapper.convertValue(event.data(), AnnouncementCreatedEvent.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.undercontroll.benchmark;
+
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.MailAsyncProperties;
+import com.undercontroll.infrastructure.email.JavaMailAdapter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem das MimeMessage no JavaMailAdapter. O sender serializa cada mensagem para um stream
+ * vazio em vez de abrir conexao, entao o custo medido e montagem mais codificacao MIME.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeMessageBenchmark {
+
+    @Param({"1", "20", "100"})
+    public int recipients;
+
+    private JavaMailAdapter adapter;
+    private List<String> addresses;
+    private List<EmailEnvelope> envelopes;
+    private String body;
+
+    @Setup
+    public void setUp() throws Exception {
+        adapter = new JavaMailAdapter(
+                new SerializingMailSender(), new SimpleMeterRegistry(), new MailAsyncProperties(Duration.ofSeconds(30), 8), Stubs.inlineImages()
+        );
+        addresses = Stubs.recipients(recipients);
+        body = "<html><body>" + "<p>Conteudo do aviso com acentuacao: promocao, orcamento, horario.</p>".repeat(40) + "</body></html>";
+        envelopes = addresses.stream().map(to -> new EmailEnvelope(to, "Novo Aviso", body)).toList();
+    }
+
+    @Benchmark
+    public List<DeliveryResult> sendBatch() {
+        return adapter.sendBatch(envelopes);
+    }
+
+    @Benchmark
+    public List<DeliveryResult> sendBroadcast() {
+        return adapter.sendBroadcast("Novo Aviso", body, addresses);
+    }
+
+    private static final class SerializingMailSender extends JavaMailSenderImpl {
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+            for (MimeMessage message : mimeMessages) {
+                try {
+                    message.saveChanges();
+                    message.writeTo(OutputStream.nullOutputStream());
+                } catch (Exception e) {
+                    throw new MailPreparationException(e);
+                }
+            }
+        }
+    }
+}
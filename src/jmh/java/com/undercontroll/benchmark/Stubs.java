@@ -0,0 +1,95 @@
+package com.undercontroll.benchmark;
+
+import com.undercontroll.application.port.CustomersGateway;
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.client.UserDto;
+import com.undercontroll.infrastructure.config.InlineImageProperties;
+import com.undercontroll.infrastructure.email.InlineImages;
+import jakarta.mail.MessagingException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Implementacoes minimas das portas externas, para que os benchmarks meçam so o codigo do servico.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    static List<String> recipients(int count) {
+        List<String> recipients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recipients.add("customer" + i + "@example.com");
+        }
+        return recipients;
+    }
+
+    // Mesmas imagens da aplicacao, reduzidas e codificadas uma vez antes das medicoes
+    static InlineImages inlineImages() throws IOException, MessagingException {
+        InlineImages images = new InlineImages(new InlineImageProperties(true, 192));
+        images.warmUp();
+        return images;
+    }
+
+    // Entrega os destinatarios em paginas, como o main-service faria
+    static CustomersGateway customers(List<String> recipients, int pageSize) {
+        return new CustomersGateway() {
+            @Override
+            public List<UserDto> getCustomersThatHaveEmail(String token) {
+                return List.of();
+            }
+
+            @Override
+            public int forEachRecipientPage(String token, Consumer<List<Recipient>> pageConsumer) {
+                for (int start = 0; start < recipients.size(); start += pageSize) {
+                    pageConsumer.accept(recipients.subList(start, Math.min(start + pageSize, recipients.size())).stream()
+                            .map(email -> new Recipient("Cliente", email))
+                            .toList());
+                }
+                return recipients.size();
+            }
+
+            @Override
+            public void onCustomerCreated(Recipient recipient) {
+            }
+        };
+    }
+
+    static EmailService discardingEmailService() {
+        return new EmailService() {
+            @Override
+            public void sendEmail(String to, String subject, String body) {
+            }
+
+            @Override
+            public CompletableFuture<DeliveryResult> sendEmailAsync(String to, String subject, String body) {
+                return CompletableFuture.completedFuture(DeliveryResult.sent(to));
+            }
+
+            @Override
+            public List<DeliveryResult> sendBatch(List<EmailEnvelope> envelopes) {
+                return envelopes.stream().map(envelope -> DeliveryResult.sent(envelope.to())).toList();
+            }
+
+            @Override
+            public List<DeliveryResult> sendBroadcast(String subject, String body, List<String> recipients) {
+                return recipients.stream().map(DeliveryResult::sent).toList();
+            }
+
+            @Override
+            public List<DeliveryResult> sendPersonalized(String subject, EmailTemplate body, List<Personalization> recipients) {
+                return recipients.stream().map(recipient -> DeliveryResult.sent(recipient.to())).toList();
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.undercontroll.benchmark;
+
+import com.undercontroll.application.usecase.impl.AnnouncementCreatedImpl;
+import com.undercontroll.application.usecase.impl.UserCreatedImpl;
+import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.events.UserCreatedEvent;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import com.undercontroll.infrastructure.config.TemplateProperties;
+import com.undercontroll.infrastructure.outbox.DirectEmailOutbox;
+import com.undercontroll.infrastructure.resource_loader.EmailTemplateLoaderAdapter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga e render dos templates: leitura do cache, parse a frio e o buildTemplate de cada caso de uso,
+ * medido pelo execute com as portas externas sem custo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private static final String ANNOUNCEMENT_TEMPLATE = "announcement_created.html";
+
+    private EmailTemplateLoaderAdapter templateLoader;
+    private AnnouncementCreatedImpl announcementCreated;
+    private UserCreatedImpl userCreated;
+
+    private final AnnouncementCreatedEvent announcement = new AnnouncementCreatedEvent(
+            42, "Horario de fim de ano", "A loja fecha mais cedo nos dias 24 e 31.", "UPDATES", LocalDateTime.now(), "token");
+    private final UserCreatedEvent user = new UserCreatedEvent("Maria", "maria@example.com", LocalDateTime.now());
+
+    @Setup
+    public void setUp() throws IOException {
+        templateLoader = new EmailTemplateLoaderAdapter(new TemplateProperties(null, false), new SimpleMeterRegistry());
+        templateLoader.warmUp();
+
+        // Sem destinatarios o execute para logo depois do render
+        announcementCreated = new AnnouncementCreatedImpl(templateLoader, Stubs.customers(List.of(), 1), null);
+        DirectEmailOutbox outbox = new DirectEmailOutbox(
+                Stubs.discardingEmailService(), new RetryProperties(List.of(Duration.ofSeconds(10)), 1), (envelope, attempts, error) -> { });
+        userCreated = new UserCreatedImpl(Stubs.discardingEmailService(), outbox, templateLoader, Stubs.customers(List.of(), 1));
+    }
+
+    @Benchmark
+    public String load() {
+        return templateLoader.load(ANNOUNCEMENT_TEMPLATE);
+    }
+
+    @Benchmark
+    public EmailTemplate loadCold() {
+        return new EmailTemplateLoaderAdapter(new TemplateProperties(null, false)).compile(ANNOUNCEMENT_TEMPLATE);
+    }
+
+    @Benchmark
+    public void renderAnnouncement() {
+        announcementCreated.execute(announcement);
+    }
+
+    @Benchmark
+    public void renderWelcome() {
+        userCreated.execute(user);
+    }
+}
@@ -0,0 +1,55 @@
+package com.undercontroll.loadtest;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Broker AMQP 0-9-1 em memoria (Qpid Broker-J) no lugar do RabbitMQ, para o teste de carga rodar
+ * sem infraestrutura. Serve para medir o servico, nao o broker: os numeros do RabbitMQ real diferem.
+ * Os argumentos especificos do RabbitMQ (DLX, TTL) sao ignorados, entao retry e DLQ nao funcionam aqui.
+ */
+public final class EmbeddedBroker implements AutoCloseable {
+
+    private final SystemLauncher launcher = new SystemLauncher();
+    private final int port;
+
+    public EmbeddedBroker() throws Exception {
+        this.port = freePort();
+        Path workDir = Files.createTempDirectory("qpid-load-test");
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+                EmbeddedBroker.class.getResource("/qpid-config.json").toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(SystemConfig.CONTEXT, Map.of(
+                "qpid.amqp_port", port,
+                "qpid.work_dir", workDir.toString(),
+                "queue.behaviourOnUnknownDeclareArgument", "IGNORE"
+        ));
+
+        launcher.startup(attributes);
+    }
+
+    public int port() {
+        return port;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        launcher.shutdown();
+    }
+}
@@ -0,0 +1,296 @@
+package com.undercontroll.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.undercontroll.NotificationService;
+import com.undercontroll.domain.enums.EmailEventType;
+import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.events.EmailEvent;
+import com.undercontroll.domain.events.UserCreatedEvent;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import com.undercontroll.support.SmtpStub;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de carga de ponta a ponta: sobe o servico com o profile {@code load} contra um broker AMQP
+ * embarcado, um SMTP que descarta tudo e um main-service falso, publica uma mistura de USER_CREATED
+ * e ANNOUNCEMENT_CREATED em {@code notification.events} e mede emails/s, latencia p50/p99 do publish
+ * ate o SMTP e uso de heap.
+ *
+ * <p>Parametros {@code chave=valor}: users, announcements, customers (destinatarios por anuncio),
+ * rate (eventos/s, 0 sem limite) e timeout. Tudo roda na mesma JVM, entao o heap inclui os stubs.
+ */
+public final class LoadTest {
+
+    private static final String USER_DOMAIN = "@users.load.test";
+    private static final String ANNOUNCEMENT_TITLE = "load-";
+
+    private final int users;
+    private final int announcements;
+    private final int customers;
+    private final int rate;
+    private final Duration timeout;
+
+    private final long[] userPublishedAt;
+    private final long[] announcementPublishedAt;
+    private final Latencies welcomeLatency;
+    private final Latencies announcementLatency;
+    private final AtomicLong delivered = new AtomicLong();
+
+    private LoadTest(Map<String, String> args) {
+        this.users = Integer.parseInt(args.getOrDefault("users", "2000"));
+        this.announcements = Integer.parseInt(args.getOrDefault("announcements", "5"));
+        this.customers = Integer.parseInt(args.getOrDefault("customers", "2000"));
+        this.rate = Integer.parseInt(args.getOrDefault("rate", "0"));
+        this.timeout = Duration.parse("PT" + args.getOrDefault("timeout", "300s").toUpperCase(Locale.ROOT));
+
+        this.userPublishedAt = new long[users];
+        this.announcementPublishedAt = new long[announcements];
+        this.welcomeLatency = new Latencies(users);
+        this.announcementLatency = new Latencies(announcements * customers);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        try (EmbeddedBroker broker = new EmbeddedBroker();
+             SmtpStub smtp = new SmtpStub(this::onReceived);
+             MainServiceStub mainService = new MainServiceStub(customers);
+             ConfigurableApplicationContext app = start(broker, smtp, mainService)) {
+
+            // Garante exchanges e filas declaradas antes do primeiro publish
+            app.getBean(RabbitAdmin.class).initialize();
+
+            CachingConnectionFactory connectionFactory = new CachingConnectionFactory("localhost", broker.port());
+            connectionFactory.setUsername("guest");
+            connectionFactory.setPassword("guest");
+            RabbitTemplate publisher = new RabbitTemplate(connectionFactory);
+            publisher.setMessageConverter(new Jackson2JsonMessageConverter(objectMapper()));
+
+            HeapSampler heap = new HeapSampler();
+            long expected = users + (long) announcements * customers;
+            long start = System.nanoTime();
+
+            publish(publisher);
+            long published = System.nanoTime();
+
+            boolean completed = awaitDelivery(expected, start);
+            long elapsed = System.nanoTime() - start;
+
+            heap.stop();
+            connectionFactory.destroy();
+            report(expected, completed, published - start, elapsed, heap);
+        }
+    }
+
+    private ConfigurableApplicationContext start(EmbeddedBroker broker, SmtpStub smtp, MainServiceStub mainService) throws IOException {
+        // Outbox novo a cada rodada, para nao reenviar sobras de uma rodada anterior
+        Path outbox = Files.createTempDirectory("load-test-outbox-");
+
+        // Como argumentos de linha de comando, para valerem por cima do application.yml
+        return new SpringApplicationBuilder(NotificationService.class)
+                .profiles("load")
+                .run(
+                        "--spring.rabbitmq.host=localhost",
+                        "--spring.rabbitmq.port=" + broker.port(),
+                        "--spring.rabbitmq.username=guest",
+                        "--spring.rabbitmq.password=guest",
+                        "--spring.mail.port=" + smtp.port(),
+                        "--main-service.url=" + mainService.url(),
+                        "--notification.unsubscribe.secret=load-test",
+                        "--notification.outbox.directory=" + outbox
+                );
+    }
+
+    // Intercala os anuncios no meio dos cadastros, na proporcao pedida
+    private void publish(RabbitTemplate publisher) {
+        int total = users + announcements;
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long next = System.nanoTime();
+        int user = 0;
+        int announcement = 0;
+
+        for (int i = 0; i < total; i++) {
+            if (interval > 0) {
+                LockSupport.parkNanos(next - System.nanoTime());
+                next += interval;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            boolean isAnnouncement = announcement < announcements
+                    && (long) (i + 1) * announcements / total > announcement;
+
+            if (isAnnouncement) {
+                AnnouncementCreatedEvent data = new AnnouncementCreatedEvent(
+                        announcement + 1, ANNOUNCEMENT_TITLE + announcement, "Conteudo do aviso de carga", "UPDATES", now, "load-token");
+                announcementPublishedAt[announcement++] = System.nanoTime();
+                publisher.convertAndSend(RabbitMQConfig.NOTIFICATION_EXCHANGE, "announcement.created",
+                        new EmailEvent("load-test", EmailEventType.ANNOUNCEMENT_CREATED, data, now));
+            } else {
+                UserCreatedEvent data = new UserCreatedEvent("Cliente " + user, "user-" + user + USER_DOMAIN, now);
+                userPublishedAt[user++] = System.nanoTime();
+                publisher.convertAndSend(RabbitMQConfig.NOTIFICATION_EXCHANGE, "user.created",
+                        new EmailEvent("load-test", EmailEventType.USER_CREATED, data, now));
+            }
+        }
+    }
+
+    // Cada email aceito pelo SMTP e ligado ao evento de origem pelo destinatario ou pelo assunto
+    private void onReceived(SmtpStub.Received mail) {
+        long now = System.nanoTime();
+
+        for (String recipient : mail.recipients()) {
+            if (recipient.endsWith(USER_DOMAIN)) {
+                int user = Integer.parseInt(recipient.substring(5, recipient.length() - USER_DOMAIN.length()));
+                welcomeLatency.record(now - userPublishedAt[user]);
+            } else if (mail.subject() != null && mail.subject().contains(ANNOUNCEMENT_TITLE)) {
+                int announcement = Integer.parseInt(mail.subject().substring(mail.subject().lastIndexOf(ANNOUNCEMENT_TITLE) + ANNOUNCEMENT_TITLE.length()));
+                announcementLatency.record(now - announcementPublishedAt[announcement]);
+            }
+            delivered.incrementAndGet();
+        }
+    }
+
+    private boolean awaitDelivery(long expected, long start) throws InterruptedException {
+        long deadline = start + timeout.toNanos();
+        long lastReport = System.nanoTime();
+
+        while (delivered.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            if (System.nanoTime() - lastReport > TimeUnit.SECONDS.toNanos(5)) {
+                System.out.printf("... %d/%d emails delivered%n", delivered.get(), expected);
+                lastReport = System.nanoTime();
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    private void report(long expected, boolean completed, long publishNanos, long elapsedNanos, HeapSampler heap) {
+        double seconds = elapsedNanos / 1e9;
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+
+        System.out.println();
+        System.out.printf("Load test: %d USER_CREATED + %d ANNOUNCEMENT_CREATED (%d customers each), rate %s%n",
+                users, announcements, customers, rate > 0 ? rate + " events/s" : "unthrottled");
+        System.out.printf("Published in %.2f s%s%n", publishNanos / 1e9, completed ? "" : " -- TIMED OUT before all emails arrived");
+        System.out.printf("Emails:       %d/%d in %.2f s -> %.1f emails/s, %.1f events/s%n",
+                delivered.get(), expected, seconds, delivered.get() / seconds, (users + announcements) / seconds);
+        welcomeLatency.print("Welcome");
+        announcementLatency.print("Announcement");
+        System.out.printf("Heap:         max used %d MB of %d MB, GC %d collections / %d ms%n",
+                heap.maxUsed() / (1024 * 1024), heap.max() / (1024 * 1024), gcCount, gcMillis);
+    }
+
+    private static ObjectMapper objectMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    // Latencias em nanos, ordenadas so no final para tirar os percentis
+    private static final class Latencies {
+
+        private final long[] samples;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Latencies(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        void record(long nanos) {
+            int index = count.getAndIncrement();
+            if (index < samples.length) {
+                samples[index] = nanos;
+            }
+        }
+
+        void print(String label) {
+            int size = Math.min(count.get(), samples.length);
+            if (size == 0) {
+                return;
+            }
+
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+
+            System.out.printf("%-13s p50 %d ms, p99 %d ms, max %d ms (%d emails)%n",
+                    label + ":", millis(sorted, 0.50), millis(sorted, 0.99), sorted[size - 1] / 1_000_000, size);
+        }
+
+        private static long millis(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000;
+        }
+    }
+
+    private static final class HeapSampler {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private final AtomicLong maxUsed = new AtomicLong();
+
+        private HeapSampler() {
+            scheduler.scheduleAtFixedRate(
+                    () -> maxUsed.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                    0, 100, TimeUnit.MILLISECONDS
+            );
+        }
+
+        long maxUsed() {
+            return maxUsed.get();
+        }
+
+        long max() {
+            return memory.getHeapMemoryUsage().getMax();
+        }
+
+        void stop() {
+            scheduler.shutdownNow();
+        }
+    }
+}
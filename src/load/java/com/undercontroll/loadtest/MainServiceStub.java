@@ -0,0 +1,80 @@
+package com.undercontroll.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Endpoint paginado de clientes do main-service, devolvendo sempre a mesma base de {@code customers}
+ * destinatarios ficticios.
+ */
+public final class MainServiceStub implements AutoCloseable {
+
+    static final String DOMAIN = "@customers.load.test";
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int customers;
+
+    public MainServiceStub(int customers) throws IOException {
+        this.customers = customers;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/v1/api/users/customers/emails", this::page);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void page(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        int page = Integer.parseInt(query.getOrDefault("page", "0"));
+        int size = Integer.parseInt(query.getOrDefault("size", String.valueOf(customers)));
+
+        int from = Math.min(page * size, customers);
+        int to = Math.min(from + size, customers);
+
+        List<Map<String, String>> recipients = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            recipients.add(Map.of("name", "Cliente " + i, "email", "customer-" + i + DOMAIN));
+        }
+
+        byte[] body = objectMapper.writeValueAsBytes(recipients);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -1,11 +1,25 @@
 package com.undercontroll.application.port;
 
+import com.undercontroll.domain.model.Recipient;
 import com.undercontroll.infrastructure.client.UserDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CustomersGateway {
 
     List<UserDto> getCustomersThatHaveEmail(String token);
 
+    /**
+     * Busca os clientes pagina a pagina, entregando cada pagina ao consumer assim que chega,
+     * sem manter a lista inteira em memoria. Retorna o total de clientes recebidos.
+     */
+    int forEachRecipientPage(String token, Consumer<List<Recipient>> pageConsumer);
+
+    /**
+     * Avisa que um cliente novo foi cadastrado, para que listas ja carregadas possam inclui-lo
+     * sem buscar tudo de novo.
+     */
+    void onCustomerCreated(Recipient recipient);
+
 }
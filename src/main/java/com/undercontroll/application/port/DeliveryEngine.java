@@ -0,0 +1,24 @@
+package com.undercontroll.application.port;
+
+import com.undercontroll.domain.model.DeliveryReport;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+
+import java.util.List;
+
+public interface DeliveryEngine {
+
+    DeliveryReport deliver(List<EmailEnvelope> envelopes);
+
+    /**
+     * Envia o mesmo assunto e corpo para todos os destinatarios, codificando o MIME uma unica vez.
+     */
+    DeliveryReport broadcast(String subject, String body, List<String> recipients);
+
+    /**
+     * Como o {@link #broadcast}, mas preenchendo os placeholders restantes do corpo com os valores de cada destinatario.
+     */
+    DeliveryReport personalize(String subject, EmailTemplate body, List<Personalization> recipients);
+
+}
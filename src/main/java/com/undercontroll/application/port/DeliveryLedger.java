@@ -0,0 +1,17 @@
+package com.undercontroll.application.port;
+
+import java.util.List;
+
+/**
+ * Registro dos envios ja concluidos, consultado antes de enviar para nao repetir emails em reentregas.
+ */
+public interface DeliveryLedger {
+
+    /**
+     * @return os destinatarios que ainda nao receberam o anuncio, na ordem original
+     */
+    List<String> pending(Integer announcementId, List<String> recipients);
+
+    void markDelivered(Integer announcementId, List<String> recipients);
+
+}
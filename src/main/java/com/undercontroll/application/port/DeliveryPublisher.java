@@ -0,0 +1,30 @@
+package com.undercontroll.application.port;
+
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.model.Recipient;
+
+import java.util.List;
+
+public interface DeliveryPublisher {
+
+    /**
+     * Divide os destinatarios em mensagens de entrega e publica cada uma na fila de envio. Os nomes
+     * seguem junto para a personalizacao no envio.
+     *
+     * @return quantidade de mensagens publicadas
+     */
+    int publish(Integer announcementId, String subject, String body, List<Recipient> recipients);
+
+    /**
+     * Agenda uma nova tentativa para os destinatarios que falharam, depois do atraso correspondente a
+     * {@code retry.attempt()}; esgotadas as tentativas, a fatia vai para a DLQ de entrega.
+     */
+    void retry(AnnouncementDeliveryEvent retry);
+
+    /**
+     * Reagenda uma fatia adiada por limite de envio para {@code deferred.notBefore()}, sem contar tentativa
+     * e sem nunca ir para a DLQ.
+     */
+    void defer(AnnouncementDeliveryEvent deferred);
+
+}
@@ -0,0 +1,15 @@
+package com.undercontroll.application.port;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+
+import java.util.List;
+
+/**
+ * Recebe emails ja renderizados para envio. Quando o metodo retorna, os envelopes estao garantidos:
+ * a mensagem do broker pode ser confirmada e o envio segue no ritmo do SMTP, fora do listener.
+ */
+public interface EmailOutbox {
+
+    void enqueue(List<EmailEnvelope> envelopes);
+
+}
@@ -1,7 +1,39 @@
 package com.undercontroll.application.port;
 
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface EmailService {
 
     void sendEmail(String to, String subject, String body);
 
+    /**
+     * Versao sem bloqueio do {@link #sendEmail}. Falhas de envio e timeout voltam como
+     * {@link DeliveryResult} com erro, sem completar o future com excecao; cancelar o future
+     * interrompe o envio em andamento.
+     */
+    CompletableFuture<DeliveryResult> sendEmailAsync(String to, String subject, String body);
+
+    /**
+     * Envia todos os envelopes aproveitando a mesma conexao. Nao lanca excecao por falha de um
+     * destinatario: o resultado de cada envelope volta na mesma ordem da lista recebida.
+     */
+    List<DeliveryResult> sendBatch(List<EmailEnvelope> envelopes);
+
+    /**
+     * Envia uma mensagem identica para varios destinatarios; so o cabecalho To muda entre elas.
+     */
+    List<DeliveryResult> sendBroadcast(String subject, String body, List<String> recipients);
+
+    /**
+     * Broadcast com trechos por destinatario: as partes literais do template sao codificadas uma vez e
+     * cada mensagem so codifica os proprios valores. Placeholders sem valor ficam no texto como estavam.
+     */
+    List<DeliveryResult> sendPersonalized(String subject, EmailTemplate body, List<Personalization> recipients);
+
 }
@@ -1,7 +1,16 @@
 package com.undercontroll.application.port;
 
+import com.undercontroll.domain.model.EmailTemplate;
+
+import java.util.Map;
+
 public interface EmailTemplateLoader {
 
     String load(String name);
 
+    EmailTemplate compile(String name);
+
+    // Render do template compilado; placeholders sem valor ficam no texto
+    String render(String name, Map<String, String> values);
+
 }
@@ -0,0 +1,10 @@
+package com.undercontroll.application.port;
+
+public interface UnsubscribeLinks {
+
+    /**
+     * Link de descadastro do destinatario, com um token que so o servico consegue gerar.
+     */
+    String linkFor(String email);
+
+}
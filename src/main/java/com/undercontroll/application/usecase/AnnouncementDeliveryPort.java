@@ -0,0 +1,9 @@
+package com.undercontroll.application.usecase;
+
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+
+public interface AnnouncementDeliveryPort {
+
+    void execute(AnnouncementDeliveryEvent event);
+
+}
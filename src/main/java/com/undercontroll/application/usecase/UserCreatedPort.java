@@ -2,8 +2,12 @@ package com.undercontroll.application.usecase;
 
 import com.undercontroll.domain.events.UserCreatedEvent;
 
+import java.util.List;
+
 public interface UserCreatedPort {
 
     void execute(UserCreatedEvent event);
 
+    void executeAll(List<UserCreatedEvent> events);
+
 }
@@ -1,31 +1,30 @@
 package com.undercontroll.application.usecase.impl;
 
 import com.undercontroll.application.port.CustomersGateway;
-import com.undercontroll.application.port.EmailService;
+import com.undercontroll.application.port.DeliveryPublisher;
 import com.undercontroll.application.usecase.AnnouncementCreatedPort;
 import com.undercontroll.application.port.EmailTemplateLoader;
 import com.undercontroll.domain.events.AnnouncementCreatedEvent;
-import com.undercontroll.infrastructure.client.UserDto;
-import feign.FeignException;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Recipient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RequiredArgsConstructor
 @Slf4j
 @Service
 public class AnnouncementCreatedImpl implements AnnouncementCreatedPort {
 
-    private final EmailService emailService;
     private final EmailTemplateLoader emailTemplateLoader;
     private final CustomersGateway customersGateway;
+    private final DeliveryPublisher deliveryPublisher;
 
     private static final String HTML_NAME = "announcement_created.html";
 
@@ -33,55 +32,55 @@ public class AnnouncementCreatedImpl implements AnnouncementCreatedPort {
     private final String websiteUrl = "https://www.comercialirmaospelluci.com.br";
     private final String contactUrl = "mailto:comercialirmaopeluci@gmail.com";
 
-    @Retryable(
-            retryFor = FeignException.class,
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 2000, multiplier = 2)
-    )
+    // Falhas do main-service sao repetidas por pagina no gateway; se ainda assim falhar, o evento vai para
+    // o retry do listener e as paginas ja publicadas sao puladas no envio pelo ledger de entregas
     @Override
     public void execute(AnnouncementCreatedEvent event) {
-        log.info("Sending emails for new announcement: {}", event.title());
+        log.info("Queueing emails for new announcement: {}", event.title());
 
         String template = buildTemplate(event);
+        String subject = "Novo Aviso: " + event.title();
 
-        List<UserDto> users = customersGateway.getCustomersThatHaveEmail(event.token());
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger messages = new AtomicInteger();
 
-        if (users == null || users.isEmpty()) {
+        // Cada pagina vira mensagens de entrega assim que chega; o envio fica com quem consumir a fila
+        int fetched = customersGateway.forEachRecipientPage(event.token(), page -> {
+            List<Recipient> recipients = page.stream()
+                    .filter(recipient -> recipient.email() != null && !recipient.email().isBlank())
+                    .toList();
+
+            if (!recipients.isEmpty()) {
+                messages.addAndGet(deliveryPublisher.publish(event.id(), subject, template, recipients));
+                queued.addAndGet(recipients.size());
+            }
+        });
+
+        if (fetched == 0) {
             log.info("Skipping work, no users found.");
             return;
         }
 
-        for (UserDto user : users) {
-            try {
-                emailService.sendEmail(
-                        user.email(),
-                        "Novo Aviso: " + event.title(),
-                        template
-                );
-                log.info("Email sent to {}", user.email());
-            } catch (Exception e) {
-                log.error("Failed to send email to {}", user.email(), e);
-            }
-        }
+        log.info("Announcement '{}' queued: {} recipients in {} delivery messages",
+                event.title(), queued.get(), messages.get());
     }
 
-    @Recover
-    public void recover(FeignException e, AnnouncementCreatedEvent event) {
-        log.error("Failed to fetch users from main-service after 3 attempts for announcement '{}': {}",
-                event.title(), e.getMessage());
+    // Campos por destinatario ({{name}}, {{email}}, {{unsubscribeUrl}}) ficam no HTML e so sao preenchidos no envio;
+    // os que vem do anuncio tem {{ neutralizado para nao virarem placeholders nesse segundo parse
+    private String buildTemplate(AnnouncementCreatedEvent event) {
+        return emailTemplateLoader.render(HTML_NAME, Map.of(
+                    "type", shared(event.type()),
+                    "title", shared(event.title()),
+                    "content", shared(event.content()),
+                    "createdAt", this.formatDateTime(event.publishedAt()),
+                    "year", year,
+                    "websiteUrl", websiteUrl,
+                    "contactUrl", contactUrl
+        ));
     }
 
-    private String buildTemplate(AnnouncementCreatedEvent event) {
-        String template = emailTemplateLoader.load(HTML_NAME);
-
-        return template
-                .replace("{{type}}", event.type() != null ? event.type() : "")
-                .replace("{{title}}", event.title() != null ? event.title() : "")
-                .replace("{{content}}", event.content() != null ? event.content() : "")
-                .replace("{{createdAt}}", this.formatDateTime(event.publishedAt()))
-                .replace("{{year}}", year)
-                .replace("{{websiteUrl}}", websiteUrl)
-                .replace("{{contactUrl}}", contactUrl);
+    private static String shared(String value) {
+        return value != null ? EmailTemplate.escapePlaceholders(value) : "";
     }
 
     private String formatDateTime(LocalDateTime dateTime) {
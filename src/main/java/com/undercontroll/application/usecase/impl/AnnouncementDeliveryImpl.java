@@ -0,0 +1,133 @@
+package com.undercontroll.application.usecase.impl;
+
+import com.undercontroll.application.port.DeliveryEngine;
+import com.undercontroll.application.port.DeliveryLedger;
+import com.undercontroll.application.port.DeliveryPublisher;
+import com.undercontroll.application.port.UnsubscribeLinks;
+import com.undercontroll.application.usecase.AnnouncementDeliveryPort;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.model.DeliveryReport;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.domain.model.Recipient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RequiredArgsConstructor
+@Slf4j
+@Service
+public class AnnouncementDeliveryImpl implements AnnouncementDeliveryPort {
+
+    private final DeliveryEngine deliveryEngine;
+    private final DeliveryLedger deliveryLedger;
+    private final DeliveryPublisher deliveryPublisher;
+    private final UnsubscribeLinks unsubscribeLinks;
+
+    @Override
+    public void execute(AnnouncementDeliveryEvent event) {
+        if (event.recipients() == null || event.recipients().isEmpty()) {
+            log.info("Skipping delivery of announcement {}, no recipients.", event.announcementId());
+            return;
+        }
+
+        // Adiada por limite de envio e ainda antes da hora (atraso maior que o maior tier): mais uma volta
+        if (event.notBefore() != null && event.notBefore() > System.currentTimeMillis()) {
+            deliveryPublisher.defer(event);
+            return;
+        }
+
+        // Sem id nao ha como deduplicar; envia a fatia inteira
+        List<String> recipients = event.announcementId() == null
+                ? event.recipients()
+                : deliveryLedger.pending(event.announcementId(), event.recipients());
+
+        if (recipients.size() < event.recipients().size()) {
+            log.info("Announcement {}: skipping {} recipients already delivered",
+                    event.announcementId(), event.recipients().size() - recipients.size());
+        }
+
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        // O parse e por fatia; sem placeholders restantes o corpo sai identico para todos, codificado uma vez
+        EmailTemplate template = EmailTemplate.parse(event.body());
+
+        DeliveryReport report = template.placeholders().isEmpty()
+                ? deliveryEngine.broadcast(event.subject(), event.body(), recipients)
+                : deliveryEngine.personalize(event.subject(), template, personalize(recipients, event.names()));
+
+        if (event.announcementId() != null) {
+            deliveryLedger.markDelivered(event.announcementId(), delivered(recipients, report));
+        }
+
+        log.info("Announcement {} chunk delivered: {} sent, {} failed, {} deferred of {} recipients",
+                event.announcementId(), report.sent(), report.failed(), report.deferrals().size(), report.total());
+
+        // So quem falhou volta para a fila; a fatia original ja esta resolvida
+        if (!report.failures().isEmpty()) {
+            deliveryPublisher.retry(event.retryFor(
+                    report.failures().stream().map(DeliveryResult::recipient).toList()
+            ));
+        }
+
+        // Adiados voltam quando a cota libera o primeiro slot, sem gastar tentativa; o limitador ritma o resto
+        if (!report.deferrals().isEmpty()) {
+            Duration retryAfter = report.deferrals().stream()
+                    .map(DeliveryResult::retryAfter)
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow();
+
+            deliveryPublisher.defer(event.deferFor(
+                    report.deferrals().stream().map(DeliveryResult::recipient).toList(),
+                    System.currentTimeMillis() + retryAfter.toMillis()
+            ));
+        }
+    }
+
+    // Valores vao direto para o HTML, entao sao escapados aqui
+    private List<Personalization> personalize(List<String> recipients, Map<String, String> names) {
+        List<Personalization> personalized = new ArrayList<>(recipients.size());
+
+        for (String recipient : recipients) {
+            personalized.add(new Personalization(recipient, Map.of(
+                    "name", escape(names.getOrDefault(recipient, Recipient.DEFAULT_NAME)),
+                    "email", escape(recipient),
+                    "unsubscribeUrl", escape(unsubscribeLinks.linkFor(recipient))
+            )));
+        }
+
+        return personalized;
+    }
+
+    private static String escape(String value) {
+        return HtmlUtils.htmlEscape(value, "UTF-8");
+    }
+
+    private List<String> delivered(List<String> recipients, DeliveryReport report) {
+        if (report.failures().isEmpty() && report.deferrals().isEmpty()) {
+            return recipients;
+        }
+
+        Set<String> pending = new HashSet<>();
+        for (DeliveryResult failure : report.failures()) {
+            pending.add(failure.recipient());
+        }
+        for (DeliveryResult deferral : report.deferrals()) {
+            pending.add(deferral.recipient());
+        }
+
+        return recipients.stream().filter(recipient -> !pending.contains(recipient)).toList();
+    }
+}
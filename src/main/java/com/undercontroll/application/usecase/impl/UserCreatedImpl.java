@@ -1,15 +1,22 @@
 package com.undercontroll.application.usecase.impl;
 
+import com.undercontroll.application.port.CustomersGateway;
+import com.undercontroll.application.port.EmailOutbox;
 import com.undercontroll.application.port.EmailService;
 import com.undercontroll.application.port.EmailTemplateLoader;
 import com.undercontroll.application.usecase.UserCreatedPort;
 import com.undercontroll.domain.events.UserCreatedEvent;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.Recipient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @RequiredArgsConstructor
 @Slf4j
@@ -17,9 +24,12 @@ import java.time.format.DateTimeFormatter;
 public class UserCreatedImpl implements UserCreatedPort {
 
     private static final String HTML_NAME = "user_created.html";
+    private static final String SUBJECT = "Bem-vindo(a) a Comercial Irmaos Pelluci";
 
     private final EmailService emailService;
+    private final EmailOutbox emailOutbox;
     private final EmailTemplateLoader emailTemplateLoader;
+    private final CustomersGateway customersGateway;
 
     private final String year = String.valueOf(LocalDateTime.now().getYear());
     private final String websiteUrl = "https://www.comercialirmaospelluci.com.br";
@@ -32,27 +42,53 @@ public class UserCreatedImpl implements UserCreatedPort {
             return;
         }
 
+        customersGateway.onCustomerCreated(new Recipient(event.name(), event.email()));
+
         String template = buildTemplate(event);
 
+        // Envio sincrono: o listener precisa da falha para mandar o evento ao retry antes do ack
         emailService.sendEmail(
                 event.email(),
-                "Bem-vindo(a) a Comercial Irmaos Pelluci",
+                SUBJECT,
                 template
         );
 
         log.info("Welcome email sent to {}", event.email());
     }
 
+    // O lote vindo do listener vai inteiro para o outbox; o ack sai assim que ele estiver gravado
+    @Override
+    public void executeAll(List<UserCreatedEvent> events) {
+        List<EmailEnvelope> envelopes = new ArrayList<>(events.size());
+
+        for (UserCreatedEvent event : events) {
+            if (event == null || event.email() == null || event.email().isBlank()) {
+                log.info("Skipping welcome email, invalid event or empty email.");
+                continue;
+            }
+
+            customersGateway.onCustomerCreated(new Recipient(event.name(), event.email()));
+            envelopes.add(new EmailEnvelope(event.email(), SUBJECT, buildTemplate(event)));
+        }
+
+        if (envelopes.isEmpty()) {
+            return;
+        }
+
+        emailOutbox.enqueue(envelopes);
+
+        log.info("{} welcome emails queued for delivery", envelopes.size());
+    }
+
     private String buildTemplate(UserCreatedEvent event) {
-        String template = emailTemplateLoader.load(HTML_NAME);
-
-        return template
-                .replace("{{name}}", event.name() != null ? event.name() : "Cliente")
-                .replace("{{email}}", event.email() != null ? event.email() : "")
-                .replace("{{createdAt}}", formatDateTime(event.createdAt()))
-                .replace("{{year}}", year)
-                .replace("{{websiteUrl}}", websiteUrl)
-                .replace("{{contactUrl}}", contactUrl);
+        return emailTemplateLoader.render(HTML_NAME, Map.of(
+                    "name", event.name() != null ? event.name() : Recipient.DEFAULT_NAME,
+                    "email", event.email() != null ? event.email() : "",
+                    "createdAt", formatDateTime(event.createdAt()),
+                    "year", year,
+                    "websiteUrl", websiteUrl,
+                    "contactUrl", contactUrl
+        ));
     }
 
     private String formatDateTime(LocalDateTime dateTime) {
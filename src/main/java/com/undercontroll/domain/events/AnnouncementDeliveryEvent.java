@@ -0,0 +1,68 @@
+package com.undercontroll.domain.events;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fatia de um anuncio ja renderizado, publicada na fila de entrega para qualquer replica enviar.
+ * O corpo pode manter placeholders por destinatario ({@code {{name}}}, {@code {{unsubscribeUrl}}}),
+ * preenchidos so no envio.
+ *
+ * @param names   nome de cada destinatario pelo email; ausente em mensagens antigas ou sem cadastro
+ * @param attempt falhas anteriores destes destinatarios; 0 na primeira entrega
+ * @param notBefore epoch em millis antes do qual a fatia nao deve ser enviada (adiada por limite de envio);
+ *                  {@code null} envia assim que for consumida
+ */
+public record AnnouncementDeliveryEvent(
+        Integer announcementId,
+        String subject,
+        String body,
+        List<String> recipients,
+        Map<String, String> names,
+        int attempt,
+        Long notBefore
+) {
+
+    public AnnouncementDeliveryEvent {
+        names = names != null ? names : Map.of();
+    }
+
+    public AnnouncementDeliveryEvent(Integer announcementId, String subject, String body, List<String> recipients) {
+        this(announcementId, subject, body, recipients, Map.of(), 0, null);
+    }
+
+    public AnnouncementDeliveryEvent(Integer announcementId, String subject, String body, List<String> recipients, int attempt) {
+        this(announcementId, subject, body, recipients, Map.of(), attempt, null);
+    }
+
+    public AnnouncementDeliveryEvent(Integer announcementId, String subject, String body, List<String> recipients,
+                                     Map<String, String> names, int attempt) {
+        this(announcementId, subject, body, recipients, names, attempt, null);
+    }
+
+    // Nova fatia so com quem falhou, reaproveitando o conteudo ja renderizado
+    public AnnouncementDeliveryEvent retryFor(List<String> failedRecipients) {
+        return new AnnouncementDeliveryEvent(
+                announcementId, subject, body, List.copyOf(failedRecipients), namesOf(failedRecipients), attempt + 1, null
+        );
+    }
+
+    // Adiados por limite de envio mantem a contagem de tentativas; so ganham o horario minimo de envio
+    public AnnouncementDeliveryEvent deferFor(List<String> deferredRecipients, long notBefore) {
+        return new AnnouncementDeliveryEvent(
+                announcementId, subject, body, List.copyOf(deferredRecipients), namesOf(deferredRecipients), attempt, notBefore
+        );
+    }
+
+    private Map<String, String> namesOf(List<String> recipients) {
+        Map<String, String> selected = new HashMap<>();
+        for (String recipient : recipients) {
+            String name = names.get(recipient);
+            if (name != null) {
+                selected.put(recipient, name);
+            }
+        }
+        return Map.copyOf(selected);
+    }
+}
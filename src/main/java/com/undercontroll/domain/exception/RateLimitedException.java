@@ -0,0 +1,21 @@
+package com.undercontroll.domain.exception;
+
+import java.time.Duration;
+
+/**
+ * Envio adiado por limite da conta remetente. Nao e uma falha do email: quem recebe reagenda para
+ * {@code retryAfter} sem contar uma tentativa.
+ */
+public class RateLimitedException extends MailSendingException {
+
+    private final Duration retryAfter;
+
+    public RateLimitedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
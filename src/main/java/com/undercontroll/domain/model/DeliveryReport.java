@@ -0,0 +1,42 @@
+package com.undercontroll.domain.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @param failures  envios que falharam e seguem o retry com tentativas contadas
+ * @param deferrals envios adiados por limite de envio, reagendados sem contar tentativa
+ */
+public record DeliveryReport(
+        int total,
+        int sent,
+        int failed,
+        List<DeliveryResult> failures,
+        List<DeliveryResult> deferrals
+) {
+
+    public DeliveryReport(int total, int sent, int failed, List<DeliveryResult> failures) {
+        this(total, sent, failed, failures, List.of());
+    }
+
+    public static DeliveryReport empty() {
+        return new DeliveryReport(0, 0, 0, List.of(), List.of());
+    }
+
+    public DeliveryReport plus(DeliveryReport other) {
+        return new DeliveryReport(
+                total + other.total(),
+                sent + other.sent(),
+                failed + other.failed(),
+                concat(failures, other.failures()),
+                concat(deferrals, other.deferrals())
+        );
+    }
+
+    private static List<DeliveryResult> concat(List<DeliveryResult> first, List<DeliveryResult> second) {
+        List<DeliveryResult> all = new ArrayList<>(first.size() + second.size());
+        all.addAll(first);
+        all.addAll(second);
+        return List.copyOf(all);
+    }
+}
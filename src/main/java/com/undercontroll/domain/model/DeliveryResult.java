@@ -0,0 +1,31 @@
+package com.undercontroll.domain.model;
+
+import java.time.Duration;
+
+/**
+ * @param retryAfter preenchido so quando o envio foi adiado por limite de envio: nao e falha, nao consome
+ *                   tentativa e deve voltar depois desse tempo
+ */
+public record DeliveryResult(
+        String recipient,
+        boolean success,
+        String error,
+        Duration retryAfter
+) {
+
+    public static DeliveryResult sent(String recipient) {
+        return new DeliveryResult(recipient, true, null, null);
+    }
+
+    public static DeliveryResult failed(String recipient, String error) {
+        return new DeliveryResult(recipient, false, error, null);
+    }
+
+    public static DeliveryResult deferred(String recipient, String reason, Duration retryAfter) {
+        return new DeliveryResult(recipient, false, reason, retryAfter);
+    }
+
+    public boolean deferred() {
+        return retryAfter != null;
+    }
+}
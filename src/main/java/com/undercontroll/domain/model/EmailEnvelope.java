@@ -0,0 +1,8 @@
+package com.undercontroll.domain.model;
+
+public record EmailEnvelope(
+        String to,
+        String subject,
+        String body
+) {
+}
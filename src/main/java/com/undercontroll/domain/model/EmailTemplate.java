@@ -0,0 +1,133 @@
+package com.undercontroll.domain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template HTML ja separado em trechos literais e placeholders {@code {{nome}}}. O parse acontece
+ * uma vez; cada render percorre os trechos uma unica vez, em um StringBuilder do tamanho exato.
+ * Placeholders sem valor no mapa ficam no texto como estavam.
+ */
+public final class EmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // literals tem sempre um elemento a mais que placeholders: literal, placeholder, literal, ...
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private EmailTemplate(List<String> literals, List<String> placeholders) {
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public static EmailTemplate parse(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int cursor = 0;
+
+        while (true) {
+            int open = source.indexOf(OPEN, cursor);
+            if (open < 0) {
+                break;
+            }
+
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+
+            String name = source.substring(open + OPEN.length(), close);
+
+            if (isPlaceholderName(name)) {
+                literals.add(source.substring(literalStart, open));
+                placeholders.add(name);
+                literalStart = close + CLOSE.length();
+                cursor = literalStart;
+            } else {
+                cursor = open + OPEN.length();
+            }
+        }
+
+        literals.add(source.substring(literalStart));
+
+        return new EmailTemplate(literals, placeholders);
+    }
+
+    public String render(Map<String, String> values) {
+        String[] resolved = new String[placeholders.length];
+        int length = literalLength;
+
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = values.get(placeholders[i]);
+            resolved[i] = value != null ? value : OPEN + placeholders[i] + CLOSE;
+            length += resolved[i].length();
+        }
+
+        StringBuilder out = new StringBuilder(length);
+        out.append(literals[0]);
+
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(resolved[i]).append(literals[i + 1]);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Neutraliza {@code {{} em valores que entram no HTML e depois passam por um novo parse, como os
+     * campos compartilhados dos anuncios: um {@code {{name}}} digitado no conteudo nao vira placeholder.
+     * A entidade aparece como a chave original no cliente de email.
+     */
+    public static String escapePlaceholders(String value) {
+        return value.replace(OPEN, "{&#123;");
+    }
+
+    /**
+     * Trechos literais, sempre um a mais que {@link #placeholders()}: o placeholder {@code i} fica entre
+     * os literais {@code i} e {@code i + 1}. Permite codificar as partes fixas uma vez e so emendar os valores.
+     */
+    public List<String> literals() {
+        return Collections.unmodifiableList(Arrays.asList(literals));
+    }
+
+    public List<String> placeholders() {
+        return Collections.unmodifiableList(Arrays.asList(placeholders));
+    }
+
+    // Dois parses do mesmo HTML sao iguais: cada fatia de um anuncio faz o seu e o cache de codificacao e por conteudo
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof EmailTemplate that
+                && Arrays.equals(literals, that.literals)
+                && Arrays.equals(placeholders, that.placeholders);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(literals) + Arrays.hashCode(placeholders);
+    }
+
+    private static boolean isPlaceholderName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package com.undercontroll.domain.model;
+
+import java.util.Map;
+
+/**
+ * Valores de um destinatario para os placeholders que sobraram no corpo compartilhado.
+ */
+public record Personalization(
+        String to,
+        Map<String, String> values
+) {
+}
@@ -0,0 +1,10 @@
+package com.undercontroll.domain.model;
+
+public record Recipient(
+        String name,
+        String email
+) {
+
+    // Usado no {{name}} dos emails quando o cadastro nao tem nome
+    public static final String DEFAULT_NAME = "Cliente";
+}
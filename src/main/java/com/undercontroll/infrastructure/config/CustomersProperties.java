@@ -0,0 +1,47 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Busca de clientes no main-service.
+ *
+ * @param pageSize quantidade de clientes por pagina pedida ao main-service
+ * @param cache cache local da lista de destinatarios
+ * @param retry novas tentativas de cada pagina que falhar; so a pagina e repetida, nao a busca inteira
+ */
+@ConfigurationProperties(prefix = "notification.customers")
+public record CustomersProperties(
+        @DefaultValue("500") int pageSize,
+        @DefaultValue Cache cache,
+        @DefaultValue Retry retry
+) {
+
+    /**
+     * @param enabled reaproveita a ultima lista buscada em vez de chamar o main-service a cada anuncio
+     * @param ttl tempo de vida da lista em cache
+     * @param maxSize listas maiores que isso nao sao guardadas em cache
+     */
+    public record Cache(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("10m") Duration ttl,
+            @DefaultValue("50000") int maxSize
+    ) {
+    }
+
+    /**
+     * @param maxAttempts tentativas por pagina, contando a primeira; esgotadas, a excecao sobe para o listener
+     * @param delay espera antes da segunda tentativa
+     * @param multiplier fator aplicado a espera a cada nova tentativa
+     * @param maxDelay teto da espera entre tentativas
+     */
+    public record Retry(
+            @DefaultValue("3") int maxAttempts,
+            @DefaultValue("2s") Duration delay,
+            @DefaultValue("2") double multiplier,
+            @DefaultValue("30s") Duration maxDelay
+    ) {
+    }
+}
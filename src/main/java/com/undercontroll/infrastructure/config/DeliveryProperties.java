@@ -0,0 +1,23 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limites do fan-out de envio de emails.
+ *
+ * @param maxConcurrency lotes enviados simultaneamente; acima disso o produtor espera (backpressure)
+ * @param batchSize destinatarios por lote entregue ao {@code EmailService.sendBatch}
+ * @param perHostRate envios por segundo para cada dominio de destino, 0 desativa o limite
+ * @param perHostBurst quantidade de envios permitidos em rajada por dominio de destino
+ * @param chunkSize destinatarios por mensagem publicada na fila de entrega de anuncios
+ */
+@ConfigurationProperties(prefix = "notification.delivery")
+public record DeliveryProperties(
+        @DefaultValue("8") int maxConcurrency,
+        @DefaultValue("20") int batchSize,
+        @DefaultValue("10") double perHostRate,
+        @DefaultValue("10") int perHostBurst,
+        @DefaultValue("100") int chunkSize
+) {
+}
@@ -0,0 +1,17 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Imagens de {@code images/} no classpath anexadas inline ({@code cid:}) aos emails que as referenciam.
+ *
+ * @param enabled  desligado, os emails saem sem as imagens mesmo que o HTML as referencie
+ * @param maxWidth largura maxima em pixels; imagens maiores sao reduzidas uma vez na subida (0 mantem o original)
+ */
+@ConfigurationProperties(prefix = "notification.mail.inline-images")
+public record InlineImageProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("192") int maxWidth
+) {
+}
@@ -0,0 +1,32 @@
+package com.undercontroll.infrastructure.config;
+
+import com.undercontroll.application.port.DeliveryLedger;
+import com.undercontroll.infrastructure.ledger.FileDeliveryLedger;
+import com.undercontroll.infrastructure.ledger.NoopDeliveryLedger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class LedgerConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "notification.ledger", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public DeliveryLedger fileDeliveryLedger(LedgerProperties properties) throws IOException {
+        return new FileDeliveryLedger(
+                properties.file(),
+                properties.effectiveMaxEntries(Runtime.getRuntime().maxMemory()),
+                properties.ttl(),
+                properties.compactInterval(),
+                properties.fsync()
+        );
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "notification.ledger", name = "enabled", havingValue = "false")
+    public DeliveryLedger noopDeliveryLedger() {
+        return new NoopDeliveryLedger();
+    }
+}
@@ -0,0 +1,34 @@
+package com.undercontroll.infrastructure.config;
+
+import com.undercontroll.infrastructure.ledger.FileDeliveryLedger;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Ledger de envios usado para deduplicar reentregas de anuncios.
+ *
+ * @param enabled desligado, todo destinatario e considerado pendente
+ * @param file arquivo append-only com as impressoes digitais dos envios concluidos
+ * @param maxEntries limite do indice em memoria; acima dele os anuncios menos recentes sao esquecidos.
+ *                   0 usa um oitavo do heap maximo
+ * @param ttl anuncio sem envio registrado ha mais que isso e esquecido
+ * @param compactInterval intervalo da compactacao que tira do arquivo o que foi esquecido; 0 desliga
+ * @param fsync forca o disco a cada lote registrado
+ */
+@ConfigurationProperties(prefix = "notification.ledger")
+public record LedgerProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/delivery-ledger.bin") Path file,
+        @DefaultValue("0") long maxEntries,
+        @DefaultValue("3d") Duration ttl,
+        @DefaultValue("1h") Duration compactInterval,
+        @DefaultValue("true") boolean fsync
+) {
+
+    public long effectiveMaxEntries(long maxHeapBytes) {
+        return maxEntries > 0 ? maxEntries : Math.max(1, maxHeapBytes / 8 / FileDeliveryLedger.BYTES_PER_ENTRY);
+    }
+}
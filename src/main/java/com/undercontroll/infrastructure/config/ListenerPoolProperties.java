@@ -0,0 +1,34 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Pools de consumidores independentes por tipo de evento, para que anuncios em massa nao
+ * atrasem os emails transacionais de boas-vindas.
+ */
+@ConfigurationProperties(prefix = "notification.listeners")
+public record ListenerPoolProperties(
+        @DefaultValue Pool announcement,
+        @DefaultValue Pool user,
+        @DefaultValue Pool delivery
+) {
+
+    /**
+     * @param concurrency consumidores iniciais (no container direct, consumidores fixos por fila)
+     * @param maxConcurrency consumidores maximos quando a fila acumula (apenas no container simple)
+     * @param prefetch mensagens entregues a cada consumidor antes do ack
+     * @param batchSize mensagens agrupadas por entrega nos listeners em lote (container simple)
+     * @param receiveTimeout tempo maximo esperando o lote encher antes de entregar o que chegou
+     */
+    public record Pool(
+            @DefaultValue("1") int concurrency,
+            @DefaultValue("4") int maxConcurrency,
+            @DefaultValue("5") int prefetch,
+            @DefaultValue("1") int batchSize,
+            @DefaultValue("1s") Duration receiveTimeout
+    ) {
+    }
+}
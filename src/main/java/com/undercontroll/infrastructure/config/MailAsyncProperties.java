@@ -0,0 +1,20 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Envios assincronos do {@code EmailService}: uma thread virtual por envio quando
+ * {@code spring.threads.virtual.enabled}, senao um pool fixo de threads de plataforma.
+ *
+ * @param timeout tempo maximo de um envio; depois disso o resultado volta como falha e o envio e interrompido
+ * @param threads tamanho do pool sem threads virtuais; o pool SMTP limita os envios de qualquer forma
+ */
+@ConfigurationProperties(prefix = "notification.mail.async")
+public record MailAsyncProperties(
+        @DefaultValue("30s") Duration timeout,
+        @DefaultValue("8") int threads
+) {
+}
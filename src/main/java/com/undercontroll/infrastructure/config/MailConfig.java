@@ -0,0 +1,41 @@
+package com.undercontroll.infrastructure.config;
+
+import com.undercontroll.infrastructure.email.PooledJavaMailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Properties;
+
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfig {
+
+    // Substitui o JavaMailSenderImpl do auto-configure, mantendo as mesmas propriedades spring.mail.*
+    @Bean
+    @ConditionalOnProperty(prefix = "notification.mail.pool", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public JavaMailSenderImpl mailSender(MailProperties mailProperties, MailPoolProperties poolProperties, MeterRegistry meterRegistry) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(poolProperties, meterRegistry);
+
+        sender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            sender.setPort(mailProperties.getPort());
+        }
+        sender.setUsername(mailProperties.getUsername());
+        sender.setPassword(mailProperties.getPassword());
+        sender.setProtocol(mailProperties.getProtocol());
+        if (mailProperties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mailProperties.getDefaultEncoding().name());
+        }
+
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(mailProperties.getProperties());
+        sender.setJavaMailProperties(javaMailProperties);
+
+        return sender;
+    }
+}
@@ -0,0 +1,27 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Pool de conexoes SMTP autenticadas reaproveitadas entre envios.
+ *
+ * @param enabled usa o pool no lugar de uma conexao nova por email
+ * @param size numero maximo de conexoes abertas ao mesmo tempo
+ * @param maxMessagesPerConnection reciclar a conexao depois desse numero de mensagens
+ * @param validateAfterIdle conexoes paradas ha mais tempo que isso recebem um NOOP antes de serem usadas
+ * @param maxIdle conexoes paradas ha mais tempo que isso sao fechadas
+ * @param borrowTimeout tempo maximo esperando uma conexao livre
+ */
+@ConfigurationProperties(prefix = "notification.mail.pool")
+public record MailPoolProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("8") int size,
+        @DefaultValue("100") int maxMessagesPerConnection,
+        @DefaultValue("5s") Duration validateAfterIdle,
+        @DefaultValue("60s") Duration maxIdle,
+        @DefaultValue("30s") Duration borrowTimeout
+) {
+}
@@ -0,0 +1,62 @@
+package com.undercontroll.infrastructure.config;
+
+import com.undercontroll.application.port.EmailOutbox;
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.infrastructure.outbox.DirectEmailOutbox;
+import com.undercontroll.infrastructure.outbox.MappedEmailOutbox;
+import com.undercontroll.infrastructure.outbox.OutboxDeadLetters;
+import com.undercontroll.infrastructure.outbox.OutboxLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+
+@Configuration
+public class OutboxConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "notification.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxLog outboxLog(OutboxProperties properties) throws IOException {
+        return new OutboxLog(
+                properties.directory(),
+                Math.toIntExact(properties.segmentSize().toBytes()),
+                properties.fsync()
+        );
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "notification.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public EmailOutbox mappedEmailOutbox(
+            OutboxLog outboxLog,
+            EmailService emailService,
+            RetryProperties retryProperties,
+            OutboxProperties properties,
+            OutboxDeadLetters deadLetters,
+            MeterRegistry meterRegistry,
+            Environment environment
+    ) {
+        return new MappedEmailOutbox(
+                outboxLog,
+                emailService,
+                retryProperties,
+                properties,
+                deadLetters,
+                meterRegistry,
+                Threading.VIRTUAL.isActive(environment)
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "notification.outbox", name = "enabled", havingValue = "false")
+    public EmailOutbox directEmailOutbox(
+            EmailService emailService,
+            RetryProperties retryProperties,
+            OutboxDeadLetters deadLetters
+    ) {
+        return new DirectEmailOutbox(emailService, retryProperties, deadLetters);
+    }
+}
@@ -0,0 +1,31 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Outbox local dos emails de boas-vindas ja aceitos do broker e ainda nao enviados.
+ *
+ * @param enabled desligado, o envio acontece na thread do listener, antes do ack
+ * @param directory diretorio dos segmentos e do checkpoint, no disco local de cada replica
+ * @param segmentSize tamanho de cada segmento mapeado; uma entrada precisa caber inteira em um segmento
+ * @param senders threads que esvaziam o outbox em paralelo
+ * @param batchSize envelopes por envio no transporte
+ * @param fsync forca o disco antes de liberar o ack e a cada checkpoint
+ * @param checkpointInterval frequencia com que o progresso e gravado e segmentos antigos sao apagados
+ */
+@ConfigurationProperties(prefix = "notification.outbox")
+public record OutboxProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/outbox") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("4") int senders,
+        @DefaultValue("20") int batchSize,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("1s") Duration checkpointInterval
+) {
+}
@@ -1,14 +1,29 @@
 package com.undercontroll.infrastructure.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.amqp.DirectRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.undercontroll.infrastructure.messaging.retry.TieredRetryRecoverer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
 @Configuration
 public class RabbitMQConfig {
 
@@ -16,31 +31,176 @@ public class RabbitMQConfig {
     public static final String NOTIFICATION_EXCHANGE = "notification.events";
     public static final String RETRY_EXCHANGE = "notification.retry";
     public static final String DLQ_EXCHANGE = "notification.dlq";
+    // As filas de espera expiram aqui, e a routing key "<tier>.<fila de origem>" devolve a mensagem a origem
+    public static final String RETRY_RETURN_EXCHANGE = "notification.retry.return";
+    public static final String RETRY_TIER_QUEUE_PREFIX = "notification.email.retry.";
 
+    // Fila compartilhada antiga: nao recebe mais eventos, continua declarada so para drenar o que restou
     public static final String EMAIL_QUEUE = "notification.email.queue";
     public static final String EMAIL_RETRY_QUEUE = "notification.email.retry.queue";
     public static final String EMAIL_DLQ = "notification.email.dlq";
 
+    public static final String ANNOUNCEMENT_QUEUE = "notification.email.announcement.queue";
+    public static final String ANNOUNCEMENT_RETRY_QUEUE = "notification.email.announcement.retry.queue";
+    public static final String ANNOUNCEMENT_DLQ = "notification.email.announcement.dlq";
+
+    public static final String USER_QUEUE = "notification.email.user.queue";
+    public static final String USER_RETRY_QUEUE = "notification.email.user.retry.queue";
+    public static final String USER_DLQ = "notification.email.user.dlq";
+
+    // Segunda etapa dos anuncios: fatias de destinatarios, consumidas por um unico consumidor ativo
+    public static final String DELIVERY_QUEUE = "notification.email.delivery.queue";
+    public static final String DELIVERY_RETRY_QUEUE = "notification.email.delivery.retry.queue";
+    public static final String DELIVERY_DLQ = "notification.email.delivery.dlq";
+
 
     public static final String EMAIL_SEND_ROUTING = "email.send";
     public static final String EMAIL_RETRY_ROUTING = "email.retry";
     public static final String EMAIL_DLQ_ROUTING = "email.dlq";
 
+    public static final String ANNOUNCEMENT_RETRY_ROUTING = "email.announcement.retry";
+    public static final String ANNOUNCEMENT_DLQ_ROUTING = "email.announcement.dlq";
+    public static final String USER_RETRY_ROUTING = "email.user.retry";
+    public static final String USER_DLQ_ROUTING = "email.user.dlq";
+    public static final String DELIVERY_ROUTING = "email.delivery";
+    public static final String DELIVERY_RETRY_ROUTING = "email.delivery.retry";
+    public static final String DELIVERY_DLQ_ROUTING = "email.delivery.dlq";
+
     public static final String ANNOUNCEMENT_EVENTS = "announcement.*";
     public static final String USER_EVENTS = "user.*";
 
+    // DLQ de cada fila de trabalho; filas desconhecidas caem em notification.email.dlq
+    public static final Map<String, String> DLQ_ROUTING_BY_QUEUE = Map.of(
+            EMAIL_QUEUE, EMAIL_DLQ_ROUTING,
+            ANNOUNCEMENT_QUEUE, ANNOUNCEMENT_DLQ_ROUTING,
+            USER_QUEUE, USER_DLQ_ROUTING,
+            DELIVERY_QUEUE, DELIVERY_DLQ_ROUTING
+    );
+
+    private static final int RETRY_DELAY_MS = 10000;
+
     @Bean
     public Jackson2JsonMessageConverter jackson2JsonMessageConverter(ObjectMapper objectMapper) {
         return new Jackson2JsonMessageConverter(objectMapper);
     }
 
+    // Consumidores, prefetch e tipo de container vem de spring.rabbitmq.listener.* (type: simple | direct)
+    @Bean
+    public AbstractRabbitListenerContainerFactory<?> rabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            Jackson2JsonMessageConverter converter,
+            RabbitProperties rabbitProperties,
+            SimpleRabbitListenerContainerFactoryConfigurer simpleConfigurer,
+            DirectRabbitListenerContainerFactoryConfigurer directConfigurer,
+            TieredRetryRecoverer retryRecoverer) {
+        return createContainerFactory(connectionFactory, converter, rabbitProperties, simpleConfigurer, directConfigurer, retryRecoverer);
+    }
+
+    @Bean
+    public AbstractRabbitListenerContainerFactory<?> announcementListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            Jackson2JsonMessageConverter converter,
+            RabbitProperties rabbitProperties,
+            SimpleRabbitListenerContainerFactoryConfigurer simpleConfigurer,
+            DirectRabbitListenerContainerFactoryConfigurer directConfigurer,
+            ListenerPoolProperties pools,
+            TieredRetryRecoverer retryRecoverer) {
+        return withPool(
+                createContainerFactory(connectionFactory, converter, rabbitProperties, simpleConfigurer, directConfigurer, retryRecoverer),
+                pools.announcement()
+        );
+    }
+
+    @Bean
+    public AbstractRabbitListenerContainerFactory<?> userListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            Jackson2JsonMessageConverter converter,
+            RabbitProperties rabbitProperties,
+            SimpleRabbitListenerContainerFactoryConfigurer simpleConfigurer,
+            DirectRabbitListenerContainerFactoryConfigurer directConfigurer,
+            ListenerPoolProperties pools,
+            TieredRetryRecoverer retryRecoverer) {
+        return asBatch(withPool(
+                createContainerFactory(connectionFactory, converter, rabbitProperties, simpleConfigurer, directConfigurer, retryRecoverer),
+                pools.user()
+        ), pools.user());
+    }
+
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+    public AbstractRabbitListenerContainerFactory<?> deliveryListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            Jackson2JsonMessageConverter converter,
+            RabbitProperties rabbitProperties,
+            SimpleRabbitListenerContainerFactoryConfigurer simpleConfigurer,
+            DirectRabbitListenerContainerFactoryConfigurer directConfigurer,
+            ListenerPoolProperties pools,
+            TieredRetryRecoverer retryRecoverer) {
+        return withPool(
+                createContainerFactory(connectionFactory, converter, rabbitProperties, simpleConfigurer, directConfigurer, retryRecoverer),
+                pools.delivery()
+        );
+    }
+
+    private static AbstractRabbitListenerContainerFactory<?> createContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter converter) {
-        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
-        factory.setConnectionFactory(connectionFactory);
+            Jackson2JsonMessageConverter converter,
+            RabbitProperties rabbitProperties,
+            SimpleRabbitListenerContainerFactoryConfigurer simpleConfigurer,
+            DirectRabbitListenerContainerFactoryConfigurer directConfigurer,
+            TieredRetryRecoverer retryRecoverer) {
+        AbstractRabbitListenerContainerFactory<?> factory;
+        if (rabbitProperties.getListener().getType() == RabbitProperties.ContainerType.DIRECT) {
+            DirectRabbitListenerContainerFactory direct = new DirectRabbitListenerContainerFactory();
+            directConfigurer.configure(direct, connectionFactory);
+            factory = direct;
+        } else {
+            SimpleRabbitListenerContainerFactory simple = new SimpleRabbitListenerContainerFactory();
+            simpleConfigurer.configure(simple, connectionFactory);
+            factory = simple;
+        }
+
+        // Com spring.threads.virtual.enabled os configurers do Boot ja trazem um executor de threads virtuais,
+        // entao consumidores, chamadas Feign e envios feitos no listener rodam em threads virtuais
         factory.setMessageConverter(converter);
+        // Uma unica tentativa local: a falha vai para o recoverer, que republica no tier de espera ou na DLQ
+        // e confirma a original, em vez de rejeitar e cair no loop de requeue
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(1)
+                .recoverer(retryRecoverer)
+                .build());
+        return factory;
+    }
+
+    private static AbstractRabbitListenerContainerFactory<?> withPool(
+            AbstractRabbitListenerContainerFactory<?> factory,
+            ListenerPoolProperties.Pool pool) {
+        factory.setPrefetchCount(pool.prefetch());
+
+        if (factory instanceof SimpleRabbitListenerContainerFactory simple) {
+            simple.setConcurrentConsumers(pool.concurrency());
+            simple.setMaxConcurrentConsumers(Math.max(pool.concurrency(), pool.maxConcurrency()));
+        } else if (factory instanceof DirectRabbitListenerContainerFactory direct) {
+            direct.setConsumersPerQueue(pool.concurrency());
+        }
+
+        return factory;
+    }
+
+    // Listener recebe List<EmailEvent>; o ack sai uma vez por lote. O container direct nao agrupa
+    // no consumidor, entao nele cada mensagem chega como uma lista de um elemento.
+    private static AbstractRabbitListenerContainerFactory<?> asBatch(
+            AbstractRabbitListenerContainerFactory<?> factory,
+            ListenerPoolProperties.Pool pool) {
+        factory.setBatchListener(true);
+
+        if (factory instanceof SimpleRabbitListenerContainerFactory simple) {
+            simple.setConsumerBatchEnabled(true);
+            simple.setBatchSize(Math.max(1, pool.batchSize()));
+            simple.setReceiveTimeout(pool.receiveTimeout().toMillis());
+            // O prefetch precisa comportar o lote inteiro, senao o consumidor espera o timeout a cada lote
+            simple.setPrefetchCount(Math.max(pool.prefetch(), pool.batchSize()));
+        }
+
         return factory;
     }
 
@@ -50,6 +210,19 @@ public class RabbitMQConfig {
         return new RabbitAdmin(connectionFactory);
     }
 
+    // O RabbitAdmin so cria bindings; as da fila compartilhada antiga precisam ser removidas explicitamente
+    @Bean
+    public ApplicationRunner legacyEmailQueueUnbinder(RabbitAdmin rabbitAdmin) {
+        return args -> {
+            try {
+                rabbitAdmin.removeBinding(new Binding(EMAIL_QUEUE, Binding.DestinationType.QUEUE, NOTIFICATION_EXCHANGE, ANNOUNCEMENT_EVENTS, null));
+                rabbitAdmin.removeBinding(new Binding(EMAIL_QUEUE, Binding.DestinationType.QUEUE, NOTIFICATION_EXCHANGE, USER_EVENTS, null));
+            } catch (Exception e) {
+                log.warn("Could not remove legacy bindings of {}: {}", EMAIL_QUEUE, e.getMessage());
+            }
+        };
+    }
+
     @Bean
     public TopicExchange notificationExchange() {
         return new TopicExchange(NOTIFICATION_EXCHANGE);
@@ -78,7 +251,7 @@ public class RabbitMQConfig {
     @Bean
     public Queue emailRetryQueue() {
         return QueueBuilder.durable(EMAIL_RETRY_QUEUE)
-                .withArgument("x-message-ttl", 10000) // 10s
+                .withArgument("x-message-ttl", RETRY_DELAY_MS) // 10s
                 .withArgument("x-dead-letter-exchange", NOTIFICATION_EXCHANGE)
                 .withArgument("x-dead-letter-routing-key", EMAIL_SEND_ROUTING)
                 .build();
@@ -90,21 +263,134 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    public Binding emailBinding(Queue emailQueue, TopicExchange notificationExchange) {
+    public Queue announcementQueue() {
+        return workQueue(ANNOUNCEMENT_QUEUE, ANNOUNCEMENT_RETRY_ROUTING);
+    }
+
+    @Bean
+    public Queue announcementRetryQueue() {
+        return retryQueue(ANNOUNCEMENT_RETRY_QUEUE, ANNOUNCEMENT_QUEUE);
+    }
+
+    @Bean
+    public Queue announcementDlq() {
+        return QueueBuilder.durable(ANNOUNCEMENT_DLQ).build();
+    }
+
+    @Bean
+    public Queue userQueue() {
+        return workQueue(USER_QUEUE, USER_RETRY_ROUTING);
+    }
+
+    @Bean
+    public Queue userRetryQueue() {
+        return retryQueue(USER_RETRY_QUEUE, USER_QUEUE);
+    }
+
+    @Bean
+    public Queue userDlq() {
+        return QueueBuilder.durable(USER_DLQ).build();
+    }
+
+    // O ledger de entregas e um arquivo local de cada replica: com um so consumidor ativo no cluster, toda
+    // reentrega de uma fatia cai no mesmo ledger que registrou o envio. As outras replicas ficam de reserva
+    // e assumem se ele cair. A fila nasceu com esse argumento, entao o declare nao conflita
+    @Bean
+    public Queue deliveryQueue() {
+        return QueueBuilder.durable(DELIVERY_QUEUE)
+                .withArgument("x-dead-letter-exchange", RETRY_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", DELIVERY_RETRY_ROUTING)
+                .singleActiveConsumer()
+                .build();
+    }
+
+    @Bean
+    public Queue deliveryRetryQueue() {
+        return retryQueue(DELIVERY_RETRY_QUEUE, DELIVERY_QUEUE);
+    }
+
+    @Bean
+    public Queue deliveryDlq() {
+        return QueueBuilder.durable(DELIVERY_DLQ).build();
+    }
+
+    // Os argumentos sao os mesmos de quando as filas foram criadas: mudar x-arguments de uma fila duravel
+    // existente derruba o declare com PRECONDITION_FAILED. Retries normais passam pelo TieredRetryRecoverer;
+    // so rejeicoes fora dele (ex.: recoverer indisponivel) usam o DLX e a fila de 10s de cada tipo
+    private static Queue workQueue(String name, String retryRouting) {
+        return QueueBuilder.durable(name)
+                .withArgument("x-dead-letter-exchange", RETRY_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", retryRouting)
+                .build();
+    }
+
+    // Depois do TTL a mensagem volta pela exchange padrao direto para a fila de origem. O x-death que ela
+    // acumula aqui e contado pelo TieredRetryRecoverer, entao esse caminho tambem termina na DLQ
+    private static Queue retryQueue(String name, String workQueue) {
+        return QueueBuilder.durable(name)
+                .withArgument("x-message-ttl", RETRY_DELAY_MS)
+                .withArgument("x-dead-letter-exchange", "")
+                .withArgument("x-dead-letter-routing-key", workQueue)
+                .build();
+    }
+
+    @Bean
+    public TopicExchange retryReturnExchange() {
+        return new TopicExchange(RETRY_RETURN_EXCHANGE);
+    }
+
+    /**
+     * Uma fila de espera por atraso configurado (ex.: notification.email.retry.1m), ligada em
+     * {@code notification.retry} por {@code "<tier>.#"}. Sem consumidores: a mensagem expira pelo TTL e
+     * volta pela {@code notification.retry.return} mantendo a routing key original.
+     */
+    @Bean
+    public Declarables retryTiers(RetryProperties retryProperties) {
+        List<Declarable> declarables = new ArrayList<>();
+
+        for (var delay : retryProperties.delays()) {
+            String tier = RetryProperties.tier(delay);
+            Queue queue = QueueBuilder.durable(RETRY_TIER_QUEUE_PREFIX + tier)
+                    .withArgument("x-message-ttl", delay.toMillis())
+                    .withArgument("x-dead-letter-exchange", RETRY_RETURN_EXCHANGE)
+                    .build();
+
+            declarables.add(queue);
+            declarables.add(new Binding(queue.getName(), Binding.DestinationType.QUEUE, RETRY_EXCHANGE, tier + ".#", null));
+        }
+
+        // "*.<fila>" casa com qualquer tier e devolve a mensagem apenas para a fila de onde ela falhou
+        for (String workQueue : DLQ_ROUTING_BY_QUEUE.keySet()) {
+            declarables.add(new Binding(workQueue, Binding.DestinationType.QUEUE, RETRY_RETURN_EXCHANGE, "*." + workQueue, null));
+        }
+
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public Binding announcementBinding(Queue announcementQueue, TopicExchange notificationExchange) {
         return BindingBuilder
-                .bind(emailQueue)
+                .bind(announcementQueue)
                 .to(notificationExchange)
                 .with(ANNOUNCEMENT_EVENTS);
     }
 
     @Bean
-    public Binding userCreatedBinding(Queue emailQueue, TopicExchange notificationExchange) {
+    public Binding userCreatedBinding(Queue userQueue, TopicExchange notificationExchange) {
         return BindingBuilder
-                .bind(emailQueue)
+                .bind(userQueue)
                 .to(notificationExchange)
                 .with(USER_EVENTS);
     }
 
+    @Bean
+    public Binding deliveryBinding(Queue deliveryQueue, TopicExchange notificationExchange) {
+        return BindingBuilder
+                .bind(deliveryQueue)
+                .to(notificationExchange)
+                .with(DELIVERY_ROUTING);
+    }
+
     @Bean
     public Binding retryBinding(Queue emailRetryQueue, TopicExchange retryExchange) {
         return BindingBuilder
@@ -113,6 +399,30 @@ public class RabbitMQConfig {
                 .with(EMAIL_RETRY_ROUTING);
     }
 
+    @Bean
+    public Binding announcementRetryBinding(Queue announcementRetryQueue, TopicExchange retryExchange) {
+        return BindingBuilder
+                .bind(announcementRetryQueue)
+                .to(retryExchange)
+                .with(ANNOUNCEMENT_RETRY_ROUTING);
+    }
+
+    @Bean
+    public Binding userRetryBinding(Queue userRetryQueue, TopicExchange retryExchange) {
+        return BindingBuilder
+                .bind(userRetryQueue)
+                .to(retryExchange)
+                .with(USER_RETRY_ROUTING);
+    }
+
+    @Bean
+    public Binding deliveryRetryBinding(Queue deliveryRetryQueue, TopicExchange retryExchange) {
+        return BindingBuilder
+                .bind(deliveryRetryQueue)
+                .to(retryExchange)
+                .with(DELIVERY_RETRY_ROUTING);
+    }
+
     @Bean
     public Binding dlqBinding(Queue emailDlq, TopicExchange dlqExchange) {
         return BindingBuilder
@@ -120,4 +430,28 @@ public class RabbitMQConfig {
                 .to(dlqExchange)
                 .with(EMAIL_DLQ_ROUTING);
     }
+
+    @Bean
+    public Binding announcementDlqBinding(Queue announcementDlq, TopicExchange dlqExchange) {
+        return BindingBuilder
+                .bind(announcementDlq)
+                .to(dlqExchange)
+                .with(ANNOUNCEMENT_DLQ_ROUTING);
+    }
+
+    @Bean
+    public Binding userDlqBinding(Queue userDlq, TopicExchange dlqExchange) {
+        return BindingBuilder
+                .bind(userDlq)
+                .to(dlqExchange)
+                .with(USER_DLQ_ROUTING);
+    }
+
+    @Bean
+    public Binding deliveryDlqBinding(Queue deliveryDlq, TopicExchange dlqExchange) {
+        return BindingBuilder
+                .bind(deliveryDlq)
+                .to(dlqExchange)
+                .with(DELIVERY_DLQ_ROUTING);
+    }
 }
@@ -0,0 +1,25 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Cotas do provedor SMTP por conta remetente, aplicadas antes de cada envio.
+ *
+ * @param enabled desligado, os envios seguem direto para o transporte
+ * @param perMinute envios por minuto aceitos pelo provedor
+ * @param burst envios permitidos de uma vez dentro da cota por minuto
+ * @param perDay envios por dia aceitos pelo provedor, 0 desativa o limite diario
+ * @param maxWait espera maxima por um token; acima disso o envio e adiado para quando a cota libera, sem contar tentativa
+ */
+@ConfigurationProperties(prefix = "notification.mail.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("60") int perMinute,
+        @DefaultValue("10") int burst,
+        @DefaultValue("2000") int perDay,
+        @DefaultValue("30s") Duration maxWait
+) {
+}
@@ -0,0 +1,67 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Retry das mensagens que falharam no listener.
+ *
+ * @param delays espera antes de cada nova tentativa; uma fila de espera e declarada por valor
+ * @param maxAttempts tentativas no total, contando a primeira; depois disso a mensagem vai para a DLQ.
+ *                    Se houver mais tentativas que atrasos, o ultimo atraso se repete
+ */
+@ConfigurationProperties(prefix = "notification.retry")
+public record RetryProperties(
+        @DefaultValue({"10s", "1m", "10m"}) List<Duration> delays,
+        @DefaultValue("4") int maxAttempts
+) {
+
+    /**
+     * Atraso antes da proxima tentativa, depois de {@code failures} falhas; {@code null} quando deve ir para a DLQ.
+     */
+    public Duration delayAfter(int failures) {
+        if (failures >= maxAttempts || delays.isEmpty()) {
+            return null;
+        }
+
+        return delays.get(Math.min(failures, delays.size()) - 1);
+    }
+
+    /**
+     * Tier para uma espera que nao conta tentativa (limite de envio): o menor atraso que cobre
+     * {@code wait}; acima do maior, o maior, e a mensagem faz mais de uma volta ate a hora chegar.
+     */
+    public Duration tierFor(Duration wait) {
+        for (Duration delay : delays) {
+            if (delay.compareTo(wait) >= 0) {
+                return delay;
+            }
+        }
+
+        return longestDelay();
+    }
+
+    // Maior atraso configurado; null sem atrasos
+    public Duration longestDelay() {
+        return delays.stream().max(Duration::compareTo).orElse(null);
+    }
+
+    // Nome curto do tier usado na fila e na routing key: 10s, 1m, 10m, 1h
+    public static String tier(Duration delay) {
+        long millis = delay.toMillis();
+
+        if (millis % 3_600_000 == 0) {
+            return millis / 3_600_000 + "h";
+        }
+        if (millis % 60_000 == 0) {
+            return millis / 60_000 + "m";
+        }
+        if (millis % 1000 == 0) {
+            return millis / 1000 + "s";
+        }
+        return millis + "ms";
+    }
+}
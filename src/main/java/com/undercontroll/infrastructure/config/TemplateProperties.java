@@ -0,0 +1,19 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Origem dos templates de email.
+ *
+ * @param directory diretorio externo opcional; templates com o mesmo nome sobrescrevem os do classpath
+ * @param watch recarrega os templates do diretorio externo quando forem alterados, sem restart
+ */
+@ConfigurationProperties(prefix = "notification.templates")
+public record TemplateProperties(
+        Path directory,
+        @DefaultValue("false") boolean watch
+) {
+}
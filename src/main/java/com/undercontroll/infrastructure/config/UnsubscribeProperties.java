@@ -0,0 +1,17 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Links de descadastro dos anuncios.
+ *
+ * @param url    pagina que recebe {@code email} e {@code token} e conclui o descadastro
+ * @param secret chave do HMAC do token; a mesma precisa estar com quem valida o link
+ */
+@ConfigurationProperties(prefix = "notification.unsubscribe")
+public record UnsubscribeProperties(
+        @DefaultValue("https://www.comercialirmaospelluci.com.br/descadastro") String url,
+        String secret
+) {
+}
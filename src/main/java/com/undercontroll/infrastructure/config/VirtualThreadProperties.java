@@ -0,0 +1,19 @@
+package com.undercontroll.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Diagnostico do modo de threads virtuais, ligado por {@code spring.threads.virtual.enabled}.
+ *
+ * @param monitorPinning acompanha por JFR as threads virtuais que prendem a carrier durante a execucao
+ * @param pinnedThreshold pinagens mais curtas que isso sao ignoradas
+ */
+@ConfigurationProperties(prefix = "notification.threads")
+public record VirtualThreadProperties(
+        @DefaultValue("true") boolean monitorPinning,
+        @DefaultValue("20ms") Duration pinnedThreshold
+) {
+}
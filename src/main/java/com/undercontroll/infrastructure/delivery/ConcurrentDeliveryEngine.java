@@ -0,0 +1,199 @@
+package com.undercontroll.infrastructure.delivery;
+
+import com.undercontroll.application.port.DeliveryEngine;
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryReport;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.infrastructure.config.DeliveryProperties;
+import com.undercontroll.infrastructure.threads.WorkerExecutors;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Divide os envios em lotes e distribui os lotes em um pool limitado. O produtor so submete um
+ * novo lote quando ha vaga (semaforo com {@code maxConcurrency} permissoes), e cada dominio de
+ * destino tem seu proprio token bucket para nao estourar o limite dos servidores de recebimento.
+ * Passando de {@code MAX_TRACKED_HOSTS} dominios, os buckets ociosos (cheios, iguais a um novo) saem
+ * do mapa, que assim acompanha so os dominios com envio recente.
+ */
+@Slf4j
+@Component
+public class ConcurrentDeliveryEngine implements DeliveryEngine {
+
+    static final int MAX_TRACKED_HOSTS = 10_000;
+
+    private final EmailService emailService;
+    private final DeliveryProperties properties;
+    private final ExecutorService executor;
+    private final Map<String, TokenBucket> hostLimiters = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    @Autowired
+    public ConcurrentDeliveryEngine(EmailService emailService, DeliveryProperties properties, Environment environment) {
+        this(emailService, properties, Threading.VIRTUAL.isActive(environment));
+    }
+
+    public ConcurrentDeliveryEngine(EmailService emailService, DeliveryProperties properties) {
+        this(emailService, properties, false);
+    }
+
+    public ConcurrentDeliveryEngine(EmailService emailService, DeliveryProperties properties, boolean virtualThreads) {
+        this.emailService = emailService;
+        this.properties = properties;
+        this.executor = WorkerExecutors.newPool("email-delivery-", properties.maxConcurrency(), virtualThreads);
+    }
+
+    @Override
+    public DeliveryReport deliver(List<EmailEnvelope> envelopes) {
+        return dispatch(envelopes, EmailEnvelope::to, emailService::sendBatch);
+    }
+
+    @Override
+    public DeliveryReport broadcast(String subject, String body, List<String> recipients) {
+        return dispatch(recipients, Function.identity(), batch -> emailService.sendBroadcast(subject, body, batch));
+    }
+
+    @Override
+    public DeliveryReport personalize(String subject, EmailTemplate body, List<Personalization> recipients) {
+        return dispatch(recipients, Personalization::to, batch -> emailService.sendPersonalized(subject, body, batch));
+    }
+
+    private <T> DeliveryReport dispatch(
+            List<T> items,
+            Function<T, String> recipientOf,
+            Function<List<T>, List<DeliveryResult>> sender
+    ) {
+        if (items == null || items.isEmpty()) {
+            return DeliveryReport.empty();
+        }
+
+        int permits = properties.maxConcurrency();
+        Semaphore inFlight = new Semaphore(permits);
+        AtomicInteger sent = new AtomicInteger();
+        List<DeliveryResult> failures = new ArrayList<>();
+        List<DeliveryResult> deferrals = new ArrayList<>();
+
+        int batchSize = Math.max(1, properties.batchSize());
+
+        for (int start = 0; start < items.size(); start += batchSize) {
+            List<T> batch = items.subList(start, Math.min(start + batchSize, items.size()));
+
+            inFlight.acquireUninterruptibly();
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        for (DeliveryResult result : send(batch, recipientOf, sender)) {
+                            if (result.success()) {
+                                sent.incrementAndGet();
+                            } else if (result.deferred()) {
+                                synchronized (deferrals) {
+                                    deferrals.add(result);
+                                }
+                            } else {
+                                synchronized (failures) {
+                                    failures.add(result);
+                                }
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        // Espera os envios em andamento terminarem
+        inFlight.acquireUninterruptibly(permits);
+
+        return new DeliveryReport(items.size(), sent.get(), failures.size(), List.copyOf(failures), List.copyOf(deferrals));
+    }
+
+    private <T> List<DeliveryResult> send(
+            List<T> batch,
+            Function<T, String> recipientOf,
+            Function<List<T>, List<DeliveryResult>> sender
+    ) {
+        try {
+            batch.forEach(item -> throttle(recipientOf.apply(item)));
+
+            List<DeliveryResult> results = sender.apply(batch);
+
+            results.stream()
+                    .filter(result -> !result.success() && !result.deferred())
+                    .forEach(result -> log.error("Failed to send email to {}: {}", result.recipient(), result.error()));
+
+            return results;
+        } catch (Exception e) {
+            log.error("Failed to send batch of {} emails", batch.size(), e);
+
+            return batch.stream()
+                    .map(item -> DeliveryResult.failed(recipientOf.apply(item), e.getMessage()))
+                    .toList();
+        }
+    }
+
+    private void throttle(String recipient) {
+        if (properties.perHostRate() <= 0) {
+            return;
+        }
+
+        TokenBucket limiter = hostLimiters
+                .computeIfAbsent(hostOf(recipient), host -> new TokenBucket(properties.perHostRate(), properties.perHostBurst()));
+
+        if (hostLimiters.size() > MAX_TRACKED_HOSTS) {
+            sweepIdleHosts();
+        }
+
+        limiter.acquire();
+    }
+
+    // Uma thread varre por vez; as outras seguem com o bucket que ja tem
+    private void sweepIdleHosts() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            hostLimiters.values().removeIf(TokenBucket::isIdle);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    int trackedHosts() {
+        return hostLimiters.size();
+    }
+
+    private static String hostOf(String recipient) {
+        int at = recipient.lastIndexOf('@');
+
+        return at < 0 ? "" : recipient.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
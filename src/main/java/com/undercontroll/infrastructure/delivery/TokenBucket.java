@@ -0,0 +1,99 @@
+package com.undercontroll.infrastructure.delivery;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket sem locks, no formato GCRA: o estado e apenas o instante teorico de chegada do
+ * proximo envio, atualizado via CAS. Cada chamada reserva um token e espera somente o necessario.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserva um token e retorna quantos nanos o chamador precisa esperar para usa-lo.
+     */
+    public long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, now);
+
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return Math.max(0, arrival - now - toleranceNanos);
+            }
+        }
+    }
+
+    /**
+     * Consome um token apenas se ele estiver disponivel agora, sem esperar.
+     */
+    public boolean tryAcquire() {
+        return tryReserve(0) == 0;
+    }
+
+    /**
+     * Reserva um token somente se a espera por ele nao passar de {@code maxWaitNanos}.
+     *
+     * @return nanos a esperar pelo token reservado, ou -1 quando nada foi reservado
+     */
+    public long tryReserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, now);
+            long wait = Math.max(0, arrival - now - toleranceNanos);
+
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Nanos ate o proximo token ficar livre, sem reservar nada; 0 quando ja ha token.
+     */
+    public long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        return Math.max(0, Math.max(theoreticalArrival.get(), now) - now - toleranceNanos);
+    }
+
+    /**
+     * Sem reserva pendente o bucket esta cheio e equivale a um recem-criado, entao pode ser descartado.
+     */
+    public boolean isIdle() {
+        return theoreticalArrival.get() <= System.nanoTime();
+    }
+
+    // Intervalo entre dois tokens na taxa configurada
+    public long intervalNanos() {
+        return intervalNanos;
+    }
+
+    public void acquire() {
+        long deadline = System.nanoTime() + reserve();
+
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.undercontroll.infrastructure.email;
+
+import jakarta.mail.Address;
+import jakarta.mail.Header;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * MimeMessage que reaproveita o corpo ja codificado de um {@link EncodedBroadcast} ou {@link EncodedTemplate}.
+ * Apenas os cabecalhos sao montados por destinatario; as partes do corpo sao escritas em sequencia
+ * direto no transporte.
+ */
+class BroadcastMimeMessage extends MimeMessage {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final byte[][] encodedBody;
+
+    BroadcastMimeMessage(Session session, List<Header> headers, Address to, byte[]... encodedBody) throws MessagingException {
+        super(session);
+
+        for (Header header : headers) {
+            addHeader(header.getName(), header.getValue());
+        }
+
+        setRecipient(RecipientType.TO, to);
+        this.encodedBody = encodedBody;
+    }
+
+    @Override
+    protected void updateHeaders() throws MessagingException {
+        // Content-Type e Content-Transfer-Encoding ja vieram prontos do prototipo
+        setHeader("MIME-Version", "1.0");
+        updateMessageID();
+    }
+
+    @Override
+    public void writeTo(OutputStream os, String[] ignoreList) throws IOException, MessagingException {
+        if (!saved) {
+            saveChanges();
+        }
+
+        Enumeration<String> lines = getNonMatchingHeaderLines(ignoreList);
+        while (lines.hasMoreElements()) {
+            os.write(lines.nextElement().getBytes(StandardCharsets.UTF_8));
+            os.write(CRLF);
+        }
+
+        os.write(CRLF);
+        for (byte[] part : encodedBody) {
+            os.write(part);
+        }
+        os.flush();
+    }
+}
@@ -0,0 +1,62 @@
+package com.undercontroll.infrastructure.email;
+
+import jakarta.mail.Header;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetHeaders;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mensagem ja codificada (multipart, quoted-printable/base64) pronta para ser reenviada a varios
+ * destinatarios: os cabecalhos compartilhados e os bytes do corpo sao calculados uma unica vez.
+ */
+record EncodedBroadcast(
+        String subject,
+        String body,
+        List<Header> headers,
+        byte[] encodedBody
+) {
+
+    // Cabecalhos que variam por destinatario e nao entram no prototipo
+    private static final String[] PER_RECIPIENT_HEADERS = {"Message-ID", "To", "Cc", "Bcc", "Date"};
+
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    static EncodedBroadcast encode(MimeMessage prototype, String subject, String body)
+            throws MessagingException, IOException {
+        prototype.saveChanges();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length() + 1024);
+        prototype.writeTo(out, PER_RECIPIENT_HEADERS);
+        byte[] raw = out.toByteArray();
+
+        int bodyStart = indexOf(raw, HEADER_END) + HEADER_END.length;
+
+        InternetHeaders parsed = new InternetHeaders(new ByteArrayInputStream(raw, 0, bodyStart));
+        List<Header> headers = new ArrayList<>();
+        Collections.list(parsed.getAllHeaders()).forEach(headers::add);
+
+        return new EncodedBroadcast(subject, body, List.copyOf(headers), Arrays.copyOfRange(raw, bodyStart, raw.length));
+    }
+
+    static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+
+        throw new IllegalStateException("Pattern not found in encoded message");
+    }
+}
@@ -0,0 +1,55 @@
+package com.undercontroll.infrastructure.email;
+
+import jakarta.mail.MessagingException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ultimas mensagens codificadas, por conteudo (assunto + corpo). Fatias de anuncios diferentes chegam
+ * intercaladas nos listeners de entrega; com algumas entradas cada anuncio continua codificado uma vez
+ * por replica, e a memoria fica limitada a {@code maxEntries} corpos.
+ */
+final class EncodedCache<K, V> {
+
+    @FunctionalInterface
+    interface Encoder<V> {
+        V encode() throws MessagingException, IOException;
+    }
+
+    private final Map<K, V> entries;
+
+    EncodedCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(maxEntries + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // A codificacao roda fora do lock; duas threads com o mesmo conteudo podem codificar em dobro, sem erro
+    V get(K key, Encoder<V> encoder) throws MessagingException, IOException {
+        synchronized (entries) {
+            V cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        V encoded = encoder.encode();
+
+        synchronized (entries) {
+            entries.put(key, encoded);
+        }
+
+        return encoded;
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.domain.model.EmailTemplate;
+import jakarta.mail.Header;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template ja codificado em quoted-printable, trecho a trecho: cabecalhos, o multipart em volta do HTML
+ * e cada literal do template sao calculados uma vez. Por destinatario so os valores dos placeholders
+ * sao codificados, e a mensagem referencia os mesmos arrays, sem copiar o HTML.
+ * <p>
+ * Os trechos sao separados por quebras de linha suaves ({@code =CRLF}), que somem na decodificacao:
+ * cada trecho comeca na coluna zero e pode ser codificado sem saber o que vem antes.
+ */
+record EncodedTemplate(
+        String subject,
+        EmailTemplate template,
+        List<Header> headers,
+        byte[] prefix,
+        byte[][] literals,
+        String[] placeholders,
+        byte[] suffix
+) {
+
+    // Fica no lugar do HTML no prototipo; o que vem antes e depois dele no corpo codificado e o multipart
+    static final String BODY_MARKER = "notification-template-body";
+
+    private static final byte[] SOFT_BREAK = {'=', '\r', '\n'};
+
+    static EncodedTemplate encode(MimeMessage prototype, String subject, EmailTemplate template)
+            throws MessagingException, IOException {
+        EncodedBroadcast shell = EncodedBroadcast.encode(prototype, subject, BODY_MARKER);
+
+        byte[] body = shell.encodedBody();
+        byte[] marker = BODY_MARKER.getBytes(StandardCharsets.US_ASCII);
+        int markerStart = EncodedBroadcast.indexOf(body, marker);
+
+        List<String> literals = template.literals();
+        byte[][] encoded = new byte[literals.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = quotedPrintable(literals.get(i));
+        }
+
+        return new EncodedTemplate(
+                subject,
+                template,
+                shell.headers(),
+                Arrays.copyOfRange(body, 0, markerStart),
+                encoded,
+                template.placeholders().toArray(String[]::new),
+                Arrays.copyOfRange(body, markerStart + marker.length, body.length)
+        );
+    }
+
+    /**
+     * Partes do corpo na ordem de escrita. So os valores sao novos; prefixo, literais e sufixo sao os
+     * arrays compartilhados. Placeholder sem valor volta como estava, igual ao {@link EmailTemplate#render}.
+     */
+    byte[][] bodyFor(Map<String, String> values) throws MessagingException, IOException {
+        byte[][] parts = new byte[2 + literals.length + 3 * placeholders.length][];
+        int next = 0;
+
+        parts[next++] = prefix;
+        parts[next++] = literals[0];
+
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = values.get(placeholders[i]);
+
+            parts[next++] = SOFT_BREAK;
+            parts[next++] = quotedPrintable(value != null ? value : "{{" + placeholders[i] + "}}");
+            parts[next++] = SOFT_BREAK;
+            parts[next++] = literals[i + 1];
+        }
+
+        parts[next] = suffix;
+
+        return parts;
+    }
+
+    private static byte[] quotedPrintable(String text) throws MessagingException, IOException {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length + raw.length / 8 + 16);
+
+        try (OutputStream encoder = MimeUtility.encode(out, "quoted-printable")) {
+            encoder.write(raw);
+        }
+
+        return out.toByteArray();
+    }
+}
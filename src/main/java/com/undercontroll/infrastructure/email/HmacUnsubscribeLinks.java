@@ -0,0 +1,69 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.application.port.UnsubscribeLinks;
+import com.undercontroll.infrastructure.config.UnsubscribeProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Token = HMAC-SHA256 do email em minusculas, em base64 url. Nao expira e nao precisa de estado:
+ * quem recebe o link recalcula o HMAC com o mesmo segredo. Sem segredo configurado o link aponta so
+ * para a pagina de descadastro, sem email nem token, e o envio segue normalmente.
+ */
+@Slf4j
+@Component
+public class HmacUnsubscribeLinks implements UnsubscribeLinks {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final String url;
+    private final Mac prototype;
+
+    public HmacUnsubscribeLinks(UnsubscribeProperties properties) {
+        this.url = properties.url();
+
+        if (properties.secret() == null || properties.secret().isBlank()) {
+            log.warn("notification.unsubscribe.secret is not set, unsubscribe links will point to {} without a token", url);
+            this.prototype = null;
+            return;
+        }
+
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(properties.secret().getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+        }
+    }
+
+    @Override
+    public String linkFor(String email) {
+        if (prototype == null) {
+            return url;
+        }
+
+        return url + "?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8) + "&token=" + token(email);
+    }
+
+    String token(String email) {
+        byte[] digest = mac().doFinal(email.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    // Mac nao e thread-safe; o clone reaproveita a chave ja inicializada
+    private Mac mac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " provider does not support clone", e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.InlineImageProperties;
+import jakarta.activation.DataHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.internet.PreencodedMimeBodyPart;
+import jakarta.mail.util.ByteArrayDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imagens inline dos emails, carregadas e codificadas em base64 uma vez na subida. O Content-ID e o
+ * nome do arquivo sem extensao: {@code images/Logo_Pelluci_Branca.png} vira {@code cid:Logo_Pelluci_Branca}.
+ * <p>
+ * O que fica em cache sao os bytes ja codificados. Cada mensagem recebe uma parte propria, porque o
+ * JavaMail reescreve os cabecalhos das partes no {@code saveChanges}, mas ela so aponta para o mesmo
+ * array: nada e relido nem recodificado por email.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InlineImages {
+
+    private static final String CLASSPATH_DIRECTORY = "images/";
+
+    private final InlineImageProperties properties;
+    private final Map<String, EncodedImage> images = new ConcurrentHashMap<>();
+
+    private record EncodedImage(String contentId, String fileName, String contentType, byte[] base64) {
+    }
+
+    @PostConstruct
+    public void warmUp() throws IOException, MessagingException {
+        if (!properties.enabled()) {
+            log.info("Inline images disabled");
+            return;
+        }
+
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources("classpath*:" + CLASSPATH_DIRECTORY + "*");
+
+        for (Resource resource : resources) {
+            String fileName = resource.getFilename();
+            MediaType type = fileName == null ? null : MediaTypeFactory.getMediaType(fileName).orElse(null);
+
+            if (type == null || !"image".equals(type.getType())) {
+                continue;
+            }
+
+            byte[] original;
+            try (InputStream inputStream = resource.getInputStream()) {
+                original = inputStream.readAllBytes();
+            }
+
+            byte[] image = fit(original, type.getSubtype());
+            String contentId = fileName.substring(0, fileName.lastIndexOf('.'));
+
+            images.put(contentId, new EncodedImage(contentId, fileName, type.toString(), base64(image)));
+            log.info("Inline image cid:{} ready, {} KB (original {} KB)", contentId, image.length / 1024, original.length / 1024);
+        }
+    }
+
+    /**
+     * Partes inline das imagens referenciadas por {@code cid:} em algum dos trechos de HTML, prontas para
+     * entrar no multipart related da mensagem.
+     */
+    public List<MimeBodyPart> partsFor(List<String> html) throws MessagingException {
+        List<MimeBodyPart> parts = new ArrayList<>();
+
+        for (EncodedImage image : images.values()) {
+            String reference = "cid:" + image.contentId();
+
+            if (html.stream().anyMatch(fragment -> fragment.contains(reference))) {
+                parts.add(part(image));
+            }
+        }
+
+        return parts;
+    }
+
+    private static MimeBodyPart part(EncodedImage image) throws MessagingException {
+        PreencodedMimeBodyPart part = new PreencodedMimeBodyPart("base64");
+
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(image.base64(), image.contentType())));
+        // Sem o cabecalho o saveChanges varreria os bytes para escolher a codificacao
+        part.setHeader("Content-Transfer-Encoding", "base64");
+        part.setDisposition(Part.INLINE);
+        part.setContentID("<" + image.contentId() + ">");
+        part.setFileName(image.fileName());
+
+        return part;
+    }
+
+    // Reduz para maxWidth mantendo a proporcao; formato que o ImageIO nao le ou nao grava segue como veio
+    private byte[] fit(byte[] original, String format) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+
+        if (source == null || properties.maxWidth() <= 0 || source.getWidth() <= properties.maxWidth()) {
+            return original;
+        }
+
+        int width = properties.maxWidth();
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+
+        BufferedImage scaled = new BufferedImage(
+                width, height, source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB
+        );
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.drawImage(source.getScaledInstance(width, height, Image.SCALE_SMOOTH), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(scaled, format, out)) {
+            log.warn("No ImageIO writer for {}, keeping the original image", format);
+            return original;
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] base64(byte[] data) throws IOException, MessagingException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4 / 3 + data.length / 38 + 16);
+
+        try (OutputStream encoder = MimeUtility.encode(out, "base64")) {
+            encoder.write(data);
+        }
+
+        return out.toByteArray();
+    }
+}
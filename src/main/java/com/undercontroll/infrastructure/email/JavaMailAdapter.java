@@ -2,23 +2,86 @@ package com.undercontroll.infrastructure.email;
 
 import com.undercontroll.application.port.EmailService;
 import com.undercontroll.domain.exception.MailSendingException;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.infrastructure.config.MailAsyncProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import com.undercontroll.infrastructure.threads.WorkerExecutors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-@RequiredArgsConstructor
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @Service
 public class JavaMailAdapter implements EmailService {
 
 
     private final JavaMailSender mailSender;
+    private final MeterRegistry meterRegistry;
+    private final MailAsyncProperties asyncProperties;
+    private final InlineImages inlineImages;
 
     private static final String from = "furquimmsw@gmail.com";
 
+    // Poucos anuncios estao em envio ao mesmo tempo; o limite so segura a memoria dos corpos codificados
+    private static final int ENCODED_CACHE_SIZE = 16;
+
+    private record BroadcastKey(String subject, String body) {
+    }
+
+    private record TemplateKey(String subject, EmailTemplate template) {
+    }
+
+    private final EncodedCache<BroadcastKey, EncodedBroadcast> broadcasts = new EncodedCache<>(ENCODED_CACHE_SIZE);
+    private final EncodedCache<TemplateKey, EncodedTemplate> templates = new EncodedCache<>(ENCODED_CACHE_SIZE);
+
+    // Com threads virtuais a espera pelo SMTP nao segura thread de plataforma; sem elas, pool fixo
+    private final ExecutorService asyncExecutor;
+
+    @Autowired
+    public JavaMailAdapter(JavaMailSender mailSender, MeterRegistry meterRegistry, MailAsyncProperties asyncProperties,
+                           InlineImages inlineImages, Environment environment) {
+        this(mailSender, meterRegistry, asyncProperties, inlineImages, Threading.VIRTUAL.isActive(environment));
+    }
+
+    public JavaMailAdapter(JavaMailSender mailSender, MeterRegistry meterRegistry, MailAsyncProperties asyncProperties,
+                           InlineImages inlineImages) {
+        this(mailSender, meterRegistry, asyncProperties, inlineImages, false);
+    }
+
+    public JavaMailAdapter(JavaMailSender mailSender, MeterRegistry meterRegistry, MailAsyncProperties asyncProperties,
+                           InlineImages inlineImages, boolean virtualThreads) {
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.asyncProperties = asyncProperties;
+        this.inlineImages = inlineImages;
+        this.asyncExecutor = WorkerExecutors.newPool("email-async-", asyncProperties.threads(), virtualThreads);
+    }
+
     @Override
     public void sendEmail(
             String to,
@@ -28,22 +91,230 @@ public class JavaMailAdapter implements EmailService {
         log.info("Sending email to {}, subject {}", to, subject);
 
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(from);
-            helper.setTo(to);
-            helper.setSubject(subject);
-
-            helper.setText(body, true);
+            MimeMessage message = buildMessage(to, subject, body);
 
             mailSender.send(message);
+            recordResult(null);
 
         } catch (Exception e) {
+            recordResult(e);
             throw new MailSendingException(
                     "Houve um erro ao enviar o email para %s: %s".formatted(to, e.getMessage())
             );
         }
 
     }
+
+    @Override
+    public CompletableFuture<DeliveryResult> sendEmailAsync(String to, String subject, String body) {
+        CompletableFuture<DeliveryResult> result = new CompletableFuture<>();
+        DeliveryResult timedOut = DeliveryResult.failed(
+                to, "Timed out after %d ms".formatted(asyncProperties.timeout().toMillis())
+        );
+
+        Future<?> task = asyncExecutor.submit(() -> {
+            try {
+                sendEmail(to, subject, body);
+                result.complete(DeliveryResult.sent(to));
+            } catch (Exception e) {
+                result.complete(DeliveryResult.failed(to, e.getMessage()));
+            }
+        });
+
+        // Timeout ou cancelamento interrompem a thread do envio, o que fecha o socket do envio em andamento
+        result.completeOnTimeout(timedOut, asyncProperties.timeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((delivery, error) -> {
+                    if (delivery == timedOut || result.isCancelled()) {
+                        log.warn("Email to {} {}, interrupting send", to, result.isCancelled() ? "cancelled" : "timed out");
+                        task.cancel(true);
+                    }
+                });
+
+        return result;
+    }
+
+    @Override
+    public List<DeliveryResult> sendBatch(List<EmailEnvelope> envelopes) {
+        log.info("Sending batch of {} emails", envelopes.size());
+
+        return deliver(
+                envelopes.stream().map(EmailEnvelope::to).toList(),
+                i -> buildMessage(envelopes.get(i).to(), envelopes.get(i).subject(), envelopes.get(i).body())
+        );
+    }
+
+    @Override
+    public List<DeliveryResult> sendBroadcast(String subject, String body, List<String> recipients) {
+        log.info("Sending broadcast '{}' to {} recipients", subject, recipients.size());
+
+        EncodedBroadcast broadcast;
+        try {
+            broadcast = encoded(subject, body);
+        } catch (Exception e) {
+            log.error("Error while encoding broadcast '{}': {}", subject, e.getMessage());
+            return recipients.stream().map(to -> DeliveryResult.failed(to, e.getMessage())).toList();
+        }
+
+        Session session = session();
+
+        return deliver(
+                recipients,
+                i -> new BroadcastMimeMessage(session, broadcast.headers(), new InternetAddress(recipients.get(i)), broadcast.encodedBody())
+        );
+    }
+
+    @Override
+    public List<DeliveryResult> sendPersonalized(String subject, EmailTemplate body, List<Personalization> recipients) {
+        log.info("Sending personalized broadcast '{}' to {} recipients", subject, recipients.size());
+
+        EncodedTemplate template;
+        try {
+            template = encoded(subject, body);
+        } catch (Exception e) {
+            log.error("Error while encoding template '{}': {}", subject, e.getMessage());
+            return recipients.stream().map(recipient -> DeliveryResult.failed(recipient.to(), e.getMessage())).toList();
+        }
+
+        Session session = session();
+
+        return deliver(
+                recipients.stream().map(Personalization::to).toList(),
+                i -> new BroadcastMimeMessage(
+                        session,
+                        template.headers(),
+                        new InternetAddress(recipients.get(i).to()),
+                        template.bodyFor(recipients.get(i).values())
+                )
+        );
+    }
+
+    @FunctionalInterface
+    private interface MessageFactory {
+        MimeMessage create(int index) throws Exception;
+    }
+
+    // Monta uma mensagem por destinatario, envia todas em uma chamada e devolve o resultado na mesma ordem
+    private List<DeliveryResult> deliver(List<String> recipients, MessageFactory factory) {
+        DeliveryResult[] results = new DeliveryResult[recipients.size()];
+        List<MimeMessage> messages = new ArrayList<>(recipients.size());
+        List<Integer> positions = new ArrayList<>(recipients.size());
+
+        for (int i = 0; i < recipients.size(); i++) {
+            try {
+                messages.add(factory.create(i));
+                positions.add(i);
+            } catch (Exception e) {
+                recordResult(e);
+                results[i] = DeliveryResult.failed(recipients.get(i), e.getMessage());
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            Map<Object, Exception> failedMessages = send(messages);
+
+            for (int m = 0; m < messages.size(); m++) {
+                int position = positions.get(m);
+                String to = recipients.get(position);
+                Exception error = failedMessages.get(messages.get(m));
+                recordResult(error);
+
+                results[position] = error == null
+                        ? DeliveryResult.sent(to)
+                        : DeliveryResult.failed(to, error.getMessage());
+            }
+        }
+
+        return List.of(results);
+    }
+
+    // Os lotes de um mesmo anuncio chegam com a mesma instancia de corpo, entao o MIME e codificado uma vez
+    private EncodedBroadcast encoded(String subject, String body) throws MessagingException, IOException {
+        return broadcasts.get(new BroadcastKey(subject, body),
+                () -> EncodedBroadcast.encode(buildMessage(null, subject, body), subject, body));
+    }
+
+    private EncodedTemplate encoded(String subject, EmailTemplate body) throws MessagingException, IOException {
+        return templates.get(new TemplateKey(subject, body),
+                () -> EncodedTemplate.encode(buildTemplateMessage(subject, body), subject, body));
+    }
+
+    private Session session() {
+        return mailSender instanceof JavaMailSenderImpl impl ? impl.getSession() : null;
+    }
+
+    // Retorna as mensagens que falharam; se o lote inteiro falhar, todas entram no mapa
+    private Map<Object, Exception> send(List<MimeMessage> messages) {
+        try {
+            mailSender.send(messages.toArray(MimeMessage[]::new));
+            return Map.of();
+        } catch (MailSendException e) {
+            if (!e.getFailedMessages().isEmpty()) {
+                return e.getFailedMessages();
+            }
+            return allFailed(messages, e);
+        } catch (Exception e) {
+            log.error("Batch send failed: {}", e.getMessage());
+            return allFailed(messages, e);
+        }
+    }
+
+    // Contagem por resultado e pela causa da falha (tipo da excecao), para separar auth, conexao e destinatario
+    private void recordResult(Exception error) {
+        meterRegistry.counter(
+                "notification.email.results",
+                "outcome", error == null ? "success" : "failure",
+                "cause", error == null ? "none" : error.getClass().getSimpleName()
+        ).increment();
+    }
+
+    private static Map<Object, Exception> allFailed(List<MimeMessage> messages, Exception e) {
+        Map<Object, Exception> failed = new IdentityHashMap<>();
+        messages.forEach(message -> failed.put(message, e));
+        return failed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        asyncExecutor.shutdown();
+    }
+
+    private MimeMessage buildMessage(String to, String subject, String body) throws MessagingException {
+        MimeMessageHelper helper = newMessage(to, subject);
+
+        helper.setText(body, true);
+        attachInlineImages(helper, List.of(body));
+
+        return helper.getMimeMessage();
+    }
+
+    // O HTML vira um marcador; quoted-printable fixo porque so ele aceita trechos codificados separadamente
+    private MimeMessage buildTemplateMessage(String subject, EmailTemplate template) throws MessagingException {
+        MimeMessageHelper helper = newMessage(null, subject);
+
+        helper.setText(EncodedTemplate.BODY_MARKER, true);
+        helper.getMimeMultipart().getBodyPart(0).setHeader("Content-Transfer-Encoding", "quoted-printable");
+        attachInlineImages(helper, template.literals());
+
+        return helper.getMimeMessage();
+    }
+
+    // Entram no multipart related, ao lado do HTML, como o MimeMessageHelper.addInline faria
+    private void attachInlineImages(MimeMessageHelper helper, List<String> html) throws MessagingException {
+        for (MimeBodyPart part : inlineImages.partsFor(html)) {
+            helper.getMimeMultipart().addBodyPart(part);
+        }
+    }
+
+    private MimeMessageHelper newMessage(String to, String subject) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setFrom(from);
+        if (to != null) {
+            helper.setTo(to);
+        }
+        helper.setSubject(subject);
+
+        return helper;
+    }
 }
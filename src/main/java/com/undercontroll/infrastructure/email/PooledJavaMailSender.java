@@ -0,0 +1,100 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl} que envia pelas conexoes do {@link SmtpTransportPool} em vez de
+ * abrir e autenticar um {@code Transport} novo a cada chamada de {@code send}.
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final SmtpTransportPool pool;
+    private final Timer sent;
+    private final Timer failed;
+
+    public PooledJavaMailSender(MailPoolProperties properties, MeterRegistry meterRegistry) {
+        this.pool = new SmtpTransportPool(this::connectTransport, properties);
+        // Latencia de cada mensagem no servidor SMTP; os buckets de SLO vem de management.metrics.distribution
+        this.sent = meterRegistry.timer("notification.smtp.send", "outcome", "success");
+        this.failed = meterRegistry.timer("notification.smtp.send", "outcome", "failure");
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        for (int i = 0; i < mimeMessages.length; i++) {
+            MimeMessage mimeMessage = mimeMessages[i];
+            Object original = originalMessages != null ? originalMessages[i] : mimeMessage;
+
+            SmtpTransportPool.PooledTransport pooled;
+            try {
+                pooled = pool.borrow();
+            } catch (AuthenticationFailedException e) {
+                throw new MailAuthenticationException(e);
+            } catch (Exception e) {
+                // Sem conexao com o servidor: todas as mensagens restantes falham
+                for (int j = i; j < mimeMessages.length; j++) {
+                    failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], e);
+                }
+                throw new MailSendException("Mail server connection failed", e, failedMessages);
+            }
+
+            boolean broken = false;
+            long start = System.nanoTime();
+            try {
+                prepare(mimeMessage);
+
+                Address[] addresses = mimeMessage.getAllRecipients();
+                pooled.transport().sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                pooled.recordSent();
+                sent.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                broken = !pooled.transport().isConnected();
+                failedMessages.put(original, e);
+            } finally {
+                pool.release(pooled, broken);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private static void prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+
+        if (messageId != null) {
+            // Preserva um Message-ID definido pelo chamador
+            mimeMessage.setHeader("Message-ID", messageId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.close();
+    }
+}
@@ -0,0 +1,254 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.exception.RateLimitedException;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.infrastructure.config.RateLimitProperties;
+import com.undercontroll.infrastructure.delivery.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Ritma os envios dentro das cotas do provedor SMTP (por minuto e por dia) de cada conta remetente,
+ * evitando os 421/454 de throttling. Lotes saem em fatias: o que cabe na rajada vai junto e o resto
+ * espera o proprio slot. O que passaria de {@code maxWait} volta adiado, com a estimativa de quando a
+ * cota libera um slot ({@link DeliveryResult#deferred}), para ser reagendado sem contar tentativa em vez
+ * de segurar a thread.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "notification.mail.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitedEmailService implements EmailService {
+
+    static final String RATE_LIMITED = "Rate limit reached for sender account, deferred";
+
+    private final EmailService delegate;
+    private final RateLimitProperties properties;
+    private final String account;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimitedEmailService(JavaMailAdapter delegate, RateLimitProperties properties, MailProperties mailProperties, MeterRegistry meterRegistry) {
+        this(delegate, properties, mailProperties.getUsername(), meterRegistry);
+    }
+
+    RateLimitedEmailService(EmailService delegate, RateLimitProperties properties, String account, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.account = account != null ? account : "default";
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void sendEmail(String to, String subject, String body) {
+        Quota quota = quota();
+        long wait = quota.reserve(properties.maxWait().toNanos());
+        if (wait < 0) {
+            deferred(1);
+            throw new RateLimitedException(
+                    "Limite de envio da conta atingido, email para %s adiado".formatted(to),
+                    quota.retryAfter(0)
+            );
+        }
+
+        parkUntil(System.nanoTime() + wait);
+        delegate.sendEmail(to, subject, body);
+    }
+
+    // A espera pelo slot vira um agendamento em vez de uma thread parada
+    @Override
+    public CompletableFuture<DeliveryResult> sendEmailAsync(String to, String subject, String body) {
+        Quota quota = quota();
+        long wait = quota.reserve(properties.maxWait().toNanos());
+        if (wait < 0) {
+            deferred(1);
+            return CompletableFuture.completedFuture(DeliveryResult.deferred(to, RATE_LIMITED, quota.retryAfter(0)));
+        }
+
+        if (wait == 0) {
+            return delegate.sendEmailAsync(to, subject, body);
+        }
+
+        CompletableFuture<DeliveryResult> result = new CompletableFuture<>();
+
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+            // Cancelado enquanto esperava o slot
+            if (result.isDone()) {
+                return;
+            }
+
+            CompletableFuture<DeliveryResult> send = delegate.sendEmailAsync(to, subject, body);
+            send.whenComplete((delivery, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(delivery);
+                }
+            });
+            result.whenComplete((delivery, error) -> {
+                if (result.isCancelled()) {
+                    send.cancel(true);
+                }
+            });
+        });
+
+        return result;
+    }
+
+    @Override
+    public List<DeliveryResult> sendBatch(List<EmailEnvelope> envelopes) {
+        return paced(envelopes, EmailEnvelope::to, delegate::sendBatch);
+    }
+
+    @Override
+    public List<DeliveryResult> sendBroadcast(String subject, String body, List<String> recipients) {
+        return paced(recipients, Function.identity(), slice -> delegate.sendBroadcast(subject, body, slice));
+    }
+
+    @Override
+    public List<DeliveryResult> sendPersonalized(String subject, EmailTemplate body, List<Personalization> recipients) {
+        return paced(recipients, Personalization::to, slice -> delegate.sendPersonalized(subject, body, slice));
+    }
+
+    private <T> List<DeliveryResult> paced(
+            List<T> items,
+            Function<T, String> recipientOf,
+            Function<List<T>, List<DeliveryResult>> sender) {
+        Quota quota = quota();
+        long maxWait = properties.maxWait().toNanos();
+
+        DeliveryResult[] results = new DeliveryResult[items.size()];
+        List<Integer> slice = new ArrayList<>();
+        int deferred = 0;
+
+        for (int i = 0; i < items.size(); i++) {
+            long wait = quota.reserve(maxWait);
+
+            // Cada adiado ganha o slot seguinte ao do anterior, para nao voltarem todos juntos
+            if (wait < 0) {
+                results[i] = DeliveryResult.deferred(recipientOf.apply(items.get(i)), RATE_LIMITED, quota.retryAfter(deferred));
+                deferred++;
+                continue;
+            }
+
+            // Slot no futuro: envia o que ja estava liberado e so entao espera
+            if (wait > 0) {
+                long deadline = System.nanoTime() + wait;
+                flush(items, slice, sender, results);
+                parkUntil(deadline);
+            }
+
+            slice.add(i);
+        }
+
+        flush(items, slice, sender, results);
+
+        if (deferred > 0) {
+            deferred(deferred);
+            log.warn("Rate limit for {} reached, {} of {} emails deferred", account, deferred, items.size());
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void deferred(int count) {
+        meterRegistry.counter("notification.email.results", "outcome", "deferred", "cause", "rate_limit").increment(count);
+    }
+
+    private <T> void flush(
+            List<T> items,
+            List<Integer> slice,
+            Function<List<T>, List<DeliveryResult>> sender,
+            DeliveryResult[] results) {
+        if (slice.isEmpty()) {
+            return;
+        }
+
+        List<T> batch = new ArrayList<>(slice.size());
+        for (int index : slice) {
+            batch.add(items.get(index));
+        }
+
+        List<DeliveryResult> sent = sender.apply(batch);
+        for (int i = 0; i < slice.size(); i++) {
+            results[slice.get(i)] = sent.get(i);
+        }
+
+        slice.clear();
+    }
+
+    private Quota quota() {
+        return quotas.computeIfAbsent(account, ignored -> new Quota(properties));
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Cota diaria consultada primeiro por ser a mais rara de estourar; um token diario reservado e
+     * perdido se a cota por minuto recusar, o que so adianta um pouco o limite do dia.
+     */
+    private static final class Quota {
+
+        private final TokenBucket perMinute;
+        private final TokenBucket perDay;
+
+        Quota(RateLimitProperties properties) {
+            this.perMinute = new TokenBucket(properties.perMinute() / 60.0, properties.burst());
+            this.perDay = properties.perDay() > 0
+                    ? new TokenBucket(properties.perDay() / 86_400.0, properties.perDay())
+                    : null;
+        }
+
+        // Nanos ate o envio poder sair, ou -1 se a espera passaria de maxWait
+        long reserve(long maxWaitNanos) {
+            long dayWait = perDay == null ? 0 : perDay.tryReserve(maxWaitNanos);
+            if (dayWait < 0) {
+                return -1;
+            }
+
+            long minuteWait = perMinute.tryReserve(maxWaitNanos);
+            if (minuteWait < 0) {
+                return -1;
+            }
+
+            return Math.max(dayWait, minuteWait);
+        }
+
+        /**
+         * Quando a cota deve ter slot para o {@code queued}-esimo envio adiado depois do atual, pela janela
+         * que estiver mais longe: a do minuto ou, com o limite diario estourado, a do dia.
+         */
+        Duration retryAfter(int queued) {
+            long minute = perMinute.nanosUntilAvailable() + queued * perMinute.intervalNanos();
+            long day = perDay == null ? 0 : perDay.nanosUntilAvailable() + queued * perDay.intervalNanos();
+
+            return Duration.ofNanos(Math.max(minute, day));
+        }
+    }
+}
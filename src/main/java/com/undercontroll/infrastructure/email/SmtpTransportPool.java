@@ -0,0 +1,176 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantem um numero limitado de {@link Transport} ja conectados e autenticados, evitando o
+ * handshake TLS + AUTH a cada email. Conexoes ociosas sao validadas (NOOP) antes do uso,
+ * fechadas quando ficam paradas demais e recicladas depois de um numero fixo de mensagens.
+ * <p>
+ * A fila de ociosas e LIFO: a mais recente fica no inicio e a mais antiga no fim, onde o borrow
+ * nunca chega com trafego constante. Por isso cada borrow e release varre o fim da fila.
+ */
+@Slf4j
+public class SmtpTransportPool implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Connector {
+        Transport connect() throws MessagingException;
+    }
+
+    private final Connector connector;
+    private final MailPoolProperties properties;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    private volatile boolean closed;
+
+    public SmtpTransportPool(Connector connector, MailPoolProperties properties) {
+        this.connector = connector;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.size());
+    }
+
+    public PooledTransport borrow() throws MessagingException {
+        if (closed) {
+            throw new IllegalStateException("SMTP transport pool is closed");
+        }
+
+        acquirePermit();
+        evictIdle();
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                pooled.close();
+            }
+
+            log.debug("Opening new SMTP connection");
+            return new PooledTransport(connector.connect());
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Devolve a conexao ao pool. Conexoes quebradas ou que ja atingiram o limite de mensagens
+     * sao fechadas em vez de reaproveitadas.
+     */
+    public void release(PooledTransport pooled, boolean broken) {
+        try {
+            if (closed || broken || pooled.messagesSent() >= properties.maxMessagesPerConnection()) {
+                pooled.close();
+            } else {
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+            evictIdle();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    private void acquirePermit() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(properties.borrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for a free SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a free SMTP connection", e);
+        }
+    }
+
+    // Fecha pelo fim as paradas ha mais de maxIdle; se outra thread pegou a conexao, segue para a proxima
+    private void evictIdle() {
+        long maxIdleNanos = properties.maxIdle().toNanos();
+        PooledTransport oldest;
+
+        while ((oldest = idle.peekLast()) != null && oldest.idleNanos() > maxIdleNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                log.debug("Closing SMTP connection idle for more than {}", properties.maxIdle());
+                oldest.close();
+            }
+        }
+    }
+
+    private boolean isUsable(PooledTransport pooled) {
+        long idleNanos = pooled.idleNanos();
+
+        if (idleNanos > properties.maxIdle().toNanos()) {
+            return false;
+        }
+
+        if (idleNanos > properties.validateAfterIdle().toNanos()) {
+            // Para SMTP, isConnected() envia um NOOP ao servidor
+            return pooled.transport().isConnected();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    public static final class PooledTransport {
+
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsedAt = System.nanoTime();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        public Transport transport() {
+            return transport;
+        }
+
+        public void recordSent() {
+            messagesSent++;
+        }
+
+        int messagesSent() {
+            return messagesSent;
+        }
+
+        long idleNanos() {
+            return System.nanoTime() - lastUsedAt;
+        }
+
+        void touch() {
+            lastUsedAt = System.nanoTime();
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error while closing SMTP connection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.undercontroll.infrastructure.http.adapters;
+
+import com.undercontroll.application.port.CustomersGateway;
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.client.UserDto;
+import com.undercontroll.infrastructure.config.CustomersProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Guarda a ultima lista de destinatarios buscada no main-service por um tempo limitado, para que
+ * anuncios publicados em sequencia nao repitam a chamada. So buscas que terminaram sem erro sao guardadas.
+ * Clientes cadastrados depois da busca sao adicionados a lista em vez de invalida-la.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "notification.customers.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachedCustomersGateway implements CustomersGateway {
+
+    private final CustomersGatewayAdapter delegate;
+    private final CustomersProperties properties;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * Lista so de acrescimos, com os emails (em minusculas) em um Set: cada cadastro novo custa O(1) em vez
+     * de percorrer e copiar a lista. Quem le pega o tamanho no inicio e copia uma pagina por vez.
+     */
+    private static final class Snapshot {
+
+        private final List<Recipient> recipients;
+        private final Set<String> emails;
+        private final long expiresAt;
+
+        Snapshot(List<Recipient> recipients, long expiresAt) {
+            this.recipients = new ArrayList<>(recipients);
+            this.emails = new HashSet<>(recipients.size() * 2);
+            this.expiresAt = expiresAt;
+
+            for (Recipient recipient : recipients) {
+                emails.add(key(recipient.email()));
+            }
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+
+        synchronized int size() {
+            return recipients.size();
+        }
+
+        synchronized List<Recipient> page(int start, int end) {
+            return List.copyOf(recipients.subList(start, end));
+        }
+
+        // false quando a lista ja esta no limite e deixa de valer
+        synchronized boolean append(Recipient recipient, int maxSize) {
+            if (emails.contains(key(recipient.email()))) {
+                return true;
+            }
+            if (recipients.size() >= maxSize) {
+                return false;
+            }
+
+            emails.add(key(recipient.email()));
+            recipients.add(recipient);
+            return true;
+        }
+
+        private static String key(String email) {
+            return email == null ? "" : email.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public CachedCustomersGateway(CustomersGatewayAdapter delegate, CustomersProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<UserDto> getCustomersThatHaveEmail(String token) {
+        return delegate.getCustomersThatHaveEmail(token);
+    }
+
+    @Override
+    public int forEachRecipientPage(String token, Consumer<List<Recipient>> pageConsumer) {
+        Snapshot current = snapshot.get();
+
+        if (current != null && !current.isExpired()) {
+            log.debug("Using {} cached recipients", current.size());
+            return replay(current, pageConsumer);
+        }
+
+        int maxSize = properties.cache().maxSize();
+        List<Recipient> buffer = new ArrayList<>();
+        AtomicBoolean overflow = new AtomicBoolean();
+
+        // Se a busca lancar, a excecao sobe antes do set: uma lista parcial nunca vira cache
+        int total = delegate.forEachRecipientPage(token, page -> {
+            if (!overflow.get()) {
+                if (buffer.size() + page.size() <= maxSize) {
+                    buffer.addAll(page);
+                } else {
+                    overflow.set(true);
+                    buffer.clear();
+                }
+            }
+            pageConsumer.accept(page);
+        });
+
+        if (overflow.get()) {
+            log.info("Recipient list larger than {} entries, not caching it", maxSize);
+        } else {
+            snapshot.set(new Snapshot(buffer, System.nanoTime() + properties.cache().ttl().toNanos()));
+        }
+
+        return total;
+    }
+
+    @Override
+    public void onCustomerCreated(Recipient recipient) {
+        if (recipient == null || recipient.email() == null || recipient.email().isBlank()) {
+            return;
+        }
+
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            return;
+        }
+
+        // Expirada ou acima do limite, a lista deixa de ser guardada e a proxima busca vai ao main-service
+        if (current.isExpired() || !current.append(recipient, properties.cache().maxSize())) {
+            snapshot.compareAndSet(current, null);
+        }
+    }
+
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    private int replay(Snapshot current, Consumer<List<Recipient>> pageConsumer) {
+        int pageSize = Math.max(1, properties.pageSize());
+        int size = current.size();
+
+        for (int start = 0; start < size; start += pageSize) {
+            pageConsumer.accept(current.page(start, Math.min(start + pageSize, size)));
+        }
+
+        return size;
+    }
+}
@@ -1,21 +1,42 @@
 package com.undercontroll.infrastructure.http.adapters;
 
 import com.undercontroll.application.port.CustomersGateway;
+import com.undercontroll.domain.model.Recipient;
 import com.undercontroll.infrastructure.client.UserDto;
+import com.undercontroll.infrastructure.config.CustomersProperties;
 import com.undercontroll.infrastructure.http.client.CustomersClient;
 import feign.FeignException;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 @Slf4j
-@RequiredArgsConstructor
 @Component
 public class CustomersGatewayAdapter implements CustomersGateway {
 
     private final CustomersClient customersClient;
+    private final CustomersProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RetryTemplate pageRetry;
+
+    public CustomersGatewayAdapter(CustomersClient customersClient, CustomersProperties properties, MeterRegistry meterRegistry) {
+        this.customersClient = customersClient;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        CustomersProperties.Retry retry = properties.retry();
+        this.pageRetry = RetryTemplate.builder()
+                .maxAttempts(retry.maxAttempts())
+                .exponentialBackoff(retry.delay(), retry.multiplier(), retry.maxDelay())
+                .retryOn(FeignException.class)
+                .build();
+    }
 
     @Override
     public List<UserDto> getCustomersThatHaveEmail(String token) {
@@ -35,4 +56,75 @@ public class CustomersGatewayAdapter implements CustomersGateway {
             return List.of();
         }
     }
+
+    @Override
+    public int forEachRecipientPage(String token, Consumer<List<Recipient>> pageConsumer) {
+        int pageSize = properties.pageSize();
+        int total = 0;
+        String previousFirstEmail = null;
+        int previousSize = pageSize;
+        boolean capped = false;
+
+        for (int page = 0; ; page++) {
+            // A falha de uma pagina repete so ela: as anteriores ja foram entregues ao consumer
+            int current = page;
+            List<Recipient> recipients = pageRetry.execute(context -> {
+                if (context.getRetryCount() > 0) {
+                    log.warn("Retrying customers page {} (attempt {}): {}",
+                            current, context.getRetryCount() + 1, context.getLastThrowable().getMessage());
+                }
+                return fetchPage(token, current, pageSize);
+            });
+
+            if (recipients.isEmpty()) {
+                break;
+            }
+
+            // Se o main-service ignorar a paginacao, a mesma pagina voltaria para sempre
+            String firstEmail = recipients.get(0).email();
+            if (page > 0 && Objects.equals(firstEmail, previousFirstEmail)) {
+                log.warn("main-service returned page {} equal to the previous one, stopping pagination", page);
+                break;
+            }
+
+            // So a pagina vazia encerra: um main-service que limita o size devolve toda pagina curta
+            if (!capped && previousSize < pageSize) {
+                capped = true;
+                log.warn("main-service returned {} customers for a page of {} and then more; it caps the page size, "
+                        + "lower notification.customers.page-size to match", previousSize, pageSize);
+            }
+
+            pageConsumer.accept(recipients);
+            total += recipients.size();
+
+            previousFirstEmail = firstEmail;
+            previousSize = recipients.size();
+        }
+
+        meterRegistry.summary("notification.customers.fetched").record(total);
+        return total;
+    }
+
+    @Override
+    public void onCustomerCreated(Recipient recipient) {
+        // Sem estado local: a proxima busca ja traz o cliente novo
+    }
+
+    private List<Recipient> fetchPage(String token, int page, int size) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+
+        try {
+            List<Recipient> recipients = customersClient.getRecipientsPage("Bearer " + token, page, size);
+            outcome = "success";
+
+            if (recipients == null) {
+                return List.of();
+            }
+
+            return recipients;
+        } finally {
+            sample.stop(meterRegistry.timer("notification.customers.fetch", "outcome", outcome));
+        }
+    }
 }
@@ -1,9 +1,11 @@
 package com.undercontroll.infrastructure.http.client;
 
+import com.undercontroll.domain.model.Recipient;
 import com.undercontroll.infrastructure.client.UserDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -13,4 +15,12 @@ public interface CustomersClient {
     @GetMapping("/v1/api/users/customers/emails")
     List<UserDto> getCustomersThatHaveEmail(@RequestHeader("Authorization") String token);
 
-}
\ No newline at end of file
+    // Mesmo endpoint paginado, desserializando apenas nome e email de cada cliente
+    @GetMapping("/v1/api/users/customers/emails")
+    List<Recipient> getRecipientsPage(
+            @RequestHeader("Authorization") String token,
+            @RequestParam("page") int page,
+            @RequestParam("size") int size
+    );
+
+}
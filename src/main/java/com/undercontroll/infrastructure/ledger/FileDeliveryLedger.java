@@ -0,0 +1,401 @@
+package com.undercontroll.infrastructure.ledger;
+
+import com.undercontroll.application.port.DeliveryLedger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ledger embutido: cada envio concluido vira uma impressao digital de 64 bits anexada a um arquivo e
+ * mantida em memoria num {@link FingerprintSet} por anuncio.
+ * <p>
+ * A consulta nunca toca o disco. Na subida o arquivo e relido para reconstruir o indice; um registro
+ * parcial no fim (queda no meio da escrita) e descartado. Um anuncio sem envio registrado ha mais de
+ * {@code ttl} ja saiu da janela de reentrega e e esquecido; acima de {@code maxEntries}, os anuncios
+ * menos recentes saem primeiro. A compactacao periodica reescreve o arquivo so com o que ficou.
+ * <p>
+ * O ledger e local de cada replica: um envio registrado aqui nao e visto pelas outras. Por isso a fila
+ * de entrega tem um unico consumidor ativo ({@code x-single-active-consumer}), e a reentrega de uma
+ * fatia volta para o ledger que registrou o envio. Se esse consumidor cair, a replica que assume comeca
+ * sem o historico dele e pode repetir os envios ainda nao confirmados.
+ * <p>
+ * O lock e um {@link ReentrantLock} e nao {@code synchronized}: o fsync acontece com ele seguro e,
+ * em thread virtual, um monitor prenderia a carrier durante a escrita.
+ */
+@Slf4j
+public class FileDeliveryLedger implements DeliveryLedger, Closeable {
+
+    // "LEDGER02"; arquivo sem ele nao e um ledger e a subida falha em vez de sobrescreve-lo
+    private static final long MAGIC = 0x4c45444745523032L;
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int RECORD_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int READ_CHUNK = 8192 * RECORD_BYTES;
+
+    /**
+     * Custo de uma entrada no indice: a tabela fica entre 25% e 50% ocupada, ate 32 bytes por entrada.
+     */
+    public static final int BYTES_PER_ENTRY = 32;
+
+    private final Path file;
+    private final long maxEntries;
+    private final Duration ttl;
+    private final boolean fsync;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Bucket> buckets = new HashMap<>();
+    private final ScheduledExecutorService compactor;
+
+    private FileChannel channel;
+    private long size;
+    private long fileRecords;
+
+    public FileDeliveryLedger(Path file, long maxEntries, Duration ttl, Duration compactInterval, boolean fsync) throws IOException {
+        this(file, maxEntries, ttl, compactInterval, fsync, Clock.systemUTC());
+    }
+
+    FileDeliveryLedger(Path file, long maxEntries, Duration ttl, Duration compactInterval, boolean fsync, Clock clock) throws IOException {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.fsync = fsync;
+        this.clock = clock;
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+
+        log.info("Delivery ledger {} loaded with {} entries from {} announcements", file, size, buckets.size());
+
+        if (compactInterval.isPositive()) {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("delivery-ledger-compactor-"));
+            long interval = compactInterval.toMillis();
+            compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.compactor = null;
+        }
+    }
+
+    @Override
+    public List<String> pending(Integer announcementId, List<String> recipients) {
+        if (announcementId == null) {
+            return recipients;
+        }
+
+        lock.lock();
+        try {
+            Bucket bucket = buckets.get(announcementId);
+            if (bucket == null) {
+                return recipients;
+            }
+
+            List<String> pending = new ArrayList<>(recipients.size());
+
+            for (String recipient : recipients) {
+                if (!bucket.fingerprints.contains(fingerprint(announcementId, recipient))) {
+                    pending.add(recipient);
+                }
+            }
+
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void markDelivered(Integer announcementId, List<String> recipients) {
+        if (announcementId == null || recipients.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            long now = clock.millis();
+            int minute = minuteOf(now);
+            Bucket bucket = buckets.computeIfAbsent(announcementId, id -> new Bucket());
+            bucket.lastMarked = now;
+
+            ByteBuffer buffer = ByteBuffer.allocate(recipients.size() * RECORD_BYTES);
+
+            for (String recipient : recipients) {
+                long fingerprint = fingerprint(announcementId, recipient);
+                if (bucket.fingerprints.add(fingerprint)) {
+                    buffer.putLong(fingerprint).putInt(announcementId).putInt(minute);
+                    size++;
+                }
+            }
+
+            // O indice nunca passa do limite; o arquivo so encolhe na proxima compactacao
+            evictOverflow(announcementId);
+
+            buffer.flip();
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+
+            try {
+                channel.position(channel.size());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+                fileRecords += buffer.limit() / RECORD_BYTES;
+            } catch (IOException e) {
+                // O envio ja aconteceu; perder o registro so reabre a chance de duplicata numa reentrega
+                log.error("Failed to persist {} entries to delivery ledger {}", recipients.size(), file, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Esquece os anuncios fora da janela de reentrega e reescreve o arquivo quando ele guarda mais
+     * registros do que o indice.
+     */
+    public void compact() throws IOException {
+        lock.lock();
+        try {
+            evictExpired();
+
+            if (fileRecords > size) {
+                long before = fileRecords;
+                rewrite();
+                log.info("Delivery ledger {} compacted from {} to {} entries", file, before, size);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static long fingerprint(Integer announcementId, String recipient) {
+        byte[] bytes = (announcementId + "\u0000" + recipient.trim().toLowerCase(Locale.ROOT))
+                .getBytes(StandardCharsets.UTF_8);
+
+        // FNV-1a 64 seguido do finalizador do MurmurHash3 para espalhar os bits
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        // 0 marca slot vazio na tabela
+        return hash == 0 ? 1 : hash;
+    }
+
+    private void load() throws IOException {
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putLong(0, MAGIC), 0);
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        if (header.position() < HEADER_BYTES || header.getLong(0) != MAGIC) {
+            channel.close();
+            throw new IOException("File " + file + " is not a delivery ledger");
+        }
+
+        long usable = channel.size() - (channel.size() - HEADER_BYTES) % RECORD_BYTES;
+        if (usable != channel.size()) {
+            log.warn("Delivery ledger {} has a partial trailing record, truncating", file);
+            channel.truncate(usable);
+        }
+
+        long now = clock.millis();
+        long expiredBefore = now - ttl.toMillis();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+        long position = HEADER_BYTES;
+
+        while (position < usable) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+
+            while (buffer.remaining() >= RECORD_BYTES) {
+                long fingerprint = buffer.getLong();
+                int announcementId = buffer.getInt();
+                long marked = TimeUnit.MINUTES.toMillis(Integer.toUnsignedLong(buffer.getInt()));
+                if (marked >= expiredBefore) {
+                    add(announcementId, fingerprint, marked);
+                }
+                fileRecords++;
+            }
+
+            position += buffer.position();
+        }
+
+        evictOverflow(null);
+
+        // Expirados ou duplicados no arquivo: reescreve ja na subida
+        if (fileRecords > size) {
+            long before = fileRecords;
+            rewrite();
+            log.info("Delivery ledger {} rewritten on load from {} to {} entries", file, before, size);
+        }
+    }
+
+    private void add(int announcementId, long fingerprint, long marked) {
+        Bucket bucket = buckets.computeIfAbsent(announcementId, id -> new Bucket());
+        if (bucket.fingerprints.add(fingerprint)) {
+            size++;
+        }
+        bucket.lastMarked = Math.max(bucket.lastMarked, marked);
+    }
+
+    private void evictExpired() {
+        long expiredBefore = clock.millis() - ttl.toMillis();
+
+        buckets.entrySet().removeIf(entry -> {
+            if (entry.getValue().lastMarked >= expiredBefore) {
+                return false;
+            }
+            size -= entry.getValue().fingerprints.size();
+            return true;
+        });
+    }
+
+    // Tira os anuncios menos recentes ate caber no limite; o que esta sendo gravado nunca sai
+    private void evictOverflow(Integer keep) {
+        if (size <= maxEntries) {
+            return;
+        }
+
+        List<Map.Entry<Integer, Bucket>> oldestFirst = new ArrayList<>(buckets.entrySet());
+        oldestFirst.sort(Comparator.comparingLong(entry -> entry.getValue().lastMarked));
+
+        for (Map.Entry<Integer, Bucket> entry : oldestFirst) {
+            if (size <= maxEntries) {
+                break;
+            }
+            if (!entry.getKey().equals(keep)) {
+                buckets.remove(entry.getKey());
+                size -= entry.getValue().fingerprints.size();
+                log.warn("Delivery ledger above {} entries, forgetting announcement {}", maxEntries, entry.getKey());
+            }
+        }
+    }
+
+    // Grava o indice num arquivo temporario e troca atomicamente; cada entrada leva o ultimo envio do anuncio
+    private void rewrite() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+            buffer.putLong(MAGIC);
+
+            for (Map.Entry<Integer, Bucket> entry : buckets.entrySet()) {
+                int announcementId = entry.getKey();
+                int minute = minuteOf(entry.getValue().lastMarked);
+
+                entry.getValue().fingerprints.forEach(fingerprint -> {
+                    if (buffer.remaining() < RECORD_BYTES) {
+                        flush(buffer, target);
+                    }
+                    buffer.putLong(fingerprint).putInt(announcementId).putInt(minute);
+                });
+            }
+
+            flush(buffer, target);
+            target.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        FileChannel previous = channel;
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileRecords = size;
+        previous.close();
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel target) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to compact delivery ledger {}", file, e);
+        }
+    }
+
+    private static int minuteOf(long millis) {
+        return (int) TimeUnit.MILLISECONDS.toMinutes(millis);
+    }
+
+    private static final class Bucket {
+
+        private final FingerprintSet fingerprints = new FingerprintSet();
+        private long lastMarked;
+    }
+}
@@ -0,0 +1,78 @@
+package com.undercontroll.infrastructure.ledger;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Hash set de enderecamento aberto para impressoes digitais de 64 bits: 8 bytes por slot, sem objetos
+ * por entrada. O 0 marca slot vazio, entao nunca e uma impressao valida. Nao e thread-safe.
+ */
+final class FingerprintSet {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] table = new long[INITIAL_CAPACITY];
+    private int size;
+
+    boolean contains(long fingerprint) {
+        int mask = table.length - 1;
+        int slot = (int) fingerprint & mask;
+
+        while (table[slot] != 0) {
+            if (table[slot] == fingerprint) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    // Fator de carga maximo de 50%, em potencia de dois para usar mascara no lugar de modulo
+    boolean add(long fingerprint) {
+        if ((size + 1) * 2L > table.length) {
+            resize();
+        }
+
+        int mask = table.length - 1;
+        int slot = (int) fingerprint & mask;
+
+        while (table[slot] != 0) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = fingerprint;
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongConsumer action) {
+        for (long fingerprint : table) {
+            if (fingerprint != 0) {
+                action.accept(fingerprint);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+
+        for (long fingerprint : old) {
+            if (fingerprint != 0) {
+                int slot = (int) fingerprint & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = fingerprint;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.undercontroll.infrastructure.ledger;
+
+import com.undercontroll.application.port.DeliveryLedger;
+
+import java.util.List;
+
+public class NoopDeliveryLedger implements DeliveryLedger {
+
+    @Override
+    public List<String> pending(Integer announcementId, List<String> recipients) {
+        return recipients;
+    }
+
+    @Override
+    public void markDelivered(Integer announcementId, List<String> recipients) {
+    }
+}
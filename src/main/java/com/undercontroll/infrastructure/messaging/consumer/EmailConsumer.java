@@ -7,11 +7,22 @@ import com.undercontroll.domain.events.AnnouncementCreatedEvent;
 import com.undercontroll.domain.events.EmailEvent;
 import com.undercontroll.domain.events.UserCreatedEvent;
 import com.undercontroll.application.usecase.AnnouncementCreatedPort;
+import com.undercontroll.application.usecase.AnnouncementDeliveryPort;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
 @Slf4j
 @RequiredArgsConstructor
 @Component
@@ -19,25 +30,101 @@ public class EmailConsumer {
 
     private final AnnouncementCreatedPort announcementCreatedPort;
     private final UserCreatedPort userCreatedPort;
+    private final AnnouncementDeliveryPort announcementDeliveryPort;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @RabbitListener(
+            queues = RabbitMQConfig.ANNOUNCEMENT_QUEUE,
+            containerFactory = "announcementListenerContainerFactory"
+    )
+    public void listenAnnouncements(EmailEvent event) {
+        listen(event);
+    }
+
+    @RabbitListener(
+            queues = RabbitMQConfig.USER_QUEUE,
+            containerFactory = "userListenerContainerFactory"
+    )
+    public void listenUserEvents(List<EmailEvent> events) {
+        log.info("Received a batch of {} events", events.size());
+        meterRegistry.summary("notification.consume.batch.size").record(events.size());
+
+        List<UserCreatedEvent> userCreatedEvents = new ArrayList<>(events.size());
+
+        for (EmailEvent event : events) {
+            if (EmailEventType.USER_CREATED.equals(event.type())) {
+                recordLag(event);
+                userCreatedEvents.add(payload(event, UserCreatedEvent.class));
+            } else {
+                listen(event);
+            }
+        }
 
-    @RabbitListener(queues = "notification.email.queue")
+        if (!userCreatedEvents.isEmpty()) {
+            consume(EmailEventType.USER_CREATED.name(), () -> userCreatedPort.executeAll(userCreatedEvents));
+        }
+    }
+
+    @RabbitListener(
+            queues = RabbitMQConfig.DELIVERY_QUEUE,
+            containerFactory = "deliveryListenerContainerFactory"
+    )
+    public void listenDeliveries(AnnouncementDeliveryEvent event) {
+        consume("ANNOUNCEMENT_DELIVERY", () -> announcementDeliveryPort.execute(event));
+    }
+
+    // Drena a fila compartilhada antiga; os eventos novos chegam pelas filas de cada tipo
+    @RabbitListener(queues = RabbitMQConfig.EMAIL_QUEUE)
     public void listen(EmailEvent event) {
         log.info("Received a event from {}, of type {}", event.service(), event.type());
 
+        recordLag(event);
+        consume(String.valueOf(event.type()), () -> dispatch(event));
+    }
+
+    private void dispatch(EmailEvent event) {
         if (event.type().equals(EmailEventType.ANNOUNCEMENT_CREATED)) {
-            AnnouncementCreatedEvent announcementEvent = objectMapper.convertValue(
-                    event.data(), AnnouncementCreatedEvent.class
-            );
-            announcementCreatedPort.execute(announcementEvent);
+            announcementCreatedPort.execute(payload(event, AnnouncementCreatedEvent.class));
             return;
         }
 
         if (event.type().equals(EmailEventType.USER_CREATED)) {
-            UserCreatedEvent userCreatedEvent = objectMapper.convertValue(
-                    event.data(), UserCreatedEvent.class
-            );
-            userCreatedPort.execute(userCreatedEvent);
+            userCreatedPort.execute(payload(event, UserCreatedEvent.class));
+        }
+    }
+
+    // O converter ja entrega o data tipado (EmailEventMixin); a conversao fica so para eventos montados sem ele
+    private <T> T payload(EmailEvent event, Class<T> type) {
+        if (type.isInstance(event.data())) {
+            return type.cast(event.data());
+        }
+
+        return objectMapper.convertValue(event.data(), type);
+    }
+
+    // Tempo de processamento por tipo, com outcome para separar as falhas que vao para o retry
+    private void consume(String type, Runnable work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+
+        try {
+            work.run();
+            outcome = "success";
+        } finally {
+            sample.stop(meterRegistry.timer("notification.consume", "type", type, "outcome", outcome));
+        }
+    }
+
+    // Atraso entre a publicacao no main-service e o consumo aqui, ou seja, o tempo parado na fila
+    private void recordLag(EmailEvent event) {
+        if (event.timestamp() == null) {
+            return;
+        }
+
+        Duration lag = Duration.between(event.timestamp().atZone(ZoneId.systemDefault()).toInstant(), Instant.now());
+        if (!lag.isNegative()) {
+            meterRegistry.timer("notification.queue.lag", "type", String.valueOf(event.type())).record(lag);
         }
     }
 }
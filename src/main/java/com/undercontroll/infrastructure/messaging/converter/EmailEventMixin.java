@@ -0,0 +1,24 @@
+package com.undercontroll.infrastructure.messaging.converter;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.events.EmailEvent;
+import com.undercontroll.domain.events.UserCreatedEvent;
+import org.springframework.boot.jackson.JsonMixin;
+
+/**
+ * Usa o campo {@code type} do EmailEvent como discriminador do {@code data}, para que o payload ja
+ * saia do corpo AMQP como o record concreto, em uma passada, sem o LinkedHashMap intermediario.
+ * O JSON publicado pelo main-service nao muda; os nomes sao os do {@code EmailEventType}.
+ */
+@JsonMixin(EmailEvent.class)
+public abstract class EmailEventMixin {
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.EXTERNAL_PROPERTY, property = "type", visible = true)
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = AnnouncementCreatedEvent.class, name = "ANNOUNCEMENT_CREATED"),
+            @JsonSubTypes.Type(value = UserCreatedEvent.class, name = "USER_CREATED")
+    })
+    Object data;
+}
@@ -0,0 +1,107 @@
+package com.undercontroll.infrastructure.messaging.producer;
+
+import com.undercontroll.application.port.DeliveryPublisher;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.config.DeliveryProperties;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import com.undercontroll.infrastructure.messaging.retry.TieredRetryRecoverer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class RabbitDeliveryPublisher implements DeliveryPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final DeliveryProperties properties;
+    private final RetryProperties retryProperties;
+
+    @Override
+    public int publish(Integer announcementId, String subject, String body, List<Recipient> recipients) {
+        int chunkSize = Math.max(1, properties.chunkSize());
+        int published = 0;
+
+        for (int from = 0; from < recipients.size(); from += chunkSize) {
+            List<Recipient> chunk = recipients.subList(from, Math.min(from + chunkSize, recipients.size()));
+
+            rabbitTemplate.convertAndSend(
+                    RabbitMQConfig.NOTIFICATION_EXCHANGE,
+                    RabbitMQConfig.DELIVERY_ROUTING,
+                    new AnnouncementDeliveryEvent(announcementId, subject, body, emails(chunk), names(chunk), 0)
+            );
+            published++;
+        }
+
+        return published;
+    }
+
+    private static List<String> emails(List<Recipient> chunk) {
+        return chunk.stream().map(Recipient::email).toList();
+    }
+
+    // Sem nome cadastrado o destinatario fica fora do mapa e o envio usa o cumprimento generico
+    private static Map<String, String> names(List<Recipient> chunk) {
+        Map<String, String> names = new HashMap<>();
+        for (Recipient recipient : chunk) {
+            if (recipient.name() != null && !recipient.name().isBlank()) {
+                names.put(recipient.email(), recipient.name());
+            }
+        }
+        return Map.copyOf(names);
+    }
+
+    // Usa os mesmos tiers de espera do TieredRetryRecoverer, e o header mantem uma contagem unica de tentativas
+    @Override
+    public void retry(AnnouncementDeliveryEvent retry) {
+        Duration delay = retryProperties.delayAfter(retry.attempt());
+
+        if (delay == null) {
+            log.error("Announcement {}: {} recipients failed {} time(s), sending to DLQ",
+                    retry.announcementId(), retry.recipients().size(), retry.attempt());
+            send(RabbitMQConfig.DLQ_EXCHANGE, RabbitMQConfig.DELIVERY_DLQ_ROUTING, retry);
+            return;
+        }
+
+        String tier = RetryProperties.tier(delay);
+        log.warn("Announcement {}: retrying {} failed recipients in {}",
+                retry.announcementId(), retry.recipients().size(), tier);
+        send(RabbitMQConfig.RETRY_EXCHANGE, tier + "." + RabbitMQConfig.DELIVERY_QUEUE, retry);
+    }
+
+    // Mesmas filas de espera do retry, escolhidas pelo tempo ate notBefore; o header segue com as tentativas de antes
+    @Override
+    public void defer(AnnouncementDeliveryEvent deferred) {
+        Duration wait = Duration.ofMillis(Math.max(0, deferred.notBefore() - System.currentTimeMillis()));
+        Duration delay = retryProperties.tierFor(wait);
+
+        if (delay == null) {
+            // Sem tiers configurados nao ha onde esperar; volta sem horario e o limitador segura no proximo consumo
+            send(RabbitMQConfig.NOTIFICATION_EXCHANGE, RabbitMQConfig.DELIVERY_ROUTING, new AnnouncementDeliveryEvent(
+                    deferred.announcementId(), deferred.subject(), deferred.body(),
+                    deferred.recipients(), deferred.names(), deferred.attempt()));
+            return;
+        }
+
+        String tier = RetryProperties.tier(delay);
+        log.info("Announcement {}: {} recipients deferred by the sending rate limit for {}s (tier {})",
+                deferred.announcementId(), deferred.recipients().size(), wait.toSeconds(), tier);
+        send(RabbitMQConfig.RETRY_EXCHANGE, tier + "." + RabbitMQConfig.DELIVERY_QUEUE, deferred);
+    }
+
+    private void send(String exchange, String routingKey, AnnouncementDeliveryEvent event) {
+        rabbitTemplate.convertAndSend(exchange, routingKey, event, message -> {
+            message.getMessageProperties().setHeader(TieredRetryRecoverer.ATTEMPTS_HEADER, event.attempt());
+            return message;
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package com.undercontroll.infrastructure.messaging.producer;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import com.undercontroll.infrastructure.messaging.retry.TieredRetryRecoverer;
+import com.undercontroll.infrastructure.outbox.OutboxDeadLetters;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+// Os emails do outbox nascem dos eventos de usuario, entao terminam na mesma DLQ que eles
+@RequiredArgsConstructor
+@Component
+public class RabbitOutboxDeadLetters implements OutboxDeadLetters {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Override
+    public void deadLetter(EmailEnvelope envelope, int attempts, String error) {
+        rabbitTemplate.convertAndSend(RabbitMQConfig.DLQ_EXCHANGE, RabbitMQConfig.USER_DLQ_ROUTING, envelope, message -> {
+            message.getMessageProperties().setHeader(TieredRetryRecoverer.ATTEMPTS_HEADER, attempts);
+            message.getMessageProperties().setHeader(TieredRetryRecoverer.EXCEPTION_HEADER, error);
+            return message;
+        });
+    }
+}
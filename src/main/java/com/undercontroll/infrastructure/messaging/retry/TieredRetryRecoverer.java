@@ -0,0 +1,132 @@
+package com.undercontroll.infrastructure.messaging.retry;
+
+import com.undercontroll.domain.exception.RateLimitedException;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.ConditionalRejectingErrorHandler;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recebe as mensagens que falharam no listener e decide o destino pelo numero de falhas:
+ * a fila de espera do tier correspondente ({@code notification.retry}, routing {@code "<tier>.<fila>"})
+ * ou, esgotadas as tentativas, a DLQ da fila de origem. Erros fatais (mensagem impossivel de converter)
+ * vao direto para a DLQ. Adiamentos por limite de envio ({@link RateLimitedException}) nao contam como
+ * falha: voltam pelo tier mais proximo de quando a cota libera, sem incrementar {@code x-retry-attempts}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class TieredRetryRecoverer implements MessageBatchRecoverer {
+
+    public static final String ATTEMPTS_HEADER = "x-retry-attempts";
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+
+    private static final int MAX_EXCEPTION_LENGTH = 500;
+
+    private final ConditionalRejectingErrorHandler.DefaultExceptionStrategy fatalErrors =
+            new ConditionalRejectingErrorHandler.DefaultExceptionStrategy();
+
+    private final RabbitTemplate rabbitTemplate;
+    private final RetryProperties properties;
+
+    @Override
+    public void recover(Message message, Throwable cause) {
+        MessageProperties messageProperties = message.getMessageProperties();
+        String queue = messageProperties.getConsumerQueue();
+
+        RateLimitedException rateLimited = rateLimited(cause);
+        if (rateLimited != null) {
+            defer(message, queue, rateLimited);
+            return;
+        }
+
+        int failures = previousFailures(messageProperties) + 1;
+
+        messageProperties.setHeader(ATTEMPTS_HEADER, failures);
+        messageProperties.setHeader(EXCEPTION_HEADER, describe(cause));
+
+        Duration delay = fatalErrors.isFatal(cause) ? null : properties.delayAfter(failures);
+
+        if (delay == null) {
+            String dlqRouting = RabbitMQConfig.DLQ_ROUTING_BY_QUEUE.getOrDefault(queue, RabbitMQConfig.EMAIL_DLQ_ROUTING);
+            log.error("Message from {} failed {} time(s), sending to DLQ ({}): {}", queue, failures, dlqRouting, cause.getMessage());
+            rabbitTemplate.send(RabbitMQConfig.DLQ_EXCHANGE, dlqRouting, message);
+            return;
+        }
+
+        String tier = RetryProperties.tier(delay);
+        log.warn("Message from {} failed {} time(s), retrying in {}: {}", queue, failures, tier, cause.getMessage());
+        rabbitTemplate.send(RabbitMQConfig.RETRY_EXCHANGE, tier + "." + queue, message);
+    }
+
+    private void defer(Message message, String queue, RateLimitedException cause) {
+        Duration delay = properties.tierFor(cause.getRetryAfter());
+
+        // Sem tier configurado nao ha fila de espera: a mensagem volta direto para a fila e o limitador segura de novo
+        if (delay == null) {
+            log.warn("Message from {} rate limited and no retry tier configured, requeueing", queue);
+            rabbitTemplate.send("", queue, message);
+            return;
+        }
+
+        String tier = RetryProperties.tier(delay);
+        log.info("Message from {} rate limited, deferring to {}: {}", queue, tier, cause.getMessage());
+        rabbitTemplate.send(RabbitMQConfig.RETRY_EXCHANGE, tier + "." + queue, message);
+    }
+
+    @Override
+    public void recover(List<Message> messages, Throwable cause) {
+        for (Message message : messages) {
+            recover(message, cause);
+        }
+    }
+
+    // O header proprio e a fonte principal; x-death cobre mensagens que vieram do loop antigo de 10s
+    static int previousFailures(MessageProperties messageProperties) {
+        Object header = messageProperties.getHeaders().get(ATTEMPTS_HEADER);
+        if (header instanceof Number attempts) {
+            return attempts.intValue();
+        }
+
+        long deaths = 0;
+        List<Map<String, ?>> xDeath = messageProperties.getXDeathHeader();
+        if (xDeath != null) {
+            for (Map<String, ?> death : xDeath) {
+                if (death.get("count") instanceof Number count) {
+                    deaths += count.longValue();
+                }
+            }
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, deaths);
+    }
+
+    private static RateLimitedException rateLimited(Throwable cause) {
+        for (Throwable current = cause; current != null; current = current.getCause() == current ? null : current.getCause()) {
+            if (current instanceof RateLimitedException rateLimited) {
+                return rateLimited;
+            }
+        }
+        return null;
+    }
+
+    private static String describe(Throwable cause) {
+        Throwable root = cause;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+
+        String description = root.getClass().getSimpleName() + ": " + root.getMessage();
+        return description.length() > MAX_EXCEPTION_LENGTH ? description.substring(0, MAX_EXCEPTION_LENGTH) : description;
+    }
+}
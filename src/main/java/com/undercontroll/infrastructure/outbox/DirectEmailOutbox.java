@@ -0,0 +1,105 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.application.port.EmailOutbox;
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sem outbox: envia na hora, na thread de quem chamou. Falhas voltam a ser enviadas com os atrasos de
+ * {@link RetryProperties} e, esgotadas as tentativas, vao para o {@link OutboxDeadLetters}; adiados pelo
+ * limite de envio esperam a cota sem gastar tentativa. Os reenvios ficam so em memoria: uma queda
+ * perde o que estava esperando, e e para isso que existe o {@link MappedEmailOutbox}.
+ */
+@Slf4j
+public class DirectEmailOutbox implements EmailOutbox, Closeable {
+
+    private final EmailService emailService;
+    private final RetryProperties retryProperties;
+    private final OutboxDeadLetters deadLetters;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("email-direct-retry-"));
+
+    public DirectEmailOutbox(EmailService emailService, RetryProperties retryProperties, OutboxDeadLetters deadLetters) {
+        this.emailService = emailService;
+        this.retryProperties = retryProperties;
+        this.deadLetters = deadLetters;
+    }
+
+    @Override
+    public void enqueue(List<EmailEnvelope> envelopes) {
+        send(envelopes.stream().map(OutboxEntry::of).toList());
+    }
+
+    private void send(List<OutboxEntry> entries) {
+        List<DeliveryResult> results = emailService.sendBatch(entries.stream().map(OutboxEntry::envelope).toList());
+
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            DeliveryResult result = results.get(i);
+            OutboxEntry entry = entries.get(i);
+
+            if (result.success()) {
+                continue;
+            }
+
+            if (result.deferred()) {
+                schedule(entry.deferUntil(0), result.retryAfter());
+                continue;
+            }
+
+            failed++;
+            log.warn("Email to {} failed: {}", result.recipient(), result.error());
+            Duration delay = retryProperties.delayAfter(entry.attempt() + 1);
+
+            if (delay == null) {
+                deadLetter(entry, result.error());
+            } else {
+                schedule(entry.retryAt(0), delay);
+            }
+        }
+
+        log.info("Emails sent in batch: {} sent, {} failed", results.size() - failed, failed);
+    }
+
+    private void schedule(OutboxEntry entry, Duration delay) {
+        try {
+            scheduler.schedule(() -> resend(entry), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Shutting down, email to {} will not be resent", entry.envelope().to());
+        }
+    }
+
+    private void resend(OutboxEntry entry) {
+        try {
+            send(List.of(entry));
+        } catch (RuntimeException e) {
+            log.error("Failed to resend email to {}", entry.envelope().to(), e);
+        }
+    }
+
+    private void deadLetter(OutboxEntry entry, String error) {
+        try {
+            deadLetters.deadLetter(entry.envelope(), entry.attempt() + 1, error);
+            log.error("Email to {} failed {} times, sent to the dead letter queue", entry.envelope().to(), entry.attempt() + 1);
+        } catch (RuntimeException e) {
+            log.error("Failed to dead letter email to {}, it is lost", entry.envelope().to(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
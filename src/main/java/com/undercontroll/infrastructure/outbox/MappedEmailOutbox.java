@@ -0,0 +1,276 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.application.port.EmailOutbox;
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.OutboxProperties;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import com.undercontroll.infrastructure.threads.WorkerExecutors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox sobre o {@link OutboxLog}. O {@code enqueue} so grava (e forca o disco); um despachante le o
+ * log em lotes e entrega para um pool de envio limitado, entao o listener confirma a mensagem no ritmo
+ * do disco e nao do SMTP.
+ * <p>
+ * Falhas seguem os atrasos de {@link RetryProperties}: a entrada e regravada no fim do log com o horario
+ * da proxima tentativa e a original e marcada como concluida. Depois de {@code maxAttempts} o email vai
+ * para o {@link OutboxDeadLetters}; se nem isso der certo, espera o maior atraso e tenta de novo. Emails adiados pelo limite de envio sao regravados para quando a cota libera, sem gastar
+ * tentativa. O checkpoint fica na menor posicao ainda em andamento, entao uma queda reenvia no maximo
+ * o que estava em voo: a entrega e pelo menos uma vez.
+ */
+@Slf4j
+public class MappedEmailOutbox implements EmailOutbox, Closeable {
+
+    private final OutboxLog outboxLog;
+    private final EmailService emailService;
+    private final RetryProperties retryProperties;
+    private final OutboxProperties properties;
+    private final OutboxDeadLetters deadLetters;
+    private final Counter deadLettered;
+
+    private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final Semaphore permits;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService scheduler;
+    private final Thread dispatcher;
+
+    private volatile long readPosition;
+    private volatile boolean running;
+
+    public MappedEmailOutbox(
+            OutboxLog outboxLog,
+            EmailService emailService,
+            RetryProperties retryProperties,
+            OutboxProperties properties,
+            OutboxDeadLetters deadLetters,
+            MeterRegistry meterRegistry,
+            boolean virtualThreads
+    ) {
+        this.outboxLog = outboxLog;
+        this.emailService = emailService;
+        this.retryProperties = retryProperties;
+        this.properties = properties;
+        this.deadLetters = deadLetters;
+        this.permits = new Semaphore(properties.senders());
+        this.senders = WorkerExecutors.newPool("email-outbox-", properties.senders(), virtualThreads);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("email-outbox-scheduler-"));
+        this.dispatcher = new CustomizableThreadFactory("email-outbox-dispatcher-").newThread(this::drain);
+        this.deadLettered = meterRegistry.counter("notification.outbox.dead_lettered");
+
+        meterRegistry.gauge("notification.outbox.in_flight", inFlight, NavigableSet::size);
+    }
+
+    @Override
+    public void enqueue(List<EmailEnvelope> envelopes) {
+        if (envelopes.isEmpty()) {
+            return;
+        }
+
+        try {
+            outboxLog.append(envelopes.stream().map(OutboxEntry::of).toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write %d emails to the outbox".formatted(envelopes.size()), e);
+        }
+    }
+
+    public void start() {
+        readPosition = outboxLog.checkpoint();
+        running = true;
+
+        dispatcher.start();
+
+        long interval = properties.checkpointInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkpoint, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Le o que foi gravado depois da ultima leitura; entradas com retry agendado esperam no scheduler
+    private void drain() {
+        int batchSize = Math.max(1, properties.batchSize());
+
+        while (running) {
+            try {
+                List<OutboxLog.Record> records = outboxLog.read(readPosition, batchSize);
+
+                if (records.isEmpty()) {
+                    outboxLog.awaitAppend(readPosition, 200);
+                    continue;
+                }
+
+                // Em voo antes de avancar a leitura, para o checkpoint nunca passar de uma entrada pendente
+                records.forEach(record -> inFlight.add(record.position()));
+                readPosition = records.getLast().next();
+
+                long now = System.currentTimeMillis();
+                List<OutboxLog.Record> ready = new ArrayList<>(records.size());
+
+                for (OutboxLog.Record record : records) {
+                    long wait = record.entry().notBefore() - now;
+                    if (wait > 0) {
+                        scheduler.schedule(() -> dispatch(List.of(record)), wait, TimeUnit.MILLISECONDS);
+                    } else {
+                        ready.add(record);
+                    }
+                }
+
+                if (!ready.isEmpty()) {
+                    dispatch(ready);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Email outbox dispatcher failed, retrying", e);
+            }
+        }
+    }
+
+    private void dispatch(List<OutboxLog.Record> batch) {
+        permits.acquireUninterruptibly();
+
+        try {
+            senders.execute(() -> {
+                try {
+                    send(batch);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Pool ja desligado: as entradas continuam em voo e voltam na proxima subida
+            permits.release();
+        }
+    }
+
+    private void send(List<OutboxLog.Record> batch) {
+        List<EmailEnvelope> envelopes = batch.stream().map(record -> record.entry().envelope()).toList();
+        List<DeliveryResult> results;
+
+        try {
+            results = emailService.sendBatch(envelopes);
+        } catch (Exception e) {
+            log.error("Failed to send batch of {} emails from the outbox", batch.size(), e);
+            results = envelopes.stream().map(envelope -> DeliveryResult.failed(envelope.to(), e.getMessage())).toList();
+        }
+
+        long now = System.currentTimeMillis();
+        List<OutboxLog.Record> retried = new ArrayList<>();
+        List<OutboxEntry> retries = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            DeliveryResult result = results.get(i);
+            OutboxLog.Record record = batch.get(i);
+
+            if (result.success()) {
+                complete(record);
+            } else if (result.deferred()) {
+                retried.add(record);
+                retries.add(record.entry().deferUntil(now + result.retryAfter().toMillis()));
+            } else {
+                log.warn("Email to {} failed: {}", result.recipient(), result.error());
+                Duration delay = retryProperties.delayAfter(record.entry().attempt() + 1);
+
+                if (delay == null && deadLetter(record, result.error())) {
+                    complete(record);
+                } else {
+                    // Sem DLQ disponivel, o email continua no log e tenta de novo depois do maior atraso
+                    Duration wait = delay != null ? delay : retryProperties.longestDelay();
+                    retried.add(record);
+                    retries.add(record.entry().retryAt(now + (wait != null ? wait.toMillis() : 0)));
+                }
+            }
+        }
+
+        if (!retries.isEmpty()) {
+            reschedule(retried, retries, now);
+        }
+    }
+
+    private boolean deadLetter(OutboxLog.Record record, String error) {
+        OutboxEntry entry = record.entry();
+
+        try {
+            deadLetters.deadLetter(entry.envelope(), entry.attempt() + 1, error);
+            log.error("Email to {} failed {} times, sent to the dead letter queue", entry.envelope().to(), entry.attempt() + 1);
+            deadLettered.increment();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to dead letter email to {}, keeping it in the outbox", entry.envelope().to(), e);
+            return false;
+        }
+    }
+
+    private void reschedule(List<OutboxLog.Record> retried, List<OutboxEntry> retries, long now) {
+        try {
+            outboxLog.append(retries);
+            retried.forEach(this::complete);
+        } catch (IOException | RuntimeException e) {
+            // A original continua pendente no log; sem a regravacao, o retry fica so em memoria
+            log.error("Failed to write {} retries to the outbox, keeping them in memory", retries.size(), e);
+
+            for (int i = 0; i < retried.size(); i++) {
+                OutboxLog.Record record = retried.get(i);
+                OutboxLog.Record retry = new OutboxLog.Record(record.position(), record.next(), retries.get(i));
+                scheduler.schedule(() -> dispatch(List.of(retry)), retry.entry().notBefore() - now, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void complete(OutboxLog.Record record) {
+        outboxLog.complete(record.position());
+        inFlight.remove(record.position());
+    }
+
+    // Tudo antes da menor posicao em voo terminou; sem nada em voo, tudo antes da leitura
+    private void checkpoint() {
+        long position = readPosition;
+        Long oldest = inFlight.ceiling(Long.MIN_VALUE);
+
+        try {
+            outboxLog.checkpoint(oldest != null ? Math.min(oldest, position) : position);
+        } catch (IOException e) {
+            log.error("Failed to checkpoint the email outbox", e);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+            senders.shutdown();
+            if (!senders.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Email outbox senders did not finish in time, {} emails will be resent after restart", inFlight.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        scheduler.shutdownNow();
+        checkpoint();
+    }
+}
@@ -0,0 +1,15 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+
+/**
+ * Destino dos emails do outbox que esgotaram as tentativas, para inspecao e reprocessamento manual.
+ */
+public interface OutboxDeadLetters {
+
+    /**
+     * @param attempts envios feitos, contando o ultimo
+     * @param error motivo da ultima falha
+     */
+    void deadLetter(EmailEnvelope envelope, int attempts, String error);
+}
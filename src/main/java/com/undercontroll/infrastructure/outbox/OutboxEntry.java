@@ -0,0 +1,25 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+
+/**
+ * Envelope gravado no outbox.
+ *
+ * @param attempt falhas de envio anteriores
+ * @param notBefore epoch em millis antes do qual a entrada nao deve ser enviada; 0 envia na hora
+ */
+public record OutboxEntry(EmailEnvelope envelope, int attempt, long notBefore) {
+
+    public static OutboxEntry of(EmailEnvelope envelope) {
+        return new OutboxEntry(envelope, 0, 0);
+    }
+
+    public OutboxEntry retryAt(long notBefore) {
+        return new OutboxEntry(envelope, attempt + 1, notBefore);
+    }
+
+    // Adiamento por limite de envio nao conta como falha
+    public OutboxEntry deferUntil(long notBefore) {
+        return new OutboxEntry(envelope, attempt, notBefore);
+    }
+}
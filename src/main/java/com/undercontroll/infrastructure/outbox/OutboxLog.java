@@ -0,0 +1,411 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Log append-only em segmentos mapeados em memoria. Cada registro e {@code [tamanho][crc][status][payload]};
+ * um tamanho zero marca o fim do que foi escrito no segmento, que e criado com o tamanho final e
+ * preenchido com zeros. Quando um registro nao cabe mais, o log passa para o proximo segmento.
+ * O status fica fora do crc e e marcado no lugar quando a entrada termina, para a releitura pular o
+ * que ja foi enviado.
+ * <p>
+ * Posicoes sao {@code (segmento << 32) | offset}, crescentes ao longo do log. O checkpoint guarda a
+ * primeira posicao ainda nao concluida; segmentos inteiramente antes dele sao apagados (compactacao).
+ * Na subida, o fim do ultimo segmento e revalidado pelo crc e um registro parcial e zerado.
+ * O acesso e serializado por um {@link ReentrantLock}, que nao prende a carrier de uma thread virtual
+ * durante o fsync.
+ */
+@Slf4j
+public class OutboxLog implements Closeable {
+
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int STATUS_OFFSET = 2 * Integer.BYTES;
+    private static final int COMPLETED = 1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final FileChannel checkpointChannel;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    private long writeSegment;
+    private int writeOffset;
+    private long checkpoint;
+
+    public record Record(long position, long next, OutboxEntry entry) {
+    }
+
+    public OutboxLog(Path directory, int segmentBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+
+        Files.createDirectories(directory);
+        this.checkpointChannel = FileChannel.open(directory.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        open();
+
+        log.info("Email outbox {} opened with {} segments, resuming at segment {} offset {}",
+                directory, segments.size(), segmentOf(checkpoint), offsetOf(checkpoint));
+    }
+
+    public static long position(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Grava as entradas e, com fsync, so retorna depois de forcar os bytes para o disco.
+     */
+    public void append(List<OutboxEntry> entries) throws IOException {
+        lock.lock();
+        try {
+            long firstSegment = writeSegment;
+            int firstOffset = writeOffset;
+
+            for (OutboxEntry entry : entries) {
+                byte[] payload = encode(entry);
+                int length = HEADER_BYTES + payload.length;
+
+                if (length > segmentBytes) {
+                    throw new IllegalArgumentException("Outbox entry of %d bytes exceeds the segment size of %d bytes"
+                            .formatted(length, segmentBytes));
+                }
+
+                if (writeOffset + length > capacity(writeSegment)) {
+                    force(firstSegment, firstOffset);
+                    roll();
+                    firstSegment = writeSegment;
+                    firstOffset = 0;
+                }
+
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+
+                ByteBuffer segment = segments.get(writeSegment);
+                // O tamanho vai por ultimo: ate ele ser escrito, o leitor ve o fim do segmento
+                segment.putInt(writeOffset + Integer.BYTES, (int) crc.getValue());
+                segment.putInt(writeOffset + STATUS_OFFSET, 0);
+                segment.put(writeOffset + HEADER_BYTES, payload);
+                segment.putInt(writeOffset, payload.length);
+                writeOffset += length;
+            }
+
+            force(firstSegment, firstOffset);
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Le ate {@code max} registros pendentes a partir de {@code from}; vazio quando nao ha nada escrito ainda.
+     */
+    public List<Record> read(long from, int max) {
+        lock.lock();
+        try {
+            List<Record> records = new ArrayList<>(Math.min(max, 64));
+            long position = from;
+
+            while (records.size() < max) {
+                long segment = segmentOf(position);
+                int offset = offsetOf(position);
+
+                if (segment == writeSegment && offset >= writeOffset) {
+                    break;
+                }
+
+                MappedByteBuffer buffer = segments.get(segment);
+                int length = buffer == null ? 0 : recordLength(buffer, offset);
+
+                if (length <= 0) {
+                    // Fim deste segmento; o proximo comeca no offset 0
+                    position = position(segment + 1, 0);
+                    continue;
+                }
+
+                long next = position(segment, offset + HEADER_BYTES + length);
+                if (buffer.getInt(offset + STATUS_OFFSET) != COMPLETED) {
+                    records.add(new Record(position, next, decode(buffer, offset + HEADER_BYTES, length)));
+                }
+                position = next;
+            }
+
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera ate haver algo escrito em {@code position} ou o tempo acabar.
+     */
+    public void awaitAppend(long position, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            if (position >= position(writeSegment, writeOffset)) {
+                appended.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marca a entrada como concluida. A marca vai para o disco junto com o checkpoint ou no fechamento;
+     * se ela se perder, a entrada e reenviada depois da subida.
+     */
+    public void complete(long position) {
+        lock.lock();
+        try {
+            MappedByteBuffer buffer = segments.get(segmentOf(position));
+            if (buffer != null) {
+                buffer.putInt(offsetOf(position) + STATUS_OFFSET, COMPLETED);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long checkpoint() {
+        lock.lock();
+        try {
+            return checkpoint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registra que tudo antes de {@code position} foi concluido e apaga os segmentos que ficaram para tras.
+     */
+    public void checkpoint(long position) throws IOException {
+        lock.lock();
+        try {
+            if (position <= checkpoint) {
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, position);
+            checkpointChannel.write(buffer, 0);
+            if (fsync) {
+                segments.tailMap(segmentOf(position)).values().forEach(MappedByteBuffer::force);
+                checkpointChannel.force(false);
+            }
+            checkpoint = position;
+
+            long current = segmentOf(position);
+            while (!segments.isEmpty() && segments.firstKey() < current && segments.firstKey() < writeSegment) {
+                long segment = segments.pollFirstEntry().getKey();
+                // O mapeamento so e liberado pelo GC; no Linux o arquivo pode ser apagado antes disso
+                Files.deleteIfExists(segmentPath(segment));
+                log.debug("Outbox segment {} compacted", segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (MappedByteBuffer segment : segments.values()) {
+                segment.force();
+            }
+            checkpointChannel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        List<Long> existing;
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+
+        ByteBuffer stored = ByteBuffer.allocate(Long.BYTES);
+        boolean hasCheckpoint = checkpointChannel.read(stored, 0) == Long.BYTES;
+        long first = existing.isEmpty() ? 1 : existing.getFirst();
+        checkpoint = hasCheckpoint ? Math.max(stored.getLong(0), position(first, 0)) : position(first, 0);
+
+        for (long segment : existing) {
+            if (segment < segmentOf(checkpoint)) {
+                Files.deleteIfExists(segmentPath(segment));
+            } else {
+                segments.put(segment, map(segment));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            long segment = Math.max(first, segmentOf(checkpoint));
+            segments.put(segment, map(segment));
+        }
+
+        writeSegment = segments.lastKey();
+        writeOffset = recoverTail(segments.get(writeSegment));
+    }
+
+    // Percorre o ultimo segmento ate o primeiro registro invalido e zera o que sobrou de uma escrita parcial
+    private int recoverTail(MappedByteBuffer buffer) {
+        int offset = 0;
+
+        while (true) {
+            int length = recordLength(buffer, offset);
+            if (length <= 0 || !crcMatches(buffer, offset, length)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+
+        boolean dirty = false;
+        for (int i = offset; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+
+        if (dirty) {
+            log.warn("Outbox segment {} had a partial record at offset {}, discarded", writeSegment, offset);
+            buffer.force();
+        }
+
+        return offset;
+    }
+
+    private void roll() throws IOException {
+        writeSegment++;
+        writeOffset = 0;
+        segments.put(writeSegment, map(writeSegment));
+    }
+
+    private void force(long segment, int from) {
+        if (!fsync) {
+            return;
+        }
+
+        MappedByteBuffer buffer = segments.get(segment);
+        int to = segment == writeSegment ? writeOffset : buffer.capacity();
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    private int capacity(long segment) {
+        return segments.get(segment).capacity();
+    }
+
+    private MappedByteBuffer map(long segment) throws IOException {
+        Path path = segmentPath(segment);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Segmentos antigos mantem o tamanho com que foram criados, mesmo se a configuracao mudou
+            long size = channel.size() > 0 ? channel.size() : segmentBytes;
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(SEGMENT_PREFIX + "%020d".formatted(segment) + SEGMENT_SUFFIX);
+    }
+
+    private static int recordLength(ByteBuffer buffer, int offset) {
+        if (offset + HEADER_BYTES > buffer.capacity()) {
+            return 0;
+        }
+
+        int length = buffer.getInt(offset);
+        return offset + HEADER_BYTES + length > buffer.capacity() ? -1 : length;
+    }
+
+    private static boolean crcMatches(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + HEADER_BYTES, length));
+        return (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES);
+    }
+
+    private static byte[] encode(OutboxEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + entry.envelope().body().length());
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(entry.attempt());
+        out.writeLong(entry.notBefore());
+        writeString(out, entry.envelope().to());
+        writeString(out, entry.envelope().subject());
+        writeString(out, entry.envelope().body());
+
+        return bytes.toByteArray();
+    }
+
+    private static OutboxEntry decode(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer in = buffer.slice(offset, length);
+
+        int attempt = in.getInt();
+        long notBefore = in.getLong();
+        String to = readString(in);
+        String subject = readString(in);
+        String body = readString(in);
+
+        return new OutboxEntry(new EmailEnvelope(to, subject, body), attempt, notBefore);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
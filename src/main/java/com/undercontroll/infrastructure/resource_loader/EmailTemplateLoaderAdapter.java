@@ -1,29 +1,202 @@
 package com.undercontroll.infrastructure.resource_loader;
 
 import com.undercontroll.application.port.EmailTemplateLoader;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.infrastructure.config.TemplateProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+/**
+ * Mantem os templates carregados e ja compilados em memoria. Na subida carrega tudo que existe em
+ * {@code templates/} no classpath e, se configurado, no diretorio externo, que pode ser observado
+ * para recarregar templates alterados sem restart. O tempo de cada render sai em
+ * {@code notification.template.render}, por template.
+ */
 @Slf4j
 @Component
 public class EmailTemplateLoaderAdapter implements EmailTemplateLoader {
 
+    private static final String CLASSPATH_DIRECTORY = "templates/";
+
+    private final TemplateProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CachedTemplate> cache = new ConcurrentHashMap<>();
+    private final Map<String, Timer> renderTimers = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+
+    private record CachedTemplate(String source, EmailTemplate compiled) {
+
+        static CachedTemplate of(String source) {
+            return new CachedTemplate(source, EmailTemplate.parse(source));
+        }
+    }
+
+    @Autowired
+    public EmailTemplateLoaderAdapter(TemplateProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public EmailTemplateLoaderAdapter(TemplateProperties properties) {
+        this(properties, new SimpleMeterRegistry());
+    }
+
+    @PostConstruct
+    public void warmUp() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources("classpath*:" + CLASSPATH_DIRECTORY + "*.html");
+
+        for (Resource resource : resources) {
+            try (InputStream inputStream = resource.getInputStream()) {
+                cache.put(resource.getFilename(), CachedTemplate.of(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+        }
+
+        Path directory = properties.directory();
+
+        if (directory != null && Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(Files::isRegularFile).forEach(this::reload);
+            }
+
+            if (properties.watch()) {
+                startWatching(directory);
+            }
+        }
+
+        log.info("Loaded {} email templates", cache.size());
+    }
+
     @Override
     public String load(String name) {
-        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("templates/" + name)){
+        return get(name).source();
+    }
+
+    @Override
+    public EmailTemplate compile(String name) {
+        return get(name).compiled();
+    }
+
+    @Override
+    public String render(String name, Map<String, String> values) {
+        EmailTemplate template = compile(name);
+
+        return renderTimers
+                .computeIfAbsent(name, key -> meterRegistry.timer("notification.template.render", "template", key))
+                .record(() -> template.render(values));
+    }
+
+    private CachedTemplate get(String name) {
+        CachedTemplate cached = cache.get(name);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        return cache.computeIfAbsent(name, this::readFromClasspath);
+    }
+
+    private CachedTemplate readFromClasspath(String name) {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(CLASSPATH_DIRECTORY + name)){
 
             if (inputStream == null) {
                 throw new IllegalArgumentException("Template not found: " + name);
             }
 
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            return CachedTemplate.of(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
         } catch (IOException e) {
             log.error("Error loading the template: {}", name, e);
             throw new RuntimeException("Error while loading the template", e);
         }
     }
+
+    private void reload(Path file) {
+        String name = file.getFileName().toString();
+
+        try {
+            cache.put(name, CachedTemplate.of(Files.readString(file, StandardCharsets.UTF_8)));
+            log.info("Template {} loaded from {}", name, file);
+        } catch (IOException e) {
+            // Mantem a versao anterior em cache se o arquivo estiver sendo escrito ou ilegivel
+            log.error("Error reloading the template: {}", name, e);
+        }
+    }
+
+    private void startWatching(Path directory) throws IOException {
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+        );
+
+        Thread watcher = new Thread(() -> watch(directory), "template-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        log.info("Watching {} for template changes", directory);
+    }
+
+    private void watch(Path directory) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+
+                    Path file = directory.resolve((Path) event.context());
+
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        // Volta para a versao do classpath, se existir, no proximo acesso
+                        cache.remove(file.getFileName().toString());
+                    } else if (Files.isRegularFile(file)) {
+                        reload(file);
+                    }
+                }
+
+                if (!key.reset()) {
+                    log.warn("Template directory {} is no longer accessible", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Template watcher stopped");
+        }
+    }
+
+    @PreDestroy
+    public void stopWatching() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
 }
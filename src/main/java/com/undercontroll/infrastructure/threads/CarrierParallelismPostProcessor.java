@@ -0,0 +1,44 @@
+package com.undercontroll.infrastructure.threads;
+
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * No JDK 21 o envio SMTP roda dentro de {@code synchronized} no JavaMail e prende a carrier durante o I/O.
+ * Os envios simultaneos sao limitados pelo pool de conexoes, entao, no modo de threads virtuais, o
+ * scheduler ganha uma carrier a mais por conexao do pool para que as demais threads virtuais nunca
+ * fiquem sem carrier. Roda antes da primeira thread virtual ser criada, que e quando o scheduler le a
+ * propriedade; um valor passado na linha de comando e respeitado.
+ */
+public class CarrierParallelismPostProcessor implements EnvironmentPostProcessor {
+
+    static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+
+    private final Log log;
+
+    public CarrierParallelismPostProcessor(DeferredLogFactory logFactory) {
+        this.log = logFactory.getLog(CarrierParallelismPostProcessor.class);
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!Threading.VIRTUAL.isActive(environment) || Runtime.version().feature() >= 24 || System.getProperty(PARALLELISM) != null) {
+            return;
+        }
+
+        // Sem pool nao ha limite de envios simultaneos para compensar; o PinningDiagnostics avisa
+        if (!environment.getProperty("notification.mail.pool.enabled", Boolean.class, true)) {
+            return;
+        }
+
+        int connections = environment.getProperty("notification.mail.pool.size", Integer.class, 8);
+        int parallelism = Runtime.getRuntime().availableProcessors() + connections;
+        System.setProperty(PARALLELISM, String.valueOf(parallelism));
+
+        log.info("Virtual thread scheduler parallelism set to " + parallelism + " to absorb " + connections + " pinned SMTP sends");
+    }
+}
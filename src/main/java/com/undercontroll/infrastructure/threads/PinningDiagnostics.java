@@ -0,0 +1,156 @@
+package com.undercontroll.infrastructure.threads;
+
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import com.undercontroll.infrastructure.config.VirtualThreadProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Relatorio de pinagem do modo de threads virtuais. Na subida, confere quais chamadas bloqueantes
+ * conhecidas rodam dentro de {@code synchronized} (no JDK 21 a thread virtual prende a carrier ate o
+ * monitor ser liberado) e compara com o numero de carriers. Depois acompanha por JFR os
+ * {@code jdk.VirtualThreadPinned}: cada ponto novo e logado uma vez, o resto so vira metrica.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class PinningDiagnostics {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    // Chamadas com I/O de rede no caminho de envio; sao verificadas na versao da biblioteca que estiver no classpath
+    private static final List<BlockingCall> KNOWN_BLOCKING_CALLS = List.of(
+            new BlockingCall("org.eclipse.angus.mail.smtp.SMTPTransport", "sendMessage"),
+            new BlockingCall("org.eclipse.angus.mail.smtp.SMTPTransport", "protocolConnect"),
+            new BlockingCall("org.eclipse.angus.mail.smtp.SMTPTransport", "issueCommand"),
+            new BlockingCall("jakarta.mail.Service", "connect")
+    );
+
+    private record BlockingCall(String type, String method) {
+    }
+
+    private final VirtualThreadProperties properties;
+    private final MailPoolProperties mailPoolProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recording;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        int carriers = carrierParallelism();
+        log.info("Virtual threads enabled for listeners, delivery engine, outbox senders and async sends; {} carrier threads",
+                carriers);
+
+        if (Runtime.version().feature() >= 24) {
+            log.info("JDK {} releases the carrier inside synchronized blocks, no pinning expected", Runtime.version().feature());
+        } else {
+            List<String> pinning = synchronizedBlockingCalls();
+            if (!pinning.isEmpty()) {
+                log.warn("Blocking calls inside synchronized, each pins a carrier thread while on the network: {}", pinning);
+            }
+
+            int concurrentSends = mailPoolProperties.enabled() ? mailPoolProperties.size() : Integer.MAX_VALUE;
+            if (!pinning.isEmpty() && concurrentSends >= carriers) {
+                log.warn("Up to {} concurrent SMTP sends can pin all {} carrier threads; keep notification.mail.pool.size "
+                                + "below the carrier count or raise -Djdk.virtualThreadScheduler.parallelism",
+                        concurrentSends == Integer.MAX_VALUE ? "unbounded" : concurrentSends, carriers);
+            }
+        }
+
+        if (properties.monitorPinning()) {
+            startMonitor();
+        }
+    }
+
+    /**
+     * Chamadas de {@link #KNOWN_BLOCKING_CALLS} declaradas como {@code synchronized} no classpath atual.
+     */
+    List<String> synchronizedBlockingCalls() {
+        List<String> found = new ArrayList<>();
+
+        for (BlockingCall call : KNOWN_BLOCKING_CALLS) {
+            try {
+                Class<?> type = Class.forName(call.type(), false, getClass().getClassLoader());
+                for (Method method : type.getDeclaredMethods()) {
+                    if (method.getName().equals(call.method()) && Modifier.isSynchronized(method.getModifiers())) {
+                        found.add(type.getSimpleName() + "." + call.method());
+                        break;
+                    }
+                }
+            } catch (ClassNotFoundException e) {
+                log.debug("{} not on the classpath, skipping pinning check", call.type());
+            }
+        }
+
+        return found;
+    }
+
+    private void startMonitor() {
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(properties.pinnedThreshold()).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+        } catch (RuntimeException e) {
+            log.warn("Could not start JFR pinning monitor: {}", e.getMessage());
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = site(event.getStackTrace());
+        meterRegistry.counter("notification.threads.pinned", "site", site).increment();
+
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned its carrier for {} ms at {}; further pinning here is only counted "
+                            + "in notification.threads.pinned",
+                    event.getDuration().toMillis(), site);
+        }
+    }
+
+    // Primeiro frame fora do JDK: e onde o monitor foi tomado ou a chamada que levou ao bloqueio
+    static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+
+        return "jdk";
+    }
+
+    static int carrierParallelism() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.undercontroll.infrastructure.threads;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pools de trabalho bloqueante (SMTP, disco). Com threads virtuais cada tarefa ganha a sua e o limite
+ * de concorrencia fica so com quem submete (semaforos); sem elas, um pool fixo de {@code size} threads.
+ */
+public final class WorkerExecutors {
+
+    private WorkerExecutors() {
+    }
+
+    public static ExecutorService newPool(String prefix, int size, boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+        }
+
+        return Executors.newFixedThreadPool(size, new CustomizableThreadFactory(prefix));
+    }
+}
@@ -2,26 +2,42 @@ package com.undercontroll;
 
 import com.undercontroll.domain.events.AnnouncementCreatedEvent;
 import com.undercontroll.application.usecase.AnnouncementCreatedPort;
+import com.undercontroll.application.usecase.AnnouncementDeliveryPort;
+import com.undercontroll.application.port.DeliveryPublisher;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.events.EmailEvent;
+import com.undercontroll.domain.events.UserCreatedEvent;
 import com.undercontroll.infrastructure.http.client.CustomersClient;
-import com.undercontroll.infrastructure.client.UserDto;
+import com.undercontroll.domain.model.Recipient;
 import feign.FeignException;
 import jakarta.mail.Session;
 import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -40,12 +56,41 @@ class NotificationServiceApplicationTest {
     @MockitoBean
     private CustomersClient customersClient;
 
+    // Sem broker nos testes: as mensagens de entrega publicadas sao consumidas direto pelo port da segunda etapa
+    @MockitoBean
+    private DeliveryPublisher deliveryPublisher;
+
     @Autowired
     private AnnouncementCreatedPort announcementCreatedPort;
 
+    @Autowired
+    private AnnouncementDeliveryPort announcementDeliveryPort;
+
+    @Autowired
+    private Jackson2JsonMessageConverter messageConverter;
+
     @BeforeEach
     void setUp() {
         when(mailSender.createMimeMessage()).thenReturn(new MimeMessage((Session) null));
+        when(deliveryPublisher.publish(any(), anyString(), anyString(), anyList())).thenAnswer(invocation -> {
+            List<Recipient> recipients = invocation.getArgument(3);
+            announcementDeliveryPort.execute(new AnnouncementDeliveryEvent(
+                    invocation.getArgument(0),
+                    invocation.getArgument(1),
+                    invocation.getArgument(2),
+                    recipients.stream().map(Recipient::email).toList(),
+                    recipients.stream().collect(Collectors.toMap(Recipient::email, Recipient::name)),
+                    0
+            ));
+            return 1;
+        });
+    }
+
+    // Os envios chegam em lotes via send(MimeMessage...), entao contamos as mensagens capturadas
+    private List<MimeMessage> sentMessages() {
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, atLeastOnce()).send(captor.capture());
+        return captor.getAllValues().stream().flatMap(Arrays::stream).toList();
     }
 
     @Test
@@ -53,13 +98,29 @@ class NotificationServiceApplicationTest {
         // Verifies the Spring context starts without errors
     }
 
+    @Test
+    void messageConverter_shouldDeserializeTypedPayload_inOnePass() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setInferredArgumentType(EmailEvent.class);
+        byte[] body = """
+                {"service":"main-service","type":"USER_CREATED",
+                 "data":{"name":"Maria","email":"maria@teste.com","createdAt":"2026-03-30T11:15:00"},
+                 "timestamp":"2026-03-30T11:15:00"}
+                """.getBytes(StandardCharsets.UTF_8);
+
+        EmailEvent event = (EmailEvent) messageConverter.fromMessage(new Message(body, properties));
+
+        assertThat(event.data()).isInstanceOf(UserCreatedEvent.class);
+    }
+
     @Test
     void shouldSendEmailToAllUsers_whenAnnouncementEventProcessed() {
-        List<UserDto> users = List.of(
-                new UserDto(1, "Alice", "alice@test.com", "Smith", null, null, null, null, null, false, false, false, "CUSTOMER"),
-                new UserDto(2, "Bob", "bob@test.com", "Jones", null, null, null, null, null, false, false, false, "CUSTOMER")
+        List<Recipient> users = List.of(
+                new Recipient("Alice", "alice@test.com"),
+                new Recipient("Bob", "bob@test.com")
         );
-        when(customersClient.getCustomersThatHaveEmail(anyString())).thenReturn(users);
+        when(customersClient.getRecipientsPage(anyString(), anyInt(), anyInt())).thenReturn(users);
 
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(
                 1, "New Feature", "Details here", "UPDATES", LocalDateTime.now(), "valid-token"
@@ -67,17 +128,17 @@ class NotificationServiceApplicationTest {
 
         announcementCreatedPort.execute(event);
 
-        verify(mailSender, times(2)).send(any(MimeMessage.class));
+        assertThat(sentMessages()).hasSize(2);
     }
 
     @Test
     void announcementCreatedPort_shouldRetryOnFeignException_andSucceedOnThirdAttempt() {
-        // @Retryable is active via AOP proxy — announcementCreatedPort is the proxied bean
+        // The customers gateway retries the failed page (notification.customers.retry)
         FeignException feignEx = mock(FeignException.class);
-        List<UserDto> users = List.of(
-                new UserDto(1, "Alice", "alice@test.com", "Smith", null, null, null, null, null, false, false, false, "CUSTOMER")
+        List<Recipient> users = List.of(
+                new Recipient("Alice", "alice@test.com")
         );
-        when(customersClient.getCustomersThatHaveEmail(anyString()))
+        when(customersClient.getRecipientsPage(anyString(), eq(0), anyInt()))
                 .thenThrow(feignEx)
                 .thenThrow(feignEx)
                 .thenReturn(users);
@@ -88,7 +149,7 @@ class NotificationServiceApplicationTest {
 
         announcementCreatedPort.execute(event);
 
-        verify(customersClient, times(3)).getCustomersThatHaveEmail(anyString());
-        verify(mailSender, times(1)).send(any(MimeMessage.class));
+        verify(customersClient, times(3)).getRecipientsPage(anyString(), eq(0), anyInt());
+        assertThat(sentMessages()).hasSize(1);
     }
 }
@@ -1,11 +1,12 @@
 package com.undercontroll.application.usecase;
 
-import com.undercontroll.application.port.EmailService;
+import com.undercontroll.application.port.DeliveryPublisher;
 import com.undercontroll.application.usecase.impl.AnnouncementCreatedImpl;
 import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Recipient;
 import com.undercontroll.application.port.EmailTemplateLoader;
 import com.undercontroll.application.port.CustomersGateway;
-import com.undercontroll.infrastructure.client.UserDto;
 import feign.FeignException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,9 +18,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -27,15 +32,15 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class AnnouncementCreatedImplTest {
 
-    @Mock
-    private EmailService emailService;
-
     @Mock
     private EmailTemplateLoader emailTemplateLoader;
 
     @Mock
     private CustomersGateway customersGateway;
 
+    @Mock
+    private DeliveryPublisher deliveryPublisher;
+
     @InjectMocks
     private AnnouncementCreatedImpl useCase;
 
@@ -44,82 +49,130 @@ class AnnouncementCreatedImplTest {
 
     @BeforeEach
     void setUp() {
-        // lenient: recover() test doesn't call execute() so this stub would otherwise be flagged
-        lenient().when(emailTemplateLoader.load("announcement_created.html")).thenReturn(FLAT_TEMPLATE);
+        lenient().when(emailTemplateLoader.render(eq("announcement_created.html"), anyMap()))
+                .thenAnswer(invocation -> EmailTemplate.parse(FLAT_TEMPLATE).render(invocation.getArgument(1)));
+        lenient().when(deliveryPublisher.publish(any(), anyString(), anyString(), anyList())).thenReturn(1);
+    }
+
+    private Recipient makeUser(String email) {
+        return new Recipient("Name", email);
+    }
+
+    // Simula o gateway entregando as paginas ao consumer, como o adapter paginado faz
+    @SafeVarargs
+    private void stubPages(List<Recipient>... pages) {
+        when(customersGateway.forEachRecipientPage(anyString(), any())).thenAnswer(invocation -> {
+            Consumer<List<Recipient>> consumer = invocation.getArgument(1);
+            int total = 0;
+            for (List<Recipient> page : pages) {
+                consumer.accept(page);
+                total += page.size();
+            }
+            return total;
+        });
     }
 
-    private UserDto makeUser(String email) {
-        return new UserDto(1, "Name", email, "Last", null, null, null, null, null, false, false, false, "CUSTOMER");
+    @SuppressWarnings("unchecked")
+    private List<String> broadcastRecipients() {
+        ArgumentCaptor<List<Recipient>> captor = ArgumentCaptor.forClass(List.class);
+        verify(deliveryPublisher).publish(any(), anyString(), anyString(), captor.capture());
+        return captor.getValue().stream().map(Recipient::email).toList();
+    }
+
+    private String broadcastSubject() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(deliveryPublisher).publish(any(), captor.capture(), anyString(), anyList());
+        return captor.getValue();
+    }
+
+    private String broadcastBody() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(deliveryPublisher).publish(any(), anyString(), captor.capture(), anyList());
+        return captor.getValue();
     }
 
     @Test
     void execute_shouldSendEmailToEachUser_whenMultipleUsersExist() {
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", LocalDateTime.now(), "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString()))
-                .thenReturn(List.of(makeUser("a@test.com"), makeUser("b@test.com"), makeUser("c@test.com")));
+        stubPages(List.of(makeUser("a@test.com"), makeUser("b@test.com"), makeUser("c@test.com")));
 
         useCase.execute(event);
 
-        verify(emailService, times(3)).sendEmail(anyString(), anyString(), anyString());
+        assertThat(broadcastRecipients()).containsExactly("a@test.com", "b@test.com", "c@test.com");
+    }
+
+    @Test
+    void execute_shouldPropagateFetchFailures_soTheListenerRetriesTheEvent() {
+        FeignException feignException = mock(FeignException.class);
+        AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", LocalDateTime.now(), "token");
+        when(customersGateway.forEachRecipientPage(anyString(), any())).thenThrow(feignException);
+
+        assertThatThrownBy(() -> useCase.execute(event)).isSameAs(feignException);
+    }
+
+    @Test
+    void execute_shouldNeutralizePlaceholdersTypedInTheAnnouncement() {
+        AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Oi {{name}}", "Use {{email}}", "INFO", LocalDateTime.now(), "token");
+        stubPages(List.of(makeUser("user@test.com")));
+
+        useCase.execute(event);
+
+        assertThat(EmailTemplate.parse(broadcastBody()).placeholders()).isEmpty();
     }
 
     @Test
     void execute_shouldUseEventTitleInEmailSubject() {
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "My Title", "Content", "INFO", LocalDateTime.now(), "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(List.of(makeUser("user@test.com")));
+        stubPages(List.of(makeUser("user@test.com")));
 
         useCase.execute(event);
 
-        ArgumentCaptor<String> subjectCaptor = ArgumentCaptor.forClass(String.class);
-        verify(emailService).sendEmail(anyString(), subjectCaptor.capture(), anyString());
-        assertThat(subjectCaptor.getValue()).isEqualTo("Novo Aviso: My Title");
+        assertThat(broadcastSubject()).isEqualTo("Novo Aviso: My Title");
     }
 
     @Test
-    void execute_shouldNotSendAnyEmail_whenUserListIsNull() {
+    void execute_shouldNotSendAnyEmail_whenUserListIsEmpty() {
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", LocalDateTime.now(), "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(null);
+        stubPages();
 
         useCase.execute(event);
 
-        verify(emailService, never()).sendEmail(anyString(), anyString(), anyString());
+        verify(deliveryPublisher, never()).publish(any(), anyString(), anyString(), anyList());
     }
 
     @Test
-    void execute_shouldNotSendAnyEmail_whenUserListIsEmpty() {
-        AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", LocalDateTime.now(), "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(List.of());
+    void execute_shouldPublishEachPage_asItArrives() {
+        AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(7, "Title", "Content", "INFO", LocalDateTime.now(), "token");
+        stubPages(
+                List.of(makeUser("a@test.com"), makeUser("b@test.com")),
+                List.of(makeUser("c@test.com"))
+        );
 
         useCase.execute(event);
 
-        verify(emailService, never()).sendEmail(anyString(), anyString(), anyString());
+        verify(deliveryPublisher).publish(eq(7), anyString(), anyString(), eq(List.of(makeUser("a@test.com"), makeUser("b@test.com"))));
+        verify(deliveryPublisher).publish(eq(7), anyString(), anyString(), eq(List.of(makeUser("c@test.com"))));
     }
 
     @Test
-    void execute_shouldContinueSendingToRemainingUsers_whenOneEmailFails() {
+    void execute_shouldSkipUsersWithoutEmail() {
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", LocalDateTime.now(), "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString()))
-                .thenReturn(List.of(makeUser("fail@test.com"), makeUser("ok@test.com")));
-        doThrow(new RuntimeException("SMTP error"))
-                .when(emailService).sendEmail(eq("fail@test.com"), anyString(), anyString());
+        stubPages(List.of(makeUser(null), makeUser(" "), makeUser("ok@test.com")));
 
         useCase.execute(event);
 
-        verify(emailService, times(2)).sendEmail(anyString(), anyString(), anyString());
-        verify(emailService).sendEmail(eq("ok@test.com"), anyString(), anyString());
+        assertThat(broadcastRecipients()).containsExactly("ok@test.com");
     }
 
     @Test
     void execute_shouldReplaceAllPlaceholders_inTemplate() {
         LocalDateTime publishedAt = LocalDateTime.of(2024, 3, 15, 10, 30);
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "My Title", "My Content", "UPDATES", publishedAt, "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(List.of(makeUser("user@test.com")));
+        stubPages(List.of(makeUser("user@test.com")));
 
         useCase.execute(event);
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
-        verify(emailService).sendEmail(anyString(), anyString(), bodyCaptor.capture());
-        String body = bodyCaptor.getValue();
+        String body = broadcastBody();
         assertThat(body).contains("UPDATES");
         assertThat(body).contains("My Title");
         assertThat(body).contains("My Content");
@@ -129,26 +182,22 @@ class AnnouncementCreatedImplTest {
     @Test
     void execute_shouldReplaceNullEventFields_withEmptyStrings() {
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, null, null, null, LocalDateTime.now(), "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(List.of(makeUser("user@test.com")));
+        stubPages(List.of(makeUser("user@test.com")));
 
         useCase.execute(event);
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
-        verify(emailService).sendEmail(anyString(), anyString(), bodyCaptor.capture());
-        assertThat(bodyCaptor.getValue()).doesNotContain("null");
+        assertThat(broadcastBody()).doesNotContain("null");
     }
 
     @Test
     void execute_shouldFormatPublishedAt_asPortugueseDateTime() {
         LocalDateTime publishedAt = LocalDateTime.of(2024, 3, 15, 10, 30);
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", publishedAt, "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(List.of(makeUser("user@test.com")));
+        stubPages(List.of(makeUser("user@test.com")));
 
         useCase.execute(event);
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
-        verify(emailService).sendEmail(anyString(), anyString(), bodyCaptor.capture());
-        assertThat(bodyCaptor.getValue()).contains("15/03/2024 às 10:30");
+        assertThat(broadcastBody()).contains("15/03/2024 às 10:30");
     }
 
     @Test
@@ -156,20 +205,10 @@ class AnnouncementCreatedImplTest {
         // Template: "{{type}}|{{title}}|{{content}}|{{createdAt}}|{{year}}"
         // With null publishedAt, {{createdAt}} -> "" producing "||" between content and year
         AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", null, "token");
-        when(customersGateway.getCustomersThatHaveEmail(anyString())).thenReturn(List.of(makeUser("user@test.com")));
+        stubPages(List.of(makeUser("user@test.com")));
 
         useCase.execute(event);
 
-        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
-        verify(emailService).sendEmail(anyString(), anyString(), bodyCaptor.capture());
-        assertThat(bodyCaptor.getValue()).contains("||");
-    }
-
-    @Test
-    void recover_shouldCompleteWithoutThrowing() {
-        FeignException mockEx = mock(FeignException.class);
-        AnnouncementCreatedEvent event = new AnnouncementCreatedEvent(1, "Title", "Content", "INFO", LocalDateTime.now(), "token");
-
-        assertThatCode(() -> useCase.recover(mockEx, event)).doesNotThrowAnyException();
+        assertThat(broadcastBody()).contains("||");
     }
 }
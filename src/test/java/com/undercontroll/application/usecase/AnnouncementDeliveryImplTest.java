@@ -0,0 +1,169 @@
+package com.undercontroll.application.usecase;
+
+import com.undercontroll.application.port.DeliveryEngine;
+import com.undercontroll.application.port.DeliveryLedger;
+import com.undercontroll.application.port.DeliveryPublisher;
+import com.undercontroll.application.port.UnsubscribeLinks;
+import com.undercontroll.application.usecase.impl.AnnouncementDeliveryImpl;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.model.DeliveryReport;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnnouncementDeliveryImplTest {
+
+    @Mock
+    private DeliveryEngine deliveryEngine;
+
+    @Mock
+    private DeliveryLedger deliveryLedger;
+
+    @Mock
+    private DeliveryPublisher deliveryPublisher;
+
+    @Mock
+    private UnsubscribeLinks unsubscribeLinks;
+
+    @InjectMocks
+    private AnnouncementDeliveryImpl useCase;
+
+    @Test
+    void execute_shouldBroadcastChunk_withRenderedContent() {
+        List<String> recipients = List.of("a@test.com", "b@test.com");
+        when(deliveryLedger.pending(1, recipients)).thenReturn(recipients);
+        when(deliveryEngine.broadcast("Subject", "<p>Body</p>", recipients))
+                .thenReturn(new DeliveryReport(2, 2, 0, List.of()));
+
+        useCase.execute(new AnnouncementDeliveryEvent(1, "Subject", "<p>Body</p>", recipients));
+
+        verify(deliveryEngine).broadcast("Subject", "<p>Body</p>", recipients);
+        verify(deliveryPublisher, never()).retry(any());
+    }
+
+    @Test
+    void execute_shouldSkip_whenChunkHasNoRecipients() {
+        useCase.execute(new AnnouncementDeliveryEvent(1, "Subject", "Body", List.of()));
+
+        verify(deliveryEngine, never()).broadcast(anyString(), anyString(), anyList());
+    }
+
+    @Test
+    void execute_shouldSendOnlyPendingRecipients_andRecordSuccesses() {
+        List<String> recipients = List.of("a@test.com", "b@test.com", "c@test.com");
+        when(deliveryLedger.pending(5, recipients)).thenReturn(List.of("b@test.com", "c@test.com"));
+        when(deliveryEngine.broadcast("Subject", "Body", List.of("b@test.com", "c@test.com")))
+                .thenReturn(new DeliveryReport(2, 1, 1, List.of(DeliveryResult.failed("c@test.com", "550"))));
+
+        useCase.execute(new AnnouncementDeliveryEvent(5, "Subject", "Body", recipients));
+
+        verify(deliveryLedger).markDelivered(5, List.of("b@test.com"));
+        verify(deliveryPublisher).retry(new AnnouncementDeliveryEvent(5, "Subject", "Body", List.of("c@test.com"), 1));
+    }
+
+    @Test
+    void execute_shouldNotSend_whenEveryRecipientWasAlreadyDelivered() {
+        List<String> recipients = List.of("a@test.com");
+        when(deliveryLedger.pending(5, recipients)).thenReturn(List.of());
+
+        useCase.execute(new AnnouncementDeliveryEvent(5, "Subject", "Body", recipients));
+
+        verify(deliveryEngine, never()).broadcast(anyString(), anyString(), anyList());
+        verify(deliveryLedger, never()).markDelivered(any(), anyList());
+    }
+
+    @Test
+    void execute_shouldCarryAttemptForward_whenRetryFailsAgain() {
+        List<String> recipients = List.of("c@test.com");
+        when(deliveryLedger.pending(5, recipients)).thenReturn(recipients);
+        when(deliveryEngine.broadcast("Subject", "Body", recipients))
+                .thenReturn(new DeliveryReport(1, 0, 1, List.of(DeliveryResult.failed("c@test.com", "421"))));
+
+        useCase.execute(new AnnouncementDeliveryEvent(5, "Subject", "Body", recipients, 1));
+
+        verify(deliveryPublisher).retry(new AnnouncementDeliveryEvent(5, "Subject", "Body", recipients, 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void execute_shouldPersonalize_whenBodyKeepsRecipientPlaceholders() {
+        List<String> recipients = List.of("a@test.com", "b@test.com");
+        when(deliveryLedger.pending(5, recipients)).thenReturn(recipients);
+        when(unsubscribeLinks.linkFor(anyString())).thenAnswer(invocation -> "https://x/u?email=" + invocation.getArgument(0) + "&token=t");
+        when(deliveryEngine.personalize(eq("Subject"), any(EmailTemplate.class), anyList()))
+                .thenReturn(new DeliveryReport(2, 1, 1, List.of(DeliveryResult.failed("b@test.com", "421"))));
+
+        useCase.execute(new AnnouncementDeliveryEvent(
+                5, "Subject", "<p>Ola {{name}}</p><a href=\"{{unsubscribeUrl}}\">Sair</a>", recipients,
+                Map.of("a@test.com", "Ana <Maria>", "b@test.com", "Bia"), 0
+        ));
+
+        ArgumentCaptor<List<Personalization>> captor = ArgumentCaptor.forClass(List.class);
+        verify(deliveryEngine).personalize(eq("Subject"), any(EmailTemplate.class), captor.capture());
+        verify(deliveryEngine, never()).broadcast(anyString(), anyString(), anyList());
+
+        Personalization first = captor.getValue().getFirst();
+        assertThat(first.to()).isEqualTo("a@test.com");
+        assertThat(first.values()).containsEntry("name", "Ana &lt;Maria&gt;")
+                .containsEntry("unsubscribeUrl", "https://x/u?email=a@test.com&amp;token=t");
+
+        // So quem falhou volta, com o proprio nome
+        verify(deliveryPublisher).retry(new AnnouncementDeliveryEvent(
+                5, "Subject", "<p>Ola {{name}}</p><a href=\"{{unsubscribeUrl}}\">Sair</a>", List.of("b@test.com"),
+                Map.of("b@test.com", "Bia"), 1
+        ));
+    }
+
+    @Test
+    void execute_shouldDeferRateLimitedRecipients_withoutConsumingAnAttempt() {
+        List<String> recipients = List.of("a@test.com", "b@test.com", "c@test.com");
+        when(deliveryLedger.pending(5, recipients)).thenReturn(recipients);
+        when(deliveryEngine.broadcast("Subject", "Body", recipients)).thenReturn(new DeliveryReport(3, 1, 0, List.of(), List.of(
+                DeliveryResult.deferred("b@test.com", "rate limited", Duration.ofSeconds(30)),
+                DeliveryResult.deferred("c@test.com", "rate limited", Duration.ofSeconds(31))
+        )));
+
+        long before = System.currentTimeMillis();
+        useCase.execute(new AnnouncementDeliveryEvent(5, "Subject", "Body", recipients, 1));
+
+        // Adiados nao entram no ledger nem no retry; voltam na mesma tentativa, quando o primeiro slot libera
+        verify(deliveryLedger).markDelivered(5, List.of("a@test.com"));
+        verify(deliveryPublisher, never()).retry(any());
+
+        ArgumentCaptor<AnnouncementDeliveryEvent> captor = ArgumentCaptor.forClass(AnnouncementDeliveryEvent.class);
+        verify(deliveryPublisher).defer(captor.capture());
+        assertThat(captor.getValue().recipients()).containsExactly("b@test.com", "c@test.com");
+        assertThat(captor.getValue().attempt()).isEqualTo(1);
+        assertThat(captor.getValue().notBefore()).isBetween(before + 30_000, System.currentTimeMillis() + 30_000);
+    }
+
+    @Test
+    void execute_shouldDeferAgain_whenConsumedBeforeNotBefore() {
+        AnnouncementDeliveryEvent early = new AnnouncementDeliveryEvent(5, "Subject", "Body", List.of("a@test.com"), 0)
+                .deferFor(List.of("a@test.com"), System.currentTimeMillis() + 60_000);
+
+        useCase.execute(early);
+
+        verify(deliveryPublisher).defer(early);
+        verifyNoInteractions(deliveryEngine, deliveryLedger);
+    }
+}
@@ -1,9 +1,14 @@
 package com.undercontroll.application.usecase;
 
+import com.undercontroll.application.port.CustomersGateway;
+import com.undercontroll.application.port.EmailOutbox;
 import com.undercontroll.application.port.EmailService;
 import com.undercontroll.application.port.EmailTemplateLoader;
 import com.undercontroll.application.usecase.impl.UserCreatedImpl;
 import com.undercontroll.domain.events.UserCreatedEvent;
+import com.undercontroll.domain.exception.MailSendingException;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Recipient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,10 +17,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.undercontroll.domain.model.EmailEnvelope;
+
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.*;
 
@@ -25,9 +37,15 @@ class UserCreatedImplTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private EmailOutbox emailOutbox;
+
     @Mock
     private EmailTemplateLoader emailTemplateLoader;
 
+    @Mock
+    private CustomersGateway customersGateway;
+
     @InjectMocks
     private UserCreatedImpl useCase;
 
@@ -35,7 +53,8 @@ class UserCreatedImplTest {
 
     @BeforeEach
     void setUp() {
-        lenient().when(emailTemplateLoader.load("user_created.html")).thenReturn(TEMPLATE);
+        lenient().when(emailTemplateLoader.render(eq("user_created.html"), anyMap()))
+                .thenAnswer(invocation -> EmailTemplate.parse(TEMPLATE).render(invocation.getArgument(1)));
     }
 
     @Test
@@ -47,6 +66,15 @@ class UserCreatedImplTest {
         verify(emailService).sendEmail(eq("maria@teste.com"), contains("Bem-vindo"), anyString());
     }
 
+    @Test
+    void execute_shouldNotifyGatewayOfNewCustomer() {
+        UserCreatedEvent event = new UserCreatedEvent("Maria", "maria@teste.com", LocalDateTime.of(2026, 3, 30, 10, 30));
+
+        useCase.execute(event);
+
+        verify(customersGateway).onCustomerCreated(new Recipient("Maria", "maria@teste.com"));
+    }
+
     @Test
     void execute_shouldNotSendEmail_whenEventIsNull() {
         useCase.execute(null);
@@ -79,4 +107,45 @@ class UserCreatedImplTest {
         assertThat(body).contains("https://www.comercialirmaospelluci.com.br");
         assertThat(body).contains("mailto:comercialirmaopeluci@gmail.com");
     }
+
+    @Test
+    void execute_shouldThrow_whenSendFails() {
+        doThrow(new MailSendingException("Houve um erro ao enviar o email para maria@teste.com: Timed out"))
+                .when(emailService).sendEmail(anyString(), anyString(), anyString());
+        UserCreatedEvent event = new UserCreatedEvent("Maria", "maria@teste.com", LocalDateTime.now());
+
+        assertThatThrownBy(() -> useCase.execute(event))
+                .isInstanceOf(MailSendingException.class)
+                .hasMessageContaining("Timed out");
+    }
+
+    @Test
+    void executeAll_shouldQueueValidEventsInTheOutbox() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 30, 10, 30);
+
+        useCase.executeAll(Arrays.asList(
+                new UserCreatedEvent("Maria", "maria@teste.com", createdAt),
+                new UserCreatedEvent("Vazio", " ", createdAt),
+                null,
+                new UserCreatedEvent("Joao", "joao@teste.com", createdAt)
+        ));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmailEnvelope>> captor = ArgumentCaptor.forClass(List.class);
+        verify(emailOutbox).enqueue(captor.capture());
+        verifyNoInteractions(emailService);
+        verify(customersGateway, times(2)).onCustomerCreated(any());
+
+        assertThat(captor.getValue()).extracting(EmailEnvelope::to)
+                .containsExactly("maria@teste.com", "joao@teste.com");
+        assertThat(captor.getValue().get(0).body()).contains("Maria");
+        assertThat(captor.getValue().get(1).subject()).contains("Bem-vindo");
+    }
+
+    @Test
+    void executeAll_shouldNotQueue_whenNoValidEvents() {
+        useCase.executeAll(List.of(new UserCreatedEvent("Maria", "", LocalDateTime.now())));
+
+        verifyNoInteractions(emailOutbox);
+    }
 }
@@ -0,0 +1,63 @@
+package com.undercontroll.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailTemplateTest {
+
+    @Test
+    void render_shouldReplaceEveryPlaceholder() {
+        EmailTemplate template = EmailTemplate.parse("<h1>{{title}}</h1><p>{{content}}</p><small>{{title}}</small>");
+
+        String html = template.render(Map.of("title", "Aviso", "content", "Texto"));
+
+        assertThat(html).isEqualTo("<h1>Aviso</h1><p>Texto</p><small>Aviso</small>");
+    }
+
+    @Test
+    void render_shouldKeepPlaceholder_whenValueIsMissing() {
+        EmailTemplate template = EmailTemplate.parse("Ola {{name}}, {{unknown}}");
+
+        assertThat(template.render(Map.of("name", "Maria"))).isEqualTo("Ola Maria, {{unknown}}");
+    }
+
+    @Test
+    void render_shouldKeepBracesThatAreNotPlaceholders() {
+        EmailTemplate template = EmailTemplate.parse("a {{ not valid }} b {{x}} c {{");
+
+        assertThat(template.render(Map.of("x", "1"))).isEqualTo("a {{ not valid }} b 1 c {{");
+    }
+
+    @Test
+    void render_shouldReturnSource_whenTemplateHasNoPlaceholders() {
+        EmailTemplate template = EmailTemplate.parse("<p>static</p>");
+
+        assertThat(template.render(Map.of())).isEqualTo("<p>static</p>");
+    }
+
+    @Test
+    void render_shouldNotReinterpretPlaceholdersInsideValues() {
+        EmailTemplate template = EmailTemplate.parse("{{a}}|{{b}}");
+
+        assertThat(template.render(Map.of("a", "{{b}}", "b", "2"))).isEqualTo("{{b}}|2");
+    }
+
+    @Test
+    void equals_shouldCompareParsedContent() {
+        assertThat(EmailTemplate.parse("<p>{{name}}</p>")).isEqualTo(EmailTemplate.parse("<p>{{name}}</p>"))
+                .hasSameHashCodeAs(EmailTemplate.parse("<p>{{name}}</p>"));
+        assertThat(EmailTemplate.parse("<p>{{name}}</p>")).isNotEqualTo(EmailTemplate.parse("<p>{{email}}</p>"));
+    }
+
+    @Test
+    void escapePlaceholders_shouldKeepValuesFromBecomingPlaceholders_onReparse() {
+        String html = EmailTemplate.parse("<p>{{content}}</p>")
+                .render(Map.of("content", EmailTemplate.escapePlaceholders("Ola {{name}} {{{email}}}")));
+
+        assertThat(EmailTemplate.parse(html).placeholders()).isEmpty();
+        assertThat(html).isEqualTo("<p>Ola {&#123;name}} {&#123;{email}}}</p>");
+    }
+}
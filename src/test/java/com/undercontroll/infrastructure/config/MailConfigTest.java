@@ -0,0 +1,58 @@
+package com.undercontroll.infrastructure.config;
+
+import com.undercontroll.infrastructure.email.PooledJavaMailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailConfigTest {
+
+    private final MailPoolProperties poolProperties =
+            new MailPoolProperties(true, 2, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+    @Test
+    void mailSender_shouldCopySpringMailProperties_intoPooledSender() {
+        MailProperties mailProperties = new MailProperties();
+        mailProperties.setHost("smtp.test.com");
+        mailProperties.setPort(2525);
+        mailProperties.setUsername("user");
+        mailProperties.setPassword("secret");
+        mailProperties.setProtocol("smtps");
+        mailProperties.setDefaultEncoding(StandardCharsets.ISO_8859_1);
+        mailProperties.getProperties().put("mail.smtp.starttls.enable", "true");
+        mailProperties.getProperties().put("mail.smtp.timeout", "5000");
+
+        JavaMailSenderImpl sender = new MailConfig().mailSender(mailProperties, poolProperties, new SimpleMeterRegistry());
+
+        assertThat(sender).isInstanceOf(PooledJavaMailSender.class);
+        assertThat(sender.getHost()).isEqualTo("smtp.test.com");
+        assertThat(sender.getPort()).isEqualTo(2525);
+        assertThat(sender.getUsername()).isEqualTo("user");
+        assertThat(sender.getPassword()).isEqualTo("secret");
+        assertThat(sender.getProtocol()).isEqualTo("smtps");
+        assertThat(sender.getDefaultEncoding()).isEqualTo("ISO-8859-1");
+        assertThat(sender.getJavaMailProperties())
+                .containsEntry("mail.smtp.starttls.enable", "true")
+                .containsEntry("mail.smtp.timeout", "5000");
+    }
+
+    @Test
+    void mailSender_shouldKeepJavaMailDefaults_whenPortAndEncodingAreUnset() {
+        MailProperties mailProperties = new MailProperties();
+        mailProperties.setHost("smtp.test.com");
+        mailProperties.setDefaultEncoding(null);
+
+        JavaMailSenderImpl sender = new MailConfig().mailSender(mailProperties, poolProperties, new SimpleMeterRegistry());
+
+        assertThat(sender.getPort()).isEqualTo(JavaMailSenderImpl.DEFAULT_PORT);
+        assertThat(sender.getProtocol()).isEqualTo("smtp");
+        assertThat(sender.getDefaultEncoding()).isNull();
+        assertThat(sender.getJavaMailProperties()).isEmpty();
+    }
+}
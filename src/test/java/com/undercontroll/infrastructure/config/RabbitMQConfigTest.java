@@ -2,11 +2,26 @@ package com.undercontroll.infrastructure.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import com.undercontroll.infrastructure.messaging.retry.TieredRetryRecoverer;
 import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.autoconfigure.amqp.DirectRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -16,6 +31,8 @@ class RabbitMQConfigTest {
     private final RabbitMQConfig config = new RabbitMQConfig();
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final ConnectionFactory mockCF = mock(ConnectionFactory.class);
+    private final TieredRetryRecoverer recoverer = new TieredRetryRecoverer(
+            mock(RabbitTemplate.class), new RetryProperties(List.of(Duration.ofSeconds(10)), 2));
 
     @Test
     void emailQueue_shouldSetDeadLetterExchange_toRetryExchange() {
@@ -60,27 +77,182 @@ class RabbitMQConfigTest {
     }
 
     @Test
-    void emailBinding_shouldUseAnnouncementWildcardRoutingKey() {
-        Queue emailQueue = config.emailQueue();
+    void announcementBinding_shouldUseAnnouncementWildcardRoutingKey() {
+        Queue announcementQueue = config.announcementQueue();
         TopicExchange exchange = config.notificationExchange();
-        Binding binding = config.emailBinding(emailQueue, exchange);
+        Binding binding = config.announcementBinding(announcementQueue, exchange);
 
+        assertThat(binding.getDestination()).isEqualTo(RabbitMQConfig.ANNOUNCEMENT_QUEUE);
         assertThat(binding.getRoutingKey()).isEqualTo("announcement.*");
     }
 
     @Test
     void userCreatedBinding_shouldUseUserWildcardRoutingKey() {
-        Queue emailQueue = config.emailQueue();
+        Queue userQueue = config.userQueue();
         TopicExchange exchange = config.notificationExchange();
-        Binding binding = config.userCreatedBinding(emailQueue, exchange);
+        Binding binding = config.userCreatedBinding(userQueue, exchange);
 
+        assertThat(binding.getDestination()).isEqualTo(RabbitMQConfig.USER_QUEUE);
         assertThat(binding.getRoutingKey()).isEqualTo("user.*");
     }
 
+    @Test
+    void workQueues_shouldKeepTheirOriginalDeadLetterArguments() {
+        assertThat(config.announcementQueue().getArguments())
+                .containsEntry("x-dead-letter-exchange", "notification.retry")
+                .containsEntry("x-dead-letter-routing-key", "email.announcement.retry");
+        assertThat(config.userQueue().getArguments())
+                .containsEntry("x-dead-letter-exchange", "notification.retry")
+                .containsEntry("x-dead-letter-routing-key", "email.user.retry");
+        assertThat(config.deliveryQueue().getArguments())
+                .containsEntry("x-dead-letter-exchange", "notification.retry")
+                .containsEntry("x-dead-letter-routing-key", "email.delivery.retry");
+    }
+
+    @Test
+    void deliveryQueue_shouldHaveASingleActiveConsumer() {
+        assertThat(config.deliveryQueue().getArguments()).containsEntry("x-single-active-consumer", true);
+        assertThat(config.announcementQueue().getArguments()).doesNotContainKey("x-single-active-consumer");
+    }
+
+    @Test
+    void deliveryRetryQueue_shouldReturnRejectionsToDeliveryQueue() {
+        Queue queue = config.deliveryRetryQueue();
+
+        assertThat(queue.getArguments())
+                .containsEntry("x-message-ttl", 10000)
+                .containsEntry("x-dead-letter-exchange", "")
+                .containsEntry("x-dead-letter-routing-key", RabbitMQConfig.DELIVERY_QUEUE);
+    }
+
+    @Test
+    void retryTiers_shouldDeclareOneTtlQueuePerDelay_returningThroughReturnExchange() {
+        Declarables declarables = config.retryTiers(new RetryProperties(
+                List.of(Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofMinutes(10)), 4));
+
+        List<Queue> queues = declarables.getDeclarablesByType(Queue.class);
+        assertThat(queues).extracting(Queue::getName).containsExactly(
+                "notification.email.retry.10s", "notification.email.retry.1m", "notification.email.retry.10m");
+        assertThat(queues.get(1).getArguments())
+                .containsEntry("x-message-ttl", 60000L)
+                .containsEntry("x-dead-letter-exchange", "notification.retry.return")
+                .doesNotContainKey("x-dead-letter-routing-key");
+
+        List<Binding> bindings = declarables.getDeclarablesByType(Binding.class);
+        assertThat(bindings).anySatisfy(binding -> {
+            assertThat(binding.getExchange()).isEqualTo("notification.retry");
+            assertThat(binding.getDestination()).isEqualTo("notification.email.retry.1m");
+            assertThat(binding.getRoutingKey()).isEqualTo("1m.#");
+        });
+        assertThat(bindings).anySatisfy(binding -> {
+            assertThat(binding.getExchange()).isEqualTo("notification.retry.return");
+            assertThat(binding.getDestination()).isEqualTo(RabbitMQConfig.USER_QUEUE);
+            assertThat(binding.getRoutingKey()).isEqualTo("*." + RabbitMQConfig.USER_QUEUE);
+        });
+    }
+
+    @Test
+    void deliveryBinding_shouldRouteDeliveryMessages_toDeliveryQueue() {
+        Binding binding = config.deliveryBinding(config.deliveryQueue(), config.notificationExchange());
+
+        assertThat(binding.getDestination()).isEqualTo(RabbitMQConfig.DELIVERY_QUEUE);
+        assertThat(binding.getRoutingKey()).isEqualTo("email.delivery");
+    }
+
     @Test
     void jackson2JsonMessageConverter_shouldNotBeNull() {
         Jackson2JsonMessageConverter converter = config.jackson2JsonMessageConverter(objectMapper);
 
         assertThat(converter).isNotNull();
     }
+
+    @Test
+    void rabbitListenerContainerFactory_shouldApplySimpleListenerProperties() {
+        RabbitProperties properties = new RabbitProperties();
+        properties.getListener().getSimple().setConcurrency(3);
+        properties.getListener().getSimple().setMaxConcurrency(12);
+        properties.getListener().getSimple().setPrefetch(7);
+
+        AbstractRabbitListenerContainerFactory<?> factory = factory(properties);
+        SimpleMessageListenerContainer container = (SimpleMessageListenerContainer) factory.createListenerContainer();
+
+        assertThat(factory).isInstanceOf(SimpleRabbitListenerContainerFactory.class);
+        assertThat(factory.getAdviceChain()).hasSize(1);
+        assertThat(ReflectionTestUtils.getField(container, "concurrentConsumers")).isEqualTo(3);
+        assertThat(ReflectionTestUtils.getField(container, "maxConcurrentConsumers")).isEqualTo(12);
+        assertThat(ReflectionTestUtils.getField(container, "prefetchCount")).isEqualTo(7);
+    }
+
+    @Test
+    void rabbitListenerContainerFactory_shouldCreateDirectFactory_whenTypeIsDirect() {
+        RabbitProperties properties = new RabbitProperties();
+        properties.getListener().setType(RabbitProperties.ContainerType.DIRECT);
+        properties.getListener().getDirect().setConsumersPerQueue(4);
+
+        AbstractRabbitListenerContainerFactory<?> factory = factory(properties);
+        DirectMessageListenerContainer container = (DirectMessageListenerContainer) factory.createListenerContainer();
+
+        assertThat(factory).isInstanceOf(DirectRabbitListenerContainerFactory.class);
+        assertThat(ReflectionTestUtils.getField(container, "consumersPerQueue")).isEqualTo(4);
+    }
+
+    @Test
+    void perTypeFactories_shouldBeSizedIndependently() {
+        RabbitProperties properties = new RabbitProperties();
+        ListenerPoolProperties pools = new ListenerPoolProperties(
+                new ListenerPoolProperties.Pool(1, 2, 1, 1, Duration.ofSeconds(1)),
+                new ListenerPoolProperties.Pool(4, 16, 10, 1, Duration.ofSeconds(1)),
+                new ListenerPoolProperties.Pool(2, 4, 1, 1, Duration.ofSeconds(1))
+        );
+
+        SimpleMessageListenerContainer announcement = (SimpleMessageListenerContainer) config
+                .announcementListenerContainerFactory(mockCF, config.jackson2JsonMessageConverter(objectMapper), properties,
+                        new SimpleRabbitListenerContainerFactoryConfigurer(properties),
+                        new DirectRabbitListenerContainerFactoryConfigurer(properties), pools, recoverer)
+                .createListenerContainer();
+        SimpleMessageListenerContainer user = (SimpleMessageListenerContainer) config
+                .userListenerContainerFactory(mockCF, config.jackson2JsonMessageConverter(objectMapper), properties,
+                        new SimpleRabbitListenerContainerFactoryConfigurer(properties),
+                        new DirectRabbitListenerContainerFactoryConfigurer(properties), pools, recoverer)
+                .createListenerContainer();
+
+        assertThat(ReflectionTestUtils.getField(announcement, "maxConcurrentConsumers")).isEqualTo(2);
+        assertThat(ReflectionTestUtils.getField(announcement, "prefetchCount")).isEqualTo(1);
+        assertThat(ReflectionTestUtils.getField(user, "concurrentConsumers")).isEqualTo(4);
+        assertThat(ReflectionTestUtils.getField(user, "maxConcurrentConsumers")).isEqualTo(16);
+        assertThat(ReflectionTestUtils.getField(user, "prefetchCount")).isEqualTo(10);
+    }
+
+    @Test
+    void userListenerContainerFactory_shouldConsumeInBatches() {
+        RabbitProperties properties = new RabbitProperties();
+        ListenerPoolProperties pools = new ListenerPoolProperties(
+                new ListenerPoolProperties.Pool(1, 2, 1, 1, Duration.ofSeconds(1)),
+                new ListenerPoolProperties.Pool(2, 8, 10, 25, Duration.ofMillis(300)),
+                new ListenerPoolProperties.Pool(2, 4, 1, 1, Duration.ofSeconds(1))
+        );
+
+        AbstractRabbitListenerContainerFactory<?> factory = config.userListenerContainerFactory(
+                mockCF, config.jackson2JsonMessageConverter(objectMapper), properties,
+                new SimpleRabbitListenerContainerFactoryConfigurer(properties),
+                new DirectRabbitListenerContainerFactoryConfigurer(properties), pools, recoverer);
+        SimpleMessageListenerContainer container = (SimpleMessageListenerContainer) factory.createListenerContainer();
+
+        assertThat(ReflectionTestUtils.getField(factory, "batchListener")).isEqualTo(true);
+        assertThat(ReflectionTestUtils.getField(container, "consumerBatchEnabled")).isEqualTo(true);
+        assertThat(ReflectionTestUtils.getField(container, "batchSize")).isEqualTo(25);
+        assertThat(ReflectionTestUtils.getField(container, "receiveTimeout")).isEqualTo(300L);
+        assertThat(ReflectionTestUtils.getField(container, "prefetchCount")).isEqualTo(25);
+    }
+
+    private AbstractRabbitListenerContainerFactory<?> factory(RabbitProperties properties) {
+        return config.rabbitListenerContainerFactory(
+                mockCF,
+                config.jackson2JsonMessageConverter(objectMapper),
+                properties,
+                new SimpleRabbitListenerContainerFactoryConfigurer(properties),
+                new DirectRabbitListenerContainerFactoryConfigurer(properties),
+                recoverer
+        );
+    }
 }
@@ -0,0 +1,178 @@
+package com.undercontroll.infrastructure.delivery;
+
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryReport;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.DeliveryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+class ConcurrentDeliveryEngineTest {
+
+    private final EmailService emailService = mock(EmailService.class);
+
+    private ConcurrentDeliveryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(emailService.sendBatch(anyList())).thenAnswer(invocation -> sendAll(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private static List<DeliveryResult> sendAll(List<EmailEnvelope> batch) {
+        return batch.stream()
+                .map(envelope -> envelope.to().startsWith("fail")
+                        ? DeliveryResult.failed(envelope.to(), "SMTP error")
+                        : DeliveryResult.sent(envelope.to()))
+                .toList();
+    }
+
+    private static List<EmailEnvelope> envelopes(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new EmailEnvelope("user" + i + "@test.com", "Subject", "<p>Body</p>"))
+                .toList();
+    }
+
+    @Test
+    void deliver_shouldSendEveryEnvelope_andReportSuccessCount() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(4, 10, 0, 1, 100));
+
+        DeliveryReport report = engine.deliver(envelopes(50));
+
+        assertThat(report.total()).isEqualTo(50);
+        assertThat(report.sent()).isEqualTo(50);
+        assertThat(report.failed()).isZero();
+    }
+
+    @Test
+    void deliver_shouldSplitEnvelopes_inBatchesOfConfiguredSize() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(4, 10, 0, 1, 100));
+
+        engine.deliver(envelopes(25));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmailEnvelope>> captor = ArgumentCaptor.forClass(List.class);
+        verify(emailService, times(3)).sendBatch(captor.capture());
+        assertThat(captor.getAllValues()).extracting(List::size).containsExactlyInAnyOrder(10, 10, 5);
+    }
+
+    @Test
+    void deliver_shouldCollectFailures_withoutStoppingOtherSends() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(4, 2, 0, 1, 100));
+        List<EmailEnvelope> envelopes = List.of(
+                new EmailEnvelope("ok1@test.com", "Subject", "Body"),
+                new EmailEnvelope("fail@test.com", "Subject", "Body"),
+                new EmailEnvelope("ok2@test.com", "Subject", "Body")
+        );
+
+        DeliveryReport report = engine.deliver(envelopes);
+
+        assertThat(report.sent()).isEqualTo(2);
+        assertThat(report.failed()).isEqualTo(1);
+        assertThat(report.failures().get(0).recipient()).isEqualTo("fail@test.com");
+        assertThat(report.failures().get(0).error()).isEqualTo("SMTP error");
+    }
+
+    @Test
+    void deliver_shouldMarkWholeBatchAsFailed_whenSendBatchThrows() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(1, 5, 0, 1, 100));
+        reset(emailService);
+        when(emailService.sendBatch(anyList())).thenThrow(new IllegalStateException("connection refused"));
+
+        DeliveryReport report = engine.deliver(envelopes(5));
+
+        assertThat(report.sent()).isZero();
+        assertThat(report.failed()).isEqualTo(5);
+    }
+
+    @Test
+    void deliver_shouldNeverExceedMaxConcurrency() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(3, 1, 0, 1, 100));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(emailService.sendBatch(anyList())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return sendAll(invocation.getArgument(0));
+        });
+
+        engine.deliver(envelopes(30));
+
+        assertThat(peak.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void deliver_shouldKeepMaxConcurrency_onVirtualThreads() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(3, 1, 0, 1, 100), true);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger virtual = new AtomicInteger();
+        when(emailService.sendBatch(anyList())).thenAnswer(invocation -> {
+            if (Thread.currentThread().isVirtual()) {
+                virtual.incrementAndGet();
+            }
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return sendAll(invocation.getArgument(0));
+        });
+
+        DeliveryReport report = engine.deliver(envelopes(30));
+
+        assertThat(report.sent()).isEqualTo(30);
+        assertThat(virtual.get()).isEqualTo(30);
+        assertThat(peak.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void broadcast_shouldSendSameContent_toEveryRecipientInBatches() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(2, 2, 0, 1, 100));
+        String body = "<p>Body</p>";
+        when(emailService.sendBroadcast(eq("Subject"), same(body), anyList()))
+                .thenAnswer(invocation -> invocation.<List<String>>getArgument(2).stream().map(DeliveryResult::sent).toList());
+
+        DeliveryReport report = engine.broadcast("Subject", body, List.of("a@test.com", "b@test.com", "c@test.com"));
+
+        verify(emailService, times(2)).sendBroadcast(eq("Subject"), same(body), anyList());
+        assertThat(report.sent()).isEqualTo(3);
+    }
+
+    @Test
+    void deliver_shouldReturnEmptyReport_whenThereAreNoEnvelopes() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(2, 10, 0, 1, 100));
+
+        assertThat(engine.deliver(List.of())).isEqualTo(DeliveryReport.empty());
+        verify(emailService, never()).sendBatch(anyList());
+    }
+
+    @Test
+    void deliver_shouldForgetIdleHostLimiters_beyondTrackedHostLimit() {
+        engine = new ConcurrentDeliveryEngine(emailService, new DeliveryProperties(4, 50, 1_000_000, 10, 100));
+        int hosts = ConcurrentDeliveryEngine.MAX_TRACKED_HOSTS + 100;
+
+        DeliveryReport report = engine.deliver(IntStream.range(0, hosts)
+                .mapToObj(i -> new EmailEnvelope("user@domain" + i + ".com", "Subject", "<p>Body</p>"))
+                .toList());
+
+        assertThat(report.sent()).isEqualTo(hosts);
+        assertThat(engine.trackedHosts()).isLessThanOrEqualTo(ConcurrentDeliveryEngine.MAX_TRACKED_HOSTS);
+    }
+}
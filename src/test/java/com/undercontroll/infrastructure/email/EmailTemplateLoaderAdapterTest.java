@@ -1,14 +1,23 @@
 package com.undercontroll.infrastructure.email;
 
+import com.undercontroll.infrastructure.config.TemplateProperties;
 import com.undercontroll.infrastructure.resource_loader.EmailTemplateLoaderAdapter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class EmailTemplateLoaderAdapterTest {
 
-    private final EmailTemplateLoaderAdapter loader = new EmailTemplateLoaderAdapter();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmailTemplateLoaderAdapter loader = new EmailTemplateLoaderAdapter(new TemplateProperties(null, false), meterRegistry);
 
     @Test
     void load_shouldReturnTemplateContent_whenTemplateExists() {
@@ -24,4 +33,65 @@ class EmailTemplateLoaderAdapterTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Template not found");
     }
+
+    @Test
+    void compile_shouldRenderAllPlaceholdersOfBundledTemplate() {
+        String html = loader.compile("user_created.html").render(Map.of(
+                "name", "Maria",
+                "email", "maria@teste.com",
+                "createdAt", "30/03/2026 as 10:30",
+                "year", "2026",
+                "websiteUrl", "https://site",
+                "contactUrl", "mailto:contato"
+        ));
+
+        assertThat(html).contains("Maria", "maria@teste.com", "https://site");
+        assertThat(html).doesNotContain("{{");
+    }
+
+    @Test
+    void render_shouldRenderCompiledTemplate_andTimeItPerTemplate() {
+        String html = loader.render("user_created.html", Map.of("name", "Maria"));
+
+        assertThat(html).contains("Maria").contains("{{email}}");
+        assertThat(meterRegistry.get("notification.template.render").tag("template", "user_created.html").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void compile_shouldReturnCachedInstance_onRepeatedCalls() {
+        assertThat(loader.compile("announcement_created.html")).isSameAs(loader.compile("announcement_created.html"));
+    }
+
+    @Test
+    void warmUp_shouldLetExternalDirectoryOverrideClasspathTemplates(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("user_created.html"), "external {{name}}");
+        EmailTemplateLoaderAdapter externalLoader = new EmailTemplateLoaderAdapter(new TemplateProperties(directory, false));
+
+        externalLoader.warmUp();
+
+        assertThat(externalLoader.load("user_created.html")).isEqualTo("external {{name}}");
+        assertThat(externalLoader.load("announcement_created.html")).contains("{{title}}");
+    }
+
+    @Test
+    void watch_shouldReloadTemplate_whenFileChanges(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("custom.html");
+        Files.writeString(file, "v1 {{name}}");
+        EmailTemplateLoaderAdapter watchingLoader = new EmailTemplateLoaderAdapter(new TemplateProperties(directory, true));
+        watchingLoader.warmUp();
+
+        try {
+            Files.writeString(file, "v2 {{name}}");
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+            while (!watchingLoader.load("custom.html").startsWith("v2") && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+
+            assertThat(watchingLoader.compile("custom.html").render(Map.of("name", "Maria"))).isEqualTo("v2 Maria");
+        } finally {
+            watchingLoader.stopWatching();
+        }
+    }
 }
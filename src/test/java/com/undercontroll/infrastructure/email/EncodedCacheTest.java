@@ -0,0 +1,25 @@
+package com.undercontroll.infrastructure.email;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncodedCacheTest {
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsed_whenFull() throws Exception {
+        EncodedCache<String, String> cache = new EncodedCache<>(2);
+        AtomicInteger encodings = new AtomicInteger();
+
+        cache.get("a", () -> "A" + encodings.incrementAndGet());
+        cache.get("b", () -> "B" + encodings.incrementAndGet());
+        cache.get("a", () -> "A" + encodings.incrementAndGet());
+        cache.get("c", () -> "C" + encodings.incrementAndGet());
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a", () -> "A" + encodings.incrementAndGet())).isEqualTo("A1");
+        assertThat(cache.get("b", () -> "B" + encodings.incrementAndGet())).isEqualTo("B4");
+    }
+}
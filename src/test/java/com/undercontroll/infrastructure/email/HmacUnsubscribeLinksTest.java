@@ -0,0 +1,28 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.UnsubscribeProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HmacUnsubscribeLinksTest {
+
+    private static final String URL = "https://example.com/descadastro";
+
+    @Test
+    void linkFor_shouldSignTheLowercasedEmail() {
+        HmacUnsubscribeLinks links = new HmacUnsubscribeLinks(new UnsubscribeProperties(URL, "secret"));
+
+        String link = links.linkFor("Maria+news@Test.com");
+
+        assertThat(link).isEqualTo(URL + "?email=Maria%2Bnews%40Test.com&token=" + links.token("maria+news@test.com"));
+        assertThat(links.token("MARIA@test.com")).isEqualTo(links.token("maria@test.com"));
+    }
+
+    @Test
+    void linkFor_shouldFallBackToThePlainPage_whenSecretIsMissing() {
+        HmacUnsubscribeLinks links = new HmacUnsubscribeLinks(new UnsubscribeProperties(URL, " "));
+
+        assertThat(links.linkFor("maria@test.com")).isEqualTo(URL);
+    }
+}
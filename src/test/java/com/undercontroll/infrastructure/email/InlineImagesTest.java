@@ -0,0 +1,93 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.InlineImageProperties;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InlineImagesTest {
+
+    private static final String LOGO = "<img src=\"cid:Logo_Pelluci_Branca\">";
+
+    private static InlineImages inlineImages;
+
+    @BeforeAll
+    static void loadInlineImages() throws Exception {
+        inlineImages = new InlineImages(new InlineImageProperties(true, 192));
+        inlineImages.warmUp();
+    }
+
+    @Test
+    void partsFor_shouldAttachReferencedLogo_downscaledToMaxWidth() throws Exception {
+        List<MimeBodyPart> parts = inlineImages.partsFor(List.of("<p>Ola</p>", LOGO));
+
+        assertThat(parts).hasSize(1);
+        MimeBodyPart part = reparse(parts.getFirst());
+        assertThat(part.getContentID()).isEqualTo("<Logo_Pelluci_Branca>");
+        assertThat(part.getDisposition()).isEqualTo(Part.INLINE);
+        assertThat(part.isMimeType("image/png")).isTrue();
+
+        BufferedImage image = ImageIO.read(part.getInputStream());
+        assertThat(image.getWidth()).isEqualTo(192);
+        assertThat(image.getHeight()).isEqualTo(192);
+    }
+
+    @Test
+    void partsFor_shouldReturnNewPartPerMessage_overSameEncodedBytes() throws Exception {
+        MimeBodyPart first = inlineImages.partsFor(List.of(LOGO)).getFirst();
+        MimeBodyPart second = inlineImages.partsFor(List.of(LOGO)).getFirst();
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(write(first)).isEqualTo(write(second));
+    }
+
+    @Test
+    void partsFor_shouldSkipImages_notReferencedByHtml() throws Exception {
+        assertThat(inlineImages.partsFor(List.of("<p>Sem imagens</p>"))).isEmpty();
+    }
+
+    @Test
+    void partsFor_shouldAttachNothing_whenDisabled() throws Exception {
+        InlineImages disabled = new InlineImages(new InlineImageProperties(false, 192));
+        disabled.warmUp();
+
+        assertThat(disabled.partsFor(List.of(LOGO))).isEmpty();
+    }
+
+    // Como o cliente de email recebe a parte: cabecalhos e base64 relidos do texto
+    private static MimeBodyPart reparse(MimeBodyPart part) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wrap(part).writeTo(out);
+
+        MimeMessage message = new MimeMessage((Session) null, new ByteArrayInputStream(out.toByteArray()));
+        return (MimeBodyPart) ((MimeMultipart) message.getContent()).getBodyPart(0);
+    }
+
+    private static byte[] write(MimeBodyPart part) throws Exception {
+        wrap(part);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        part.writeTo(out);
+        return out.toByteArray();
+    }
+
+    // O saveChanges da mensagem e o que completa os cabecalhos da parte
+    private static MimeMessage wrap(MimeBodyPart part) throws Exception {
+        MimeMessage message = new MimeMessage((Session) null);
+        message.setContent(new MimeMultipart("related", part));
+        message.saveChanges();
+        return message;
+    }
+}
@@ -1,18 +1,41 @@
 package com.undercontroll.infrastructure.email;
 
 import com.undercontroll.domain.exception.MailSendingException;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.infrastructure.config.InlineImageProperties;
+import com.undercontroll.infrastructure.config.MailAsyncProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Part;
 import jakarta.mail.Session;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,12 +47,24 @@ class JavaMailAdapterTest {
     @Mock
     private JavaMailSender mailSender;
 
-    @InjectMocks
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private JavaMailAdapter service;
 
+    // Carregada uma vez para a classe: reduzir o logo do classpath e o passo caro da subida
+    private static InlineImages inlineImages;
+
+    @BeforeAll
+    static void loadInlineImages() throws Exception {
+        inlineImages = new InlineImages(new InlineImageProperties(true, 192));
+        inlineImages.warmUp();
+    }
+
     @BeforeEach
     void setUp() {
-        when(mailSender.createMimeMessage()).thenReturn(new MimeMessage((Session) null));
+        service = new JavaMailAdapter(mailSender, meterRegistry, new MailAsyncProperties(Duration.ofSeconds(5), 2), inlineImages);
+        lenient().when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
     }
 
     @Test
@@ -58,4 +93,300 @@ class JavaMailAdapterTest {
         assertThatThrownBy(() -> service.sendEmail("recipient@test.com", "Subject", "<p>Body</p>"))
                 .isInstanceOf(MailSendingException.class);
     }
+
+    @Test
+    void sendEmailAsync_shouldCompleteWithSentResult() {
+        DeliveryResult result = service.sendEmailAsync("recipient@test.com", "Subject", "<p>Body</p>").join();
+
+        assertThat(result).isEqualTo(DeliveryResult.sent("recipient@test.com"));
+        verify(mailSender).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void sendEmailAsync_shouldUseVirtualThreads_onlyWhenEnabled() {
+        List<Boolean> virtual = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> virtual.add(Thread.currentThread().isVirtual())).when(mailSender).send(any(MimeMessage.class));
+
+        service.sendEmailAsync("recipient@test.com", "Subject", "<p>Body</p>").join();
+        service.shutdown();
+        service = new JavaMailAdapter(mailSender, meterRegistry, new MailAsyncProperties(Duration.ofSeconds(5), 2), inlineImages, true);
+        service.sendEmailAsync("recipient@test.com", "Subject", "<p>Body</p>").join();
+
+        assertThat(virtual).containsExactly(false, true);
+    }
+
+    @Test
+    void sendEmailAsync_shouldCompleteWithFailedResult_whenMailSenderFails() {
+        doThrow(new MailSendException("SMTP error")).when(mailSender).send(any(MimeMessage.class));
+
+        DeliveryResult result = service.sendEmailAsync("recipient@test.com", "Subject", "<p>Body</p>").join();
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.error()).contains("SMTP error");
+    }
+
+    @Test
+    void sendEmailAsync_shouldFailAndInterruptSend_whenTimeoutExpires() throws Exception {
+        service = new JavaMailAdapter(mailSender, meterRegistry, new MailAsyncProperties(Duration.ofMillis(200), 2), inlineImages);
+        CountDownLatch interrupted = blockUntilInterrupted(new CountDownLatch(1));
+
+        DeliveryResult result = service.sendEmailAsync("recipient@test.com", "Subject", "<p>Body</p>").join();
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.error()).startsWith("Timed out");
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void sendEmailAsync_shouldInterruptSend_whenCancelled() throws Exception {
+        service = new JavaMailAdapter(mailSender, meterRegistry, new MailAsyncProperties(Duration.ofMinutes(1), 2), inlineImages);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = blockUntilInterrupted(started);
+
+        CompletableFuture<DeliveryResult> sending = service.sendEmailAsync("recipient@test.com", "Subject", "<p>Body</p>");
+        // Cancelar antes do send comecar so pularia o envio, sem interrupcao para observar
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        sending.cancel(true);
+
+        assertThat(sending).isCancelled();
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void sendBatch_shouldSendAllMessages_inSingleCall() {
+        List<EmailEnvelope> envelopes = List.of(
+                new EmailEnvelope("a@test.com", "Subject", "<p>Body</p>"),
+                new EmailEnvelope("b@test.com", "Subject", "<p>Body</p>")
+        );
+
+        List<DeliveryResult> results = service.sendBatch(envelopes);
+
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(captor.capture());
+        assertThat(captor.getValue()).hasSize(2);
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(true, true);
+    }
+
+    @Test
+    void sendBatch_shouldReportFailuresPerRecipient_withoutThrowing() {
+        doAnswer(invocation -> {
+            MimeMessage second = invocation.getArgument(1);
+            throw new MailSendException(Map.of(second, new RuntimeException("mailbox unavailable")));
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        List<DeliveryResult> results = service.sendBatch(List.of(
+                new EmailEnvelope("a@test.com", "Subject", "<p>Body</p>"),
+                new EmailEnvelope("b@test.com", "Subject", "<p>Body</p>")
+        ));
+
+        assertThat(results.get(0)).isEqualTo(DeliveryResult.sent("a@test.com"));
+        assertThat(results.get(1)).isEqualTo(DeliveryResult.failed("b@test.com", "mailbox unavailable"));
+        assertThat(meterRegistry.get("notification.email.results").tags("outcome", "success", "cause", "none").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.email.results").tags("outcome", "failure", "cause", "RuntimeException").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sendBatch_shouldMarkEveryRecipientAsFailed_whenConnectionFails() {
+        doThrow(new MailSendException("Mail server connection failed")).when(mailSender).send(any(MimeMessage[].class));
+
+        List<DeliveryResult> results = service.sendBatch(List.of(
+                new EmailEnvelope("a@test.com", "Subject", "<p>Body</p>"),
+                new EmailEnvelope("b@test.com", "Subject", "<p>Body</p>")
+        ));
+
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(false, false);
+    }
+
+    @Test
+    void sendBatch_shouldFailOnlyInvalidEnvelope_whenAddressCannotBeParsed() {
+        List<DeliveryResult> results = service.sendBatch(List.of(
+                new EmailEnvelope("broken<address", "Subject", "<p>Body</p>"),
+                new EmailEnvelope("b@test.com", "Subject", "<p>Body</p>")
+        ));
+
+        assertThat(results.get(0).success()).isFalse();
+        assertThat(results.get(1).success()).isTrue();
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+    }
+
+    @Test
+    void sendBroadcast_shouldShareEncodedBody_andVaryOnlyRecipient() throws Exception {
+        String body = "<p>Novo aviso ção</p>";
+
+        List<DeliveryResult> results = service.sendBroadcast("Aviso", body, List.of("a@test.com", "b@test.com"));
+
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender).send(captor.capture());
+        MimeMessage[] messages = captor.getValue();
+
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(true, true);
+        assertThat(messages[0].getAllRecipients()[0].toString()).isEqualTo("a@test.com");
+        assertThat(messages[1].getAllRecipients()[0].toString()).isEqualTo("b@test.com");
+        assertThat(messages[0].getSubject()).isEqualTo("Aviso");
+
+        String first = write(messages[0]);
+        String second = write(messages[1]);
+        assertThat(first.substring(first.indexOf("\r\n\r\n")))
+                .isEqualTo(second.substring(second.indexOf("\r\n\r\n")));
+        assertThat(first).contains("multipart/");
+    }
+
+    @Test
+    void sendBroadcast_shouldEncodeOnce_forRepeatedBatchesOfSameBody() {
+        String body = "<p>Body</p>";
+
+        service.sendBroadcast("Aviso", body, List.of("a@test.com"));
+        service.sendBroadcast("Aviso", body, List.of("b@test.com"));
+
+        verify(mailSender, times(1)).createMimeMessage();
+        verify(mailSender, times(2)).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void sendBroadcast_shouldEncodeEachAnnouncementOnce_whenChunksInterleave() {
+        // Cada fatia chega desserializada, entao o corpo e igual mas nao a mesma instancia
+        service.sendBroadcast("Aviso A", new String("<p>A</p>"), List.of("a@test.com"));
+        service.sendBroadcast("Aviso B", new String("<p>B</p>"), List.of("b@test.com"));
+        service.sendBroadcast("Aviso A", new String("<p>A</p>"), List.of("c@test.com"));
+        service.sendBroadcast("Aviso B", new String("<p>B</p>"), List.of("d@test.com"));
+
+        verify(mailSender, times(2)).createMimeMessage();
+    }
+
+    @Test
+    void sendPersonalized_shouldReuseEncoding_forEqualTemplatesParsedPerChunk() {
+        service.sendPersonalized("Aviso", EmailTemplate.parse("<p>Ola {{name}}</p>"), List.of(new Personalization("a@test.com", Map.of("name", "Ana"))));
+        service.sendPersonalized("Aviso", EmailTemplate.parse("<p>Ola {{name}}</p>"), List.of(new Personalization("b@test.com", Map.of("name", "Bia"))));
+
+        verify(mailSender, times(1)).createMimeMessage();
+    }
+
+    @Test
+    void sendBroadcast_shouldFailOnlyInvalidRecipient() {
+        List<DeliveryResult> results = service.sendBroadcast("Aviso", "<p>Body</p>", List.of("broken<address", "ok@test.com"));
+
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(false, true);
+    }
+
+    @Test
+    void sendPersonalized_shouldDecodeToRenderedTemplate_forEachRecipient() throws Exception {
+        // Linhas longas e acentos forcam quebras suaves e bytes codificados dentro dos trechos
+        EmailTemplate template = EmailTemplate.parse("<p>Olá, {{name}}!</p>\n<div>" + "Aviso de manutenção ".repeat(10)
+                + "</div>\n<a href=\"{{unsubscribeUrl}}\">Sair</a> {{unknown}} ");
+        List<Personalization> recipients = List.of(
+                new Personalization("a@test.com", Map.of("name", "João", "unsubscribeUrl", "https://x/u?email=a&amp;token=1")),
+                new Personalization("b@test.com", Map.of("name", "", "unsubscribeUrl", "https://x/u?email=b&amp;token=2"))
+        );
+
+        List<DeliveryResult> results = service.sendPersonalized("Aviso", template, recipients);
+
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender).send(captor.capture());
+        MimeMessage[] messages = captor.getValue();
+
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(true, true);
+        for (int i = 0; i < messages.length; i++) {
+            assertThat(messages[i].getAllRecipients()[0].toString()).isEqualTo(recipients.get(i).to());
+            assertThat(html(messages[i])).isEqualTo(template.render(recipients.get(i).values()).replace("\n", "\r\n"));
+        }
+    }
+
+    @Test
+    void sendPersonalized_shouldEncodeTemplateOnce_forRepeatedBatches() {
+        EmailTemplate template = EmailTemplate.parse("<p>Ola {{name}}</p>");
+
+        service.sendPersonalized("Aviso", template, List.of(new Personalization("a@test.com", Map.of("name", "Ana"))));
+        service.sendPersonalized("Aviso", template, List.of(new Personalization("b@test.com", Map.of("name", "Bia"))));
+
+        verify(mailSender, times(1)).createMimeMessage();
+        verify(mailSender, times(2)).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void sendBatch_shouldAttachReferencedLogo_asInlinePart() throws Exception {
+        service.sendBatch(List.of(
+                new EmailEnvelope("a@test.com", "Bem-vindo", "<img src=\"cid:Logo_Pelluci_Branca\"><p>Ola</p>"),
+                new EmailEnvelope("b@test.com", "Bem-vindo", "<p>Sem logo</p>")
+        ));
+
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender).send(captor.capture());
+
+        assertThat(write(captor.getValue()[0])).contains("Content-ID: <Logo_Pelluci_Branca>");
+        assertThat(write(captor.getValue()[1])).doesNotContain("Content-ID");
+    }
+
+    @Test
+    void sendPersonalized_shouldCarryLogo_inSharedEncodedPart() throws Exception {
+        EmailTemplate template = EmailTemplate.parse("<img src=\"cid:Logo_Pelluci_Branca\"><p>Ola {{name}}</p>");
+
+        service.sendPersonalized("Aviso", template, List.of(
+                new Personalization("a@test.com", Map.of("name", "Ana")),
+                new Personalization("b@test.com", Map.of("name", "Bia"))
+        ));
+
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender).send(captor.capture());
+
+        for (MimeMessage message : captor.getValue()) {
+            String raw = write(message);
+            assertThat(raw).contains("Content-ID: <Logo_Pelluci_Branca>");
+            assertThat(html(message)).contains("cid:Logo_Pelluci_Branca");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    // O envio fica preso como um SMTP que nao responde, ate a thread ser interrompida
+    private CountDownLatch blockUntilInterrupted(CountDownLatch started) {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new MailSendException("interrupted");
+            }
+            return null;
+        }).when(mailSender).send(any(MimeMessage.class));
+        return interrupted;
+    }
+
+    // Relê a mensagem como um cliente de email faria e devolve a parte HTML decodificada
+    private static String html(MimeMessage message) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return htmlPart(new MimeMessage((Session) null, new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    private static String htmlPart(Part part) throws Exception {
+        if (part.isMimeType("text/html")) {
+            return (String) part.getContent();
+        }
+
+        if (!(part.getContent() instanceof MimeMultipart multipart)) {
+            return null;
+        }
+
+        for (int i = 0; i < multipart.getCount(); i++) {
+            String html = htmlPart(multipart.getBodyPart(i));
+            if (html != null) {
+                return html;
+            }
+        }
+
+        return null;
+    }
+
+    private static String write(MimeMessage message) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,138 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PooledJavaMailSenderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Deque<Object> connections = new ArrayDeque<>();
+
+    // Cada conexao aberta pelo pool sai da fila: um Transport ou a excecao que o connect lancaria
+    private final PooledJavaMailSender sender = new PooledJavaMailSender(
+            new MailPoolProperties(true, 1, 100, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMillis(50)),
+            meterRegistry
+    ) {
+        @Override
+        protected Transport connectTransport() throws MessagingException {
+            Object next = connections.poll();
+            if (next instanceof MessagingException e) {
+                throw e;
+            }
+            return (Transport) next;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        sender.destroy();
+    }
+
+    private static MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setFrom(new InternetAddress("sender@test.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Subject");
+        message.setText("Body");
+        return message;
+    }
+
+    @Test
+    void send_shouldRecordOnlyFailedMessages_andKeepHealthyConnection() throws Exception {
+        Transport transport = mock(Transport.class);
+        when(transport.isConnected()).thenReturn(true);
+        connections.add(transport);
+
+        MimeMessage ok = message("a@test.com");
+        MimeMessage rejected = message("b@test.com");
+        doThrow(new MessagingException("550 mailbox unavailable"))
+                .when(transport).sendMessage(eq(rejected), any(Address[].class));
+
+        assertThatThrownBy(() -> sender.send(ok, rejected, message("c@test.com")))
+                .isInstanceOfSatisfying(MailSendException.class, e ->
+                        assertThat(e.getFailedMessages()).containsOnlyKeys(rejected));
+
+        verify(transport, times(3)).sendMessage(any(MimeMessage.class), any(Address[].class));
+        verify(transport, never()).close();
+        assertThat(meterRegistry.get("notification.smtp.send").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("notification.smtp.send").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void send_shouldEvictBrokenConnection_andReconnectForNextMessage() throws Exception {
+        Transport broken = mock(Transport.class);
+        Transport fresh = mock(Transport.class);
+        when(fresh.isConnected()).thenReturn(true);
+        doThrow(new MessagingException("connection reset")).when(broken).sendMessage(any(MimeMessage.class), any(Address[].class));
+        connections.add(broken);
+        connections.add(fresh);
+
+        MimeMessage first = message("a@test.com");
+        MimeMessage second = message("b@test.com");
+
+        assertThatThrownBy(() -> sender.send(first, second))
+                .isInstanceOfSatisfying(MailSendException.class, e ->
+                        assertThat(e.getFailedMessages()).containsOnlyKeys(first));
+
+        verify(broken).close();
+        verify(fresh).sendMessage(eq(second), any(Address[].class));
+    }
+
+    @Test
+    void send_shouldFailEveryRemainingMessage_whenServerIsUnreachable() throws Exception {
+        connections.add(new MessagingException("connection refused"));
+
+        MimeMessage first = message("a@test.com");
+        MimeMessage second = message("b@test.com");
+
+        assertThatThrownBy(() -> sender.send(first, second))
+                .isInstanceOfSatisfying(MailSendException.class, e ->
+                        assertThat(e.getFailedMessages()).containsOnlyKeys(first, second));
+    }
+
+    @Test
+    void send_shouldReportAuthenticationFailure() throws Exception {
+        connections.add(new AuthenticationFailedException("535 bad credentials"));
+
+        assertThatThrownBy(() -> sender.send(message("a@test.com")))
+                .isInstanceOf(MailAuthenticationException.class);
+    }
+
+    @Test
+    void send_shouldKeepCallerMessageId() throws Exception {
+        Transport transport = mock(Transport.class);
+        when(transport.isConnected()).thenReturn(true);
+        connections.add(transport);
+
+        MimeMessage message = message("a@test.com");
+        message.setHeader("Message-ID", "<fixed@test.com>");
+
+        sender.send(message);
+
+        assertThat(message.getMessageID()).isEqualTo("<fixed@test.com>");
+        assertThat(message.getSentDate()).isNotNull();
+    }
+}
@@ -0,0 +1,140 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.exception.RateLimitedException;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RateLimitedEmailServiceTest {
+
+    private final EmailService delegate = mock(EmailService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(delegate.sendBroadcast(anyString(), anyString(), anyList())).thenAnswer(invocation -> {
+            List<String> recipients = invocation.getArgument(2);
+            return recipients.stream().map(DeliveryResult::sent).toList();
+        });
+        when(delegate.sendBatch(anyList())).thenAnswer(invocation -> {
+            List<EmailEnvelope> envelopes = invocation.getArgument(0);
+            return envelopes.stream().map(envelope -> DeliveryResult.sent(envelope.to())).toList();
+        });
+    }
+
+    private RateLimitedEmailService service(int perMinute, int burst, int perDay, Duration maxWait) {
+        return new RateLimitedEmailService(delegate, new RateLimitProperties(true, perMinute, burst, perDay, maxWait), "sender@test.com", meterRegistry);
+    }
+
+    @Test
+    void sendBroadcast_shouldSendBurstInOneSlice() {
+        RateLimitedEmailService service = service(600, 3, 0, Duration.ZERO);
+
+        List<DeliveryResult> results = service.sendBroadcast("S", "B", List.of("a@test.com", "b@test.com", "c@test.com"));
+
+        verify(delegate).sendBroadcast("S", "B", List.of("a@test.com", "b@test.com", "c@test.com"));
+        assertThat(results).allMatch(DeliveryResult::success);
+    }
+
+    @Test
+    void sendBroadcast_shouldDeferOverflow_insteadOfSending() {
+        RateLimitedEmailService service = service(60, 2, 0, Duration.ZERO);
+
+        List<DeliveryResult> results = service.sendBroadcast("S", "B", List.of("a@test.com", "b@test.com", "c@test.com"));
+
+        verify(delegate).sendBroadcast("S", "B", List.of("a@test.com", "b@test.com"));
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(true, true, false);
+        assertThat(results.get(2).recipient()).isEqualTo("c@test.com");
+        assertThat(results.get(2).error()).isEqualTo(RateLimitedEmailService.RATE_LIMITED);
+        // Adiado nao e falha: volta quando o proximo slot do minuto libera (60/min = 1 a cada segundo)
+        assertThat(results.get(2).deferred()).isTrue();
+        assertThat(results.get(2).retryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(meterRegistry.get("notification.email.results").tags("outcome", "deferred", "cause", "rate_limit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sendBroadcast_shouldPaceBeyondBurst_whenWithinMaxWait() {
+        // 1200/min = um slot a cada 50ms; burst 1 faz o segundo e o terceiro esperarem
+        RateLimitedEmailService service = service(1200, 1, 0, Duration.ofSeconds(1));
+
+        long start = System.nanoTime();
+        List<DeliveryResult> results = service.sendBroadcast("S", "B", List.of("a@test.com", "b@test.com", "c@test.com"));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        verify(delegate, times(3)).sendBroadcast(eq("S"), eq("B"), anyList());
+        assertThat(results).allMatch(DeliveryResult::success);
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(90);
+    }
+
+    @Test
+    void sendBatch_shouldKeepResultsInInputOrder() {
+        RateLimitedEmailService service = service(60, 1, 0, Duration.ZERO);
+
+        List<DeliveryResult> results = service.sendBatch(List.of(
+                new EmailEnvelope("a@test.com", "S", "B"),
+                new EmailEnvelope("b@test.com", "S", "B")
+        ));
+
+        assertThat(results).extracting(DeliveryResult::recipient).containsExactly("a@test.com", "b@test.com");
+        assertThat(results).extracting(DeliveryResult::success).containsExactly(true, false);
+    }
+
+    @Test
+    void sendEmail_shouldRespectDailyQuota() {
+        RateLimitedEmailService service = service(600, 10, 1, Duration.ZERO);
+
+        service.sendEmail("a@test.com", "S", "B");
+
+        // A cota do dia manda no horario de volta, nao a do minuto
+        assertThatThrownBy(() -> service.sendEmail("b@test.com", "S", "B"))
+                .isInstanceOfSatisfying(RateLimitedException.class,
+                        e -> assertThat(e.getRetryAfter()).isGreaterThan(Duration.ofHours(1)));
+        verify(delegate, times(1)).sendEmail(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void sendEmailAsync_shouldDeferWithoutCallingDelegate_whenQuotaExhausted() {
+        when(delegate.sendEmailAsync(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(DeliveryResult.sent(invocation.getArgument(0))));
+        RateLimitedEmailService service = service(600, 10, 1, Duration.ZERO);
+
+        assertThat(service.sendEmailAsync("a@test.com", "S", "B").join().success()).isTrue();
+        DeliveryResult deferred = service.sendEmailAsync("b@test.com", "S", "B").join();
+
+        assertThat(deferred.error()).isEqualTo(RateLimitedEmailService.RATE_LIMITED);
+        assertThat(deferred.deferred()).isTrue();
+        verify(delegate, times(1)).sendEmailAsync(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void sendEmailAsync_shouldScheduleSend_insteadOfBlockingCaller() {
+        when(delegate.sendEmailAsync(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(DeliveryResult.sent(invocation.getArgument(0))));
+        // 600/min = um slot a cada 100ms; o segundo envio fica agendado
+        RateLimitedEmailService service = service(600, 1, 0, Duration.ofSeconds(1));
+
+        service.sendEmailAsync("a@test.com", "S", "B").join();
+        long start = System.nanoTime();
+        CompletableFuture<DeliveryResult> second = service.sendEmailAsync("b@test.com", "S", "B");
+        long returnedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(returnedMillis).isLessThan(50);
+        assertThat(second.join().success()).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isGreaterThanOrEqualTo(50);
+    }
+}
@@ -0,0 +1,119 @@
+package com.undercontroll.infrastructure.email;
+
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class SmtpTransportPoolTest {
+
+    private final SmtpTransportPool.Connector connector = mock(SmtpTransportPool.Connector.class);
+
+    private static MailPoolProperties properties(int size, int maxMessages, Duration validateAfterIdle) {
+        return new MailPoolProperties(true, size, maxMessages, validateAfterIdle, Duration.ofMinutes(1), Duration.ofMillis(50));
+    }
+
+    @Test
+    void borrow_shouldReuseReleasedConnection() throws Exception {
+        when(connector.connect()).thenReturn(mock(Transport.class));
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties(2, 100, Duration.ofMinutes(1)));
+
+        SmtpTransportPool.PooledTransport first = pool.borrow();
+        pool.release(first, false);
+        SmtpTransportPool.PooledTransport second = pool.borrow();
+
+        assertThat(second).isSameAs(first);
+        verify(connector, times(1)).connect();
+    }
+
+    @Test
+    void release_shouldCloseConnection_afterMaxMessages() throws Exception {
+        Transport transport = mock(Transport.class);
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties(1, 2, Duration.ofMinutes(1)));
+
+        SmtpTransportPool.PooledTransport pooled = pool.borrow();
+        pooled.recordSent();
+        pooled.recordSent();
+        pool.release(pooled, false);
+
+        verify(transport).close();
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    @Test
+    void release_shouldCloseConnection_whenBroken() throws Exception {
+        Transport transport = mock(Transport.class);
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties(1, 100, Duration.ofMinutes(1)));
+
+        pool.release(pool.borrow(), true);
+
+        verify(transport).close();
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    @Test
+    void borrow_shouldEvictStaleConnection_whenNoopFails() throws Exception {
+        Transport stale = mock(Transport.class);
+        Transport fresh = mock(Transport.class);
+        when(stale.isConnected()).thenReturn(false);
+        when(connector.connect()).thenReturn(stale, fresh);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties(1, 100, Duration.ZERO));
+
+        pool.release(pool.borrow(), false);
+        SmtpTransportPool.PooledTransport pooled = pool.borrow();
+
+        assertThat(pooled.transport()).isSameAs(fresh);
+        verify(stale).close();
+    }
+
+    @Test
+    void release_shouldCloseOldestIdleConnection_afterMaxIdle() throws Exception {
+        Transport old = mock(Transport.class);
+        Transport recent = mock(Transport.class);
+        when(connector.connect()).thenReturn(old, recent);
+        SmtpTransportPool pool = new SmtpTransportPool(connector,
+                new MailPoolProperties(true, 2, 100, Duration.ofMinutes(1), Duration.ofMillis(50), Duration.ofMillis(50)));
+
+        SmtpTransportPool.PooledTransport first = pool.borrow();
+        SmtpTransportPool.PooledTransport second = pool.borrow();
+        pool.release(first, false);
+        Thread.sleep(100);
+
+        // A mais antiga fica no fim da fila LIFO, onde o borrow nao alcanca
+        pool.release(second, false);
+
+        verify(old).close();
+        verify(recent, never()).close();
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void borrow_shouldTimeOut_whenAllConnectionsAreInUse() throws Exception {
+        when(connector.connect()).thenReturn(mock(Transport.class));
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties(1, 100, Duration.ofMinutes(1)));
+
+        pool.borrow();
+
+        assertThatThrownBy(pool::borrow).isInstanceOf(MessagingException.class);
+    }
+
+    @Test
+    void close_shouldCloseIdleConnections() throws Exception {
+        Transport transport = mock(Transport.class);
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties(1, 100, Duration.ofMinutes(1)));
+        pool.release(pool.borrow(), false);
+
+        pool.close();
+
+        verify(transport).close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.undercontroll.infrastructure.http.adapters;
+
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.config.CustomersProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CachedCustomersGatewayTest {
+
+    private final CustomersGatewayAdapter delegate = mock(CustomersGatewayAdapter.class);
+
+    private CachedCustomersGateway gateway(Duration ttl, int maxSize) {
+        return new CachedCustomersGateway(delegate, new CustomersProperties(2, new CustomersProperties.Cache(true, ttl, maxSize), null));
+    }
+
+    private void stubDelegate(List<Recipient> recipients) {
+        when(delegate.forEachRecipientPage(anyString(), any())).thenAnswer(invocation -> {
+            Consumer<List<Recipient>> consumer = invocation.getArgument(1);
+            consumer.accept(recipients);
+            return recipients.size();
+        });
+    }
+
+    private static List<Recipient> collect(CachedCustomersGateway gateway) {
+        List<Recipient> received = new ArrayList<>();
+        gateway.forEachRecipientPage("token", received::addAll);
+        return received;
+    }
+
+    @Test
+    void forEachRecipientPage_shouldServeSecondCallFromCache() {
+        stubDelegate(List.of(new Recipient("A", "a@test.com"), new Recipient("B", "b@test.com")));
+        CachedCustomersGateway gateway = gateway(Duration.ofMinutes(5), 100);
+
+        collect(gateway);
+        List<Recipient> second = collect(gateway);
+
+        assertThat(second).extracting(Recipient::email).containsExactly("a@test.com", "b@test.com");
+        verify(delegate, times(1)).forEachRecipientPage(anyString(), any());
+    }
+
+    @Test
+    void forEachRecipientPage_shouldRefetch_whenTtlExpired() {
+        stubDelegate(List.of(new Recipient("A", "a@test.com")));
+        CachedCustomersGateway gateway = gateway(Duration.ZERO, 100);
+
+        collect(gateway);
+        collect(gateway);
+
+        verify(delegate, times(2)).forEachRecipientPage(anyString(), any());
+    }
+
+    @Test
+    void forEachRecipientPage_shouldNotCache_whenListExceedsMaxSize() {
+        stubDelegate(List.of(new Recipient("A", "a@test.com"), new Recipient("B", "b@test.com")));
+        CachedCustomersGateway gateway = gateway(Duration.ofMinutes(5), 1);
+
+        collect(gateway);
+        collect(gateway);
+
+        verify(delegate, times(2)).forEachRecipientPage(anyString(), any());
+    }
+
+    @Test
+    void onCustomerCreated_shouldAppendToCachedList_withoutRefetching() {
+        stubDelegate(List.of(new Recipient("A", "a@test.com")));
+        CachedCustomersGateway gateway = gateway(Duration.ofMinutes(5), 100);
+        collect(gateway);
+
+        gateway.onCustomerCreated(new Recipient("New", "new@test.com"));
+        gateway.onCustomerCreated(new Recipient("A", "A@test.com"));
+
+        assertThat(collect(gateway)).extracting(Recipient::email).containsExactly("a@test.com", "new@test.com");
+        verify(delegate, times(1)).forEachRecipientPage(anyString(), any());
+    }
+
+    @Test
+    void forEachRecipientPage_shouldNotCachePartialList_whenFetchFails() {
+        when(delegate.forEachRecipientPage(anyString(), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<List<Recipient>> consumer = invocation.getArgument(1);
+                    consumer.accept(List.of(new Recipient("A", "a@test.com")));
+                    throw new IllegalStateException("page 1 failed");
+                })
+                .thenAnswer(invocation -> {
+                    Consumer<List<Recipient>> consumer = invocation.getArgument(1);
+                    consumer.accept(List.of(new Recipient("A", "a@test.com"), new Recipient("B", "b@test.com")));
+                    return 2;
+                });
+        CachedCustomersGateway gateway = gateway(Duration.ofMinutes(5), 100);
+
+        assertThatThrownBy(() -> collect(gateway)).hasMessage("page 1 failed");
+
+        assertThat(collect(gateway)).extracting(Recipient::email).containsExactly("a@test.com", "b@test.com");
+        verify(delegate, times(2)).forEachRecipientPage(anyString(), any());
+    }
+
+    @Test
+    void onCustomerCreated_shouldDropTheCache_whenItReachesMaxSize() {
+        stubDelegate(List.of(new Recipient("A", "a@test.com")));
+        CachedCustomersGateway gateway = gateway(Duration.ofMinutes(5), 1);
+        collect(gateway);
+
+        gateway.onCustomerCreated(new Recipient("New", "new@test.com"));
+        collect(gateway);
+
+        verify(delegate, times(2)).forEachRecipientPage(anyString(), any());
+    }
+
+    @Test
+    void invalidate_shouldForceRefetch() {
+        stubDelegate(List.of(new Recipient("A", "a@test.com")));
+        CachedCustomersGateway gateway = gateway(Duration.ofMinutes(5), 100);
+        collect(gateway);
+
+        gateway.invalidate();
+        collect(gateway);
+
+        verify(delegate, times(2)).forEachRecipientPage(anyString(), any());
+    }
+}
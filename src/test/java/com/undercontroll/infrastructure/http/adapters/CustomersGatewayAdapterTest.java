@@ -0,0 +1,131 @@
+package com.undercontroll.infrastructure.http.adapters;
+
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.config.CustomersProperties;
+import com.undercontroll.infrastructure.http.client.CustomersClient;
+import feign.FeignException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CustomersGatewayAdapterTest {
+
+    private final CustomersClient customersClient = mock(CustomersClient.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CustomersGatewayAdapter adapter = new CustomersGatewayAdapter(customersClient, new CustomersProperties(
+            2,
+            new CustomersProperties.Cache(false, Duration.ZERO, 0),
+            new CustomersProperties.Retry(3, Duration.ofMillis(1), 2, Duration.ofMillis(5))
+    ), meterRegistry);
+
+    private static Recipient recipient(String email) {
+        return new Recipient("Name", email);
+    }
+
+    @Test
+    void forEachRecipientPage_shouldFetchPagesUntilEmptyPage() {
+        when(customersClient.getRecipientsPage("Bearer token", 0, 2)).thenReturn(List.of(recipient("a@test.com"), recipient("b@test.com")));
+        when(customersClient.getRecipientsPage("Bearer token", 1, 2)).thenReturn(List.of(recipient("c@test.com")));
+        List<List<Recipient>> pages = new ArrayList<>();
+
+        int total = adapter.forEachRecipientPage("token", pages::add);
+
+        assertThat(total).isEqualTo(3);
+        assertThat(pages).hasSize(2);
+        verify(customersClient, times(1)).getRecipientsPage("Bearer token", 2, 2);
+        verify(customersClient, never()).getRecipientsPage(anyString(), eq(3), anyInt());
+        assertThat(meterRegistry.get("notification.customers.fetch").tag("outcome", "success").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("notification.customers.fetched").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void forEachRecipientPage_shouldKeepPaging_whenServerCapsPageSize() {
+        when(customersClient.getRecipientsPage("Bearer token", 0, 2)).thenReturn(List.of(recipient("a@test.com")));
+        when(customersClient.getRecipientsPage("Bearer token", 1, 2)).thenReturn(List.of(recipient("b@test.com")));
+        when(customersClient.getRecipientsPage("Bearer token", 2, 2)).thenReturn(List.of(recipient("c@test.com")));
+        List<List<Recipient>> pages = new ArrayList<>();
+
+        int total = adapter.forEachRecipientPage("token", pages::add);
+
+        assertThat(total).isEqualTo(3);
+        assertThat(pages).extracting(page -> page.get(0).email())
+                .containsExactly("a@test.com", "b@test.com", "c@test.com");
+        verify(customersClient, times(1)).getRecipientsPage("Bearer token", 3, 2);
+    }
+
+    @Test
+    void forEachRecipientPage_shouldStop_whenPageIsEmptyOrNull() {
+        when(customersClient.getRecipientsPage("Bearer token", 0, 2)).thenReturn(null);
+        List<List<Recipient>> pages = new ArrayList<>();
+
+        int total = adapter.forEachRecipientPage("token", pages::add);
+
+        assertThat(total).isZero();
+        assertThat(pages).isEmpty();
+    }
+
+    @Test
+    void forEachRecipientPage_shouldStop_whenServerIgnoresPagination() {
+        when(customersClient.getRecipientsPage(eq("Bearer token"), anyInt(), eq(2)))
+                .thenReturn(List.of(recipient("a@test.com"), recipient("b@test.com")));
+        List<List<Recipient>> pages = new ArrayList<>();
+
+        int total = adapter.forEachRecipientPage("token", pages::add);
+
+        assertThat(total).isEqualTo(2);
+        assertThat(pages).hasSize(1);
+    }
+
+    @Test
+    void forEachRecipientPage_shouldRethrowFeignException_afterRetryingThePage() {
+        FeignException feignException = mock(FeignException.class);
+        when(customersClient.getRecipientsPage(anyString(), anyInt(), anyInt())).thenThrow(feignException);
+
+        assertThatThrownBy(() -> adapter.forEachRecipientPage("token", page -> { }))
+                .isSameAs(feignException);
+        verify(customersClient, times(3)).getRecipientsPage("Bearer token", 0, 2);
+    }
+
+    @Test
+    void forEachRecipientPage_shouldRetryOnlyTheFailedPage() {
+        FeignException feignException = mock(FeignException.class);
+        when(customersClient.getRecipientsPage("Bearer token", 0, 2)).thenReturn(List.of(recipient("a@test.com"), recipient("b@test.com")));
+        when(customersClient.getRecipientsPage("Bearer token", 1, 2))
+                .thenThrow(feignException)
+                .thenReturn(List.of(recipient("c@test.com")));
+        List<List<Recipient>> pages = new ArrayList<>();
+
+        int total = adapter.forEachRecipientPage("token", pages::add);
+
+        assertThat(total).isEqualTo(3);
+        assertThat(pages).hasSize(2);
+        verify(customersClient, times(1)).getRecipientsPage("Bearer token", 0, 2);
+        verify(customersClient, times(2)).getRecipientsPage("Bearer token", 1, 2);
+        assertThat(meterRegistry.get("notification.customers.fetch").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void forEachRecipientPage_shouldPropagateUnexpectedErrors_insteadOfEndingThePagination() {
+        when(customersClient.getRecipientsPage("Bearer token", 0, 2)).thenReturn(List.of(recipient("a@test.com"), recipient("b@test.com")));
+        when(customersClient.getRecipientsPage("Bearer token", 1, 2)).thenThrow(new IllegalStateException("decoder failed"));
+        List<List<Recipient>> pages = new ArrayList<>();
+
+        assertThatThrownBy(() -> adapter.forEachRecipientPage("token", pages::add))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("decoder failed");
+        assertThat(pages).hasSize(1);
+        verify(customersClient, times(1)).getRecipientsPage("Bearer token", 1, 2);
+    }
+}
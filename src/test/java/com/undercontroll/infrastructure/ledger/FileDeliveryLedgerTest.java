@@ -0,0 +1,180 @@
+package com.undercontroll.infrastructure.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileDeliveryLedgerTest {
+
+    // Cabecalho de 8 bytes, registros de 16 (impressao, anuncio, minuto)
+    private static final long HEADER = Long.BYTES;
+    private static final long RECORD = 16;
+
+    @TempDir
+    Path dir;
+
+    private final MutableClock clock = new MutableClock();
+
+    private FileDeliveryLedger open(Path file, long maxEntries) throws Exception {
+        return new FileDeliveryLedger(file, maxEntries, Duration.ofDays(3), Duration.ZERO, false, clock);
+    }
+
+    @Test
+    void pending_shouldExcludeRecipientsAlreadyDelivered_forSameAnnouncement() throws Exception {
+        try (FileDeliveryLedger ledger = open(dir.resolve("ledger.bin"), 1000)) {
+            ledger.markDelivered(1, List.of("a@test.com", "B@Test.com"));
+
+            assertThat(ledger.pending(1, List.of("a@test.com", "b@test.com", "c@test.com")))
+                    .containsExactly("c@test.com");
+            assertThat(ledger.pending(2, List.of("a@test.com"))).containsExactly("a@test.com");
+        }
+    }
+
+    @Test
+    void shouldReloadEntries_afterRestart() throws Exception {
+        Path file = dir.resolve("ledger.bin");
+        try (FileDeliveryLedger ledger = open(file, 1000)) {
+            ledger.markDelivered(7, List.of("a@test.com", "b@test.com"));
+            ledger.markDelivered(7, List.of("a@test.com"));
+        }
+
+        try (FileDeliveryLedger reopened = open(file, 1000)) {
+            assertThat(reopened.size()).isEqualTo(2);
+            assertThat(reopened.pending(7, List.of("a@test.com", "b@test.com"))).isEmpty();
+        }
+        assertThat(Files.size(file)).isEqualTo(HEADER + 2 * RECORD);
+    }
+
+    @Test
+    void shouldDropPartialTrailingRecord_onLoad() throws Exception {
+        Path file = dir.resolve("ledger.bin");
+        try (FileDeliveryLedger ledger = open(file, 1000)) {
+            ledger.markDelivered(1, List.of("a@test.com"));
+        }
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (FileDeliveryLedger reopened = open(file, 1000)) {
+            assertThat(reopened.size()).isEqualTo(1);
+            assertThat(reopened.pending(1, List.of("a@test.com"))).isEmpty();
+        }
+        assertThat(Files.size(file)).isEqualTo(HEADER + RECORD);
+    }
+
+    @Test
+    void shouldForgetLeastRecentAnnouncements_whenAboveMaxEntries() throws Exception {
+        try (FileDeliveryLedger ledger = open(dir.resolve("ledger.bin"), 2)) {
+            ledger.markDelivered(1, List.of("old@test.com"));
+            clock.advance(Duration.ofMinutes(1));
+            ledger.markDelivered(2, List.of("new1@test.com", "new2@test.com"));
+
+            assertThat(ledger.size()).isEqualTo(2);
+            assertThat(ledger.pending(1, List.of("old@test.com"))).containsExactly("old@test.com");
+            assertThat(ledger.pending(2, List.of("new1@test.com", "new2@test.com"))).isEmpty();
+        }
+    }
+
+    @Test
+    void compact_shouldForgetExpiredAnnouncements_andShrinkTheFile() throws Exception {
+        Path file = dir.resolve("ledger.bin");
+        try (FileDeliveryLedger ledger = open(file, 1000)) {
+            ledger.markDelivered(1, List.of("a@test.com", "b@test.com"));
+            clock.advance(Duration.ofDays(2));
+            ledger.markDelivered(2, List.of("c@test.com"));
+            clock.advance(Duration.ofDays(2));
+
+            ledger.compact();
+
+            assertThat(ledger.size()).isEqualTo(1);
+            assertThat(ledger.pending(1, List.of("a@test.com"))).containsExactly("a@test.com");
+            assertThat(ledger.pending(2, List.of("c@test.com"))).isEmpty();
+            assertThat(Files.size(file)).isEqualTo(HEADER + RECORD);
+
+            // O arquivo compactado continua aceitando escrita
+            ledger.markDelivered(2, List.of("d@test.com"));
+        }
+
+        try (FileDeliveryLedger reopened = open(file, 1000)) {
+            assertThat(reopened.pending(2, List.of("c@test.com", "d@test.com"))).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldSkipExpiredRecords_onLoad() throws Exception {
+        Path file = dir.resolve("ledger.bin");
+        try (FileDeliveryLedger ledger = open(file, 1000)) {
+            ledger.markDelivered(1, List.of("a@test.com"));
+        }
+        clock.advance(Duration.ofDays(4));
+
+        try (FileDeliveryLedger reopened = open(file, 1000)) {
+            assertThat(reopened.size()).isZero();
+        }
+        assertThat(Files.size(file)).isEqualTo(HEADER);
+    }
+
+    @Test
+    void shouldRefuseFile_withoutLedgerHeader() throws Exception {
+        Path file = dir.resolve("ledger.bin");
+        byte[] content = ByteBuffer.allocate(2 * Long.BYTES).putLong(42).putLong(43).array();
+        Files.write(file, content);
+
+        assertThatThrownBy(() -> open(file, 1000))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("is not a delivery ledger");
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+    }
+
+    @Test
+    void shouldGrowIndex_withLargeAnnouncement() throws Exception {
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            recipients.add("user" + i + "@test.com");
+        }
+
+        try (FileDeliveryLedger ledger = open(dir.resolve("ledger.bin"), 100000)) {
+            ledger.markDelivered(3, recipients);
+
+            assertThat(ledger.size()).isEqualTo(5000);
+            assertThat(ledger.pending(3, recipients)).isEmpty();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -9,6 +9,10 @@ import com.undercontroll.domain.events.EmailEvent;
 import com.undercontroll.domain.events.UserCreatedEvent;
 import com.undercontroll.application.usecase.AnnouncementCreatedPort;
 import com.undercontroll.application.usecase.UserCreatedPort;
+import com.undercontroll.application.usecase.AnnouncementDeliveryPort;
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -18,6 +22,8 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -33,12 +39,18 @@ class EmailConsumerTest {
     @Mock
     private UserCreatedPort userCreatedPort;
 
+    @Mock
+    private AnnouncementDeliveryPort announcementDeliveryPort;
+
     // Real ObjectMapper with JavaTimeModule so convertValue() actually works
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule())
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private EmailConsumer consumer;
 
@@ -93,4 +105,54 @@ class EmailConsumerTest {
 
         verify(userCreatedPort, times(1)).execute(any(UserCreatedEvent.class));
     }
+
+    @Test
+    void listenUserEvents_shouldHandWholeBatchToPort_inOneCall() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 30, 11, 15);
+        List<EmailEvent> events = List.of(
+                new EmailEvent("main-service", EmailEventType.USER_CREATED, new UserCreatedEvent("Maria", "maria@teste.com", createdAt), createdAt),
+                new EmailEvent("main-service", EmailEventType.USER_CREATED, new UserCreatedEvent("Joao", "joao@teste.com", createdAt), createdAt)
+        );
+
+        consumer.listenUserEvents(events);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserCreatedEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userCreatedPort, times(1)).executeAll(captor.capture());
+        verify(userCreatedPort, never()).execute(any());
+        assertThat(captor.getValue()).extracting(UserCreatedEvent::email)
+                .containsExactly("maria@teste.com", "joao@teste.com");
+    }
+
+    @Test
+    void listenUserEvents_shouldRouteOtherTypes_individually() {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 15, 10, 30);
+        AnnouncementCreatedEvent data = new AnnouncementCreatedEvent(42, "Test Title", "Test Content", "UPDATES", now, "token");
+
+        consumer.listenUserEvents(List.of(new EmailEvent("main-service", EmailEventType.ANNOUNCEMENT_CREATED, data, now)));
+
+        verify(announcementCreatedPort).execute(any(AnnouncementCreatedEvent.class));
+        verify(userCreatedPort, never()).executeAll(any());
+    }
+
+    @Test
+    void listen_shouldRecordConsumeLatencyAndQueueLag_perType() {
+        LocalDateTime publishedAt = LocalDateTime.now().minusSeconds(5);
+        UserCreatedEvent data = new UserCreatedEvent("Maria", "maria@teste.com", publishedAt);
+
+        consumer.listen(new EmailEvent("main-service", EmailEventType.USER_CREATED, data, publishedAt));
+
+        assertThat(meterRegistry.get("notification.consume").tags("type", "USER_CREATED", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.queue.lag").tag("type", "USER_CREATED").timer().totalTime(TimeUnit.SECONDS)).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    void listenDeliveries_shouldExecuteDeliveryPort() {
+        AnnouncementDeliveryEvent event = new AnnouncementDeliveryEvent(42, "Subject", "Body", List.of("a@test.com"));
+
+        consumer.listenDeliveries(event);
+
+        verify(announcementDeliveryPort).execute(event);
+        verifyNoInteractions(announcementCreatedPort, userCreatedPort);
+    }
 }
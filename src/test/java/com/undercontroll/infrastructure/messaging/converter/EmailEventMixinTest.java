@@ -0,0 +1,70 @@
+package com.undercontroll.infrastructure.messaging.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.undercontroll.domain.enums.EmailEventType;
+import com.undercontroll.domain.events.AnnouncementCreatedEvent;
+import com.undercontroll.domain.events.EmailEvent;
+import com.undercontroll.domain.events.UserCreatedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailEventMixinTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .addMixIn(EmailEvent.class, EmailEventMixin.class)
+            .build();
+
+    private final Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter(objectMapper);
+
+    private EmailEvent fromBody(String json) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setInferredArgumentType(EmailEvent.class);
+        return (EmailEvent) converter.fromMessage(new Message(json.getBytes(StandardCharsets.UTF_8), properties));
+    }
+
+    @Test
+    void fromMessage_shouldMaterializeAnnouncementPayload_fromTypeDiscriminator() {
+        EmailEvent event = fromBody("""
+                {"service":"main-service","type":"ANNOUNCEMENT_CREATED",
+                 "data":{"id":42,"title":"Aviso","content":"Conteudo","type":"UPDATES","publishedAt":"2024-03-15T10:30:00","token":"t"},
+                 "timestamp":"2024-03-15T10:30:00"}
+                """);
+
+        assertThat(event.type()).isEqualTo(EmailEventType.ANNOUNCEMENT_CREATED);
+        assertThat(event.data()).isEqualTo(new AnnouncementCreatedEvent(
+                42, "Aviso", "Conteudo", "UPDATES", LocalDateTime.of(2024, 3, 15, 10, 30), "t"));
+    }
+
+    @Test
+    void fromMessage_shouldMaterializeUserPayload_whenDataComesBeforeType() {
+        EmailEvent event = fromBody("""
+                {"service":"main-service",
+                 "data":{"name":"Maria","email":"maria@teste.com","createdAt":"2026-03-30T11:15:00"},
+                 "type":"USER_CREATED","timestamp":"2026-03-30T11:15:00"}
+                """);
+
+        assertThat(event.type()).isEqualTo(EmailEventType.USER_CREATED);
+        assertThat(event.data()).isEqualTo(new UserCreatedEvent("Maria", "maria@teste.com", LocalDateTime.of(2026, 3, 30, 11, 15)));
+    }
+
+    @Test
+    void toMessage_shouldKeepPublishedShape_withSingleTypeField() throws Exception {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 30, 11, 15);
+        EmailEvent event = new EmailEvent("main-service", EmailEventType.USER_CREATED, new UserCreatedEvent("Maria", "maria@teste.com", now), now);
+
+        String json = objectMapper.writeValueAsString(event);
+
+        assertThat(json.split("\"type\"", -1)).hasSize(2);
+        assertThat(fromBody(json)).isEqualTo(event);
+    }
+}
@@ -0,0 +1,96 @@
+package com.undercontroll.infrastructure.messaging.producer;
+
+import com.undercontroll.domain.events.AnnouncementDeliveryEvent;
+import com.undercontroll.domain.model.Recipient;
+import com.undercontroll.infrastructure.config.DeliveryProperties;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import com.undercontroll.infrastructure.messaging.retry.TieredRetryRecoverer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RabbitDeliveryPublisherTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final RabbitDeliveryPublisher publisher =
+            new RabbitDeliveryPublisher(rabbitTemplate, new DeliveryProperties(8, 20, 0, 1, 2),
+                    new RetryProperties(List.of(Duration.ofSeconds(10), Duration.ofMinutes(1)), 3));
+
+    @Test
+    void publish_shouldSplitRecipients_intoChunkedDeliveryMessages() {
+        int published = publisher.publish(9, "Subject", "Body", List.of(
+                new Recipient("Ana", "a@test.com"), new Recipient(null, "b@test.com"), new Recipient("Caio", "c@test.com")
+        ));
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitTemplate, times(2)).convertAndSend(
+                eq(RabbitMQConfig.NOTIFICATION_EXCHANGE), eq(RabbitMQConfig.DELIVERY_ROUTING), captor.capture());
+
+        assertThat(published).isEqualTo(2);
+        assertThat(captor.getAllValues()).containsExactly(
+                new AnnouncementDeliveryEvent(9, "Subject", "Body", List.of("a@test.com", "b@test.com"), Map.of("a@test.com", "Ana"), 0),
+                new AnnouncementDeliveryEvent(9, "Subject", "Body", List.of("c@test.com"), Map.of("c@test.com", "Caio"), 0)
+        );
+    }
+
+    @Test
+    void publish_shouldNotSendAnything_whenNoRecipients() {
+        assertThat(publisher.publish(9, "Subject", "Body", List.of())).isZero();
+
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void retry_shouldPublishFailedRecipients_toDelayTierOfDeliveryQueue() {
+        AnnouncementDeliveryEvent retry = new AnnouncementDeliveryEvent(9, "Subject", "Body", List.of("a@test.com"), 2);
+
+        publisher.retry(retry);
+
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq("notification.retry"), eq("1m." + RabbitMQConfig.DELIVERY_QUEUE),
+                eq(retry), postProcessor.capture());
+
+        Message message = postProcessor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        assertThat(message.getMessageProperties().<Integer>getHeader(TieredRetryRecoverer.ATTEMPTS_HEADER)).isEqualTo(2);
+    }
+
+    @Test
+    void retry_shouldSendToDeliveryDlq_afterMaxAttempts() {
+        AnnouncementDeliveryEvent retry = new AnnouncementDeliveryEvent(9, "Subject", "Body", List.of("a@test.com"), 3);
+
+        publisher.retry(retry);
+
+        verify(rabbitTemplate).convertAndSend(eq("notification.dlq"), eq("email.delivery.dlq"), eq(retry),
+                any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void defer_shouldWaitInTierCoveringNotBefore_andKeepAttemptHeader() {
+        // Ja na ultima tentativa: um adiamento nao pode leva-la para a DLQ
+        AnnouncementDeliveryEvent deferred = new AnnouncementDeliveryEvent(9, "Subject", "Body", List.of("a@test.com"), 3)
+                .deferFor(List.of("a@test.com"), System.currentTimeMillis() + 30_000);
+
+        publisher.defer(deferred);
+
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq("notification.retry"), eq("1m." + RabbitMQConfig.DELIVERY_QUEUE),
+                eq(deferred), postProcessor.capture());
+
+        Message message = postProcessor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        assertThat(message.getMessageProperties().<Integer>getHeader(TieredRetryRecoverer.ATTEMPTS_HEADER)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,37 @@
+package com.undercontroll.infrastructure.messaging.producer;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.messaging.retry.TieredRetryRecoverer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RabbitOutboxDeadLettersTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final RabbitOutboxDeadLetters deadLetters = new RabbitOutboxDeadLetters(rabbitTemplate);
+
+    @Test
+    void deadLetter_shouldPublishEnvelopeToUserDlq_withAttemptsAndError() {
+        EmailEnvelope envelope = new EmailEnvelope("a@test.com", "Bem-vindo", "<p>Ola</p>");
+
+        deadLetters.deadLetter(envelope, 4, "421 try again later");
+
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq("notification.dlq"), eq("email.user.dlq"), eq(envelope), postProcessor.capture());
+
+        MessageProperties properties = postProcessor.getValue()
+                .postProcessMessage(new Message(new byte[0], new MessageProperties()))
+                .getMessageProperties();
+        assertThat(properties.<Integer>getHeader(TieredRetryRecoverer.ATTEMPTS_HEADER)).isEqualTo(4);
+        assertThat(properties.<String>getHeader(TieredRetryRecoverer.EXCEPTION_HEADER)).isEqualTo("421 try again later");
+    }
+}
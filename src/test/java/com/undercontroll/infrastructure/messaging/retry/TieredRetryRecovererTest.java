@@ -0,0 +1,120 @@
+package com.undercontroll.infrastructure.messaging.retry;
+
+import com.undercontroll.domain.exception.RateLimitedException;
+import com.undercontroll.infrastructure.config.RabbitMQConfig;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TieredRetryRecovererTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final TieredRetryRecoverer recoverer = new TieredRetryRecoverer(rabbitTemplate, new RetryProperties(
+            List.of(Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofMinutes(10)), 4));
+
+    private Message message(String queue, Integer attempts) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(queue);
+        if (attempts != null) {
+            properties.setHeader(TieredRetryRecoverer.ATTEMPTS_HEADER, attempts);
+        }
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    @Test
+    void recover_shouldSendFirstFailure_toShortestTier() {
+        Message message = message(RabbitMQConfig.USER_QUEUE, null);
+
+        recoverer.recover(message, new RuntimeException("smtp down"));
+
+        verify(rabbitTemplate).send("notification.retry", "10s." + RabbitMQConfig.USER_QUEUE, message);
+        assertThat(message.getMessageProperties().<Integer>getHeader(TieredRetryRecoverer.ATTEMPTS_HEADER)).isEqualTo(1);
+    }
+
+    @Test
+    void recover_shouldEscalateTier_withEachFailure() {
+        Message message = message(RabbitMQConfig.DELIVERY_QUEUE, 2);
+
+        recoverer.recover(message, new RuntimeException("smtp down"));
+
+        verify(rabbitTemplate).send("notification.retry", "10m." + RabbitMQConfig.DELIVERY_QUEUE, message);
+    }
+
+    @Test
+    void recover_shouldSendToQueueDlq_afterMaxAttempts() {
+        Message message = message(RabbitMQConfig.ANNOUNCEMENT_QUEUE, 3);
+
+        recoverer.recover(message, new RuntimeException("still failing"));
+
+        verify(rabbitTemplate).send("notification.dlq", "email.announcement.dlq", message);
+        assertThat(message.getMessageProperties().<String>getHeader(TieredRetryRecoverer.EXCEPTION_HEADER))
+                .contains("still failing");
+    }
+
+    @Test
+    void recover_shouldSendFatalErrors_straightToDlq() {
+        Message message = message(RabbitMQConfig.USER_QUEUE, null);
+
+        // O container entrega o erro de conversao embrulhado, como acontece no listener real
+        recoverer.recover(message, new ListenerExecutionFailedException(
+                "Failed to convert message", new MessageConversionException("bad json"), message));
+
+        verify(rabbitTemplate).send("notification.dlq", "email.user.dlq", message);
+    }
+
+    @Test
+    void recover_shouldFallBackToEmailDlq_forUnknownQueue() {
+        Message message = message("some.other.queue", 3);
+
+        recoverer.recover(message, new RuntimeException("boom"));
+
+        verify(rabbitTemplate).send("notification.dlq", "email.dlq", message);
+    }
+
+    @Test
+    void previousFailures_shouldCountXDeath_whenAttemptsHeaderIsMissing() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("x-death", List.of(
+                Map.of("queue", "notification.email.retry.queue", "count", 2L),
+                Map.of("queue", "notification.email.queue", "count", 1L)
+        ));
+
+        assertThat(TieredRetryRecoverer.previousFailures(properties)).isEqualTo(3);
+    }
+
+    @Test
+    void recover_shouldRecoverEachMessage_ofFailedBatch() {
+        Message first = message(RabbitMQConfig.USER_QUEUE, null);
+        Message second = message(RabbitMQConfig.USER_QUEUE, 3);
+
+        recoverer.recover(List.of(first, second), new RuntimeException("smtp down"));
+
+        verify(rabbitTemplate).send("notification.retry", "10s." + RabbitMQConfig.USER_QUEUE, first);
+        verify(rabbitTemplate).send("notification.dlq", "email.user.dlq", second);
+    }
+
+    @Test
+    void recover_shouldDeferRateLimitedMessage_withoutCountingAFailure() {
+        Message message = message(RabbitMQConfig.USER_QUEUE, 3);
+
+        recoverer.recover(message, new ListenerExecutionFailedException("Listener threw exception",
+                new RateLimitedException("Sending rate limit reached", Duration.ofSeconds(45)), message));
+
+        // Ja esgotaria as tentativas; adiado, volta pelo tier de 1m com o mesmo contador
+        verify(rabbitTemplate).send("notification.retry", "1m." + RabbitMQConfig.USER_QUEUE, message);
+        assertThat(message.getMessageProperties().<Integer>getHeader(TieredRetryRecoverer.ATTEMPTS_HEADER)).isEqualTo(3);
+    }
+}
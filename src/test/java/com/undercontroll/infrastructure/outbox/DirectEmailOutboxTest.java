@@ -0,0 +1,76 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DirectEmailOutboxTest {
+
+    private final EmailService emailService = mock(EmailService.class);
+    private final OutboxDeadLetters deadLetters = mock(OutboxDeadLetters.class);
+
+    private final DirectEmailOutbox outbox = new DirectEmailOutbox(
+            emailService, new RetryProperties(List.of(Duration.ofMillis(20)), 2), deadLetters);
+
+    private final EmailEnvelope first = new EmailEnvelope("a@test.com", "Bem-vindo", "<p>Ola</p>");
+    private final EmailEnvelope second = new EmailEnvelope("b@test.com", "Bem-vindo", "<p>Ola</p>");
+
+    @AfterEach
+    void tearDown() {
+        outbox.close();
+    }
+
+    @Test
+    void enqueue_shouldResendOnlyFailedEnvelopes() {
+        when(emailService.sendBatch(List.of(first, second)))
+                .thenReturn(List.of(DeliveryResult.sent("a@test.com"), DeliveryResult.failed("b@test.com", "421")));
+        when(emailService.sendBatch(List.of(second))).thenReturn(List.of(DeliveryResult.sent("b@test.com")));
+
+        outbox.enqueue(List.of(first, second));
+
+        verify(emailService, timeout(2000)).sendBatch(List.of(second));
+        verify(emailService, never()).sendBatch(List.of(first));
+        verifyNoInteractions(deadLetters);
+    }
+
+    @Test
+    void enqueue_shouldDeadLetter_afterMaxAttempts() {
+        when(emailService.sendBatch(anyList())).thenReturn(List.of(DeliveryResult.failed("a@test.com", "550")));
+
+        outbox.enqueue(List.of(first));
+
+        verify(deadLetters, timeout(2000)).deadLetter(first, 2, "550");
+        verify(emailService, times(2)).sendBatch(List.of(first));
+    }
+
+    @Test
+    void enqueue_shouldResendDeferredEnvelope_withoutConsumingAttempts() {
+        // Tres adiamentos com maxAttempts 2: se contassem como falha, o email iria para a DLQ
+        when(emailService.sendBatch(List.of(first)))
+                .thenReturn(deferred("a@test.com"))
+                .thenReturn(deferred("a@test.com"))
+                .thenReturn(deferred("a@test.com"))
+                .thenReturn(List.of(DeliveryResult.sent("a@test.com")));
+
+        outbox.enqueue(List.of(first));
+
+        verify(emailService, timeout(2000).times(4)).sendBatch(List.of(first));
+        verify(deadLetters, never()).deadLetter(eq(first), anyInt(), anyString());
+    }
+
+    // Um retorno por chamada encadeado, e nao thenReturn(T, T...), que cria um array generico sem checagem
+    private static List<DeliveryResult> deferred(String recipient) {
+        return List.of(DeliveryResult.deferred(recipient, "rate limited", Duration.ofMillis(10)));
+    }
+}
@@ -0,0 +1,209 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.application.port.EmailService;
+import com.undercontroll.domain.model.DeliveryResult;
+import com.undercontroll.domain.model.EmailEnvelope;
+import com.undercontroll.domain.model.EmailTemplate;
+import com.undercontroll.domain.model.Personalization;
+import com.undercontroll.infrastructure.config.OutboxProperties;
+import com.undercontroll.infrastructure.config.RetryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedEmailOutboxTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RecordingEmailService emailService = new RecordingEmailService();
+    private final RetryProperties retryProperties = new RetryProperties(List.of(Duration.ofMillis(50)), 3);
+    private final List<String> deadLettered = new CopyOnWriteArrayList<>();
+    private final AtomicInteger deadLetterOutages = new AtomicInteger();
+
+    private OutboxLog outboxLog;
+    private MappedEmailOutbox outbox;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (outbox != null) {
+            outbox.close();
+        }
+        if (outboxLog != null) {
+            outboxLog.close();
+        }
+    }
+
+    @Test
+    void enqueue_shouldBeDrainedBySenderPool() throws Exception {
+        start();
+
+        outbox.enqueue(List.of(envelope("a@test.com"), envelope("b@test.com")));
+        outbox.enqueue(List.of(envelope("c@test.com")));
+
+        awaitUntil(() -> emailService.sent.size() == 3 && outbox.inFlight() == 0);
+        assertThat(emailService.sent).containsExactlyInAnyOrder("a@test.com", "b@test.com", "c@test.com");
+    }
+
+    @Test
+    void failedEmail_shouldBeRetried_afterDelay() throws Exception {
+        emailService.failures.put("a@test.com", new AtomicInteger(1));
+        start();
+
+        outbox.enqueue(List.of(envelope("a@test.com")));
+
+        awaitUntil(() -> emailService.sent.contains("a@test.com") && outbox.inFlight() == 0);
+        assertThat(emailService.attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failedEmail_shouldBeDeadLettered_afterMaxAttempts() throws Exception {
+        emailService.failures.put("a@test.com", new AtomicInteger(Integer.MAX_VALUE));
+        start();
+
+        outbox.enqueue(List.of(envelope("a@test.com")));
+
+        awaitUntil(() -> meterRegistry.counter("notification.outbox.dead_lettered").count() == 1 && outbox.inFlight() == 0);
+        assertThat(emailService.attempts.get()).isEqualTo(3);
+        assertThat(emailService.sent).isEmpty();
+        assertThat(deadLettered).containsExactly("a@test.com:3:421 try again later");
+    }
+
+    @Test
+    void failedEmail_shouldStayInOutbox_whenDeadLetterQueueIsUnavailable() throws Exception {
+        emailService.failures.put("a@test.com", new AtomicInteger(Integer.MAX_VALUE));
+        deadLetterOutages.set(1);
+        start();
+
+        outbox.enqueue(List.of(envelope("a@test.com")));
+
+        // A primeira tentativa de DLQ falha; o email espera o maior atraso, tenta de novo e so entao sai do outbox
+        awaitUntil(() -> deadLettered.size() == 1 && outbox.inFlight() == 0);
+        assertThat(emailService.attempts.get()).isEqualTo(4);
+        assertThat(deadLettered).containsExactly("a@test.com:4:421 try again later");
+    }
+
+    @Test
+    void rateLimitedEmail_shouldBeDeferred_withoutConsumingAttempts() throws Exception {
+        // Mais adiamentos do que maxAttempts: se contassem como falha, o email seria descartado
+        emailService.deferrals.put("a@test.com", new AtomicInteger(5));
+        start();
+
+        outbox.enqueue(List.of(envelope("a@test.com")));
+
+        awaitUntil(() -> emailService.sent.contains("a@test.com") && outbox.inFlight() == 0);
+        assertThat(emailService.attempts.get()).isEqualTo(6);
+        assertThat(meterRegistry.counter("notification.outbox.dropped").count()).isZero();
+    }
+
+    @Test
+    void unsentEntries_shouldBeReplayed_afterRestart() throws Exception {
+        outboxLog = new OutboxLog(dir, 4096, true);
+        outboxLog.append(List.of(OutboxEntry.of(envelope("a@test.com")), OutboxEntry.of(envelope("b@test.com"))));
+        outboxLog.close();
+
+        start();
+
+        awaitUntil(() -> emailService.sent.size() == 2 && outbox.inFlight() == 0);
+        outbox.close();
+        outboxLog.close();
+
+        // Tudo concluido e no checkpoint: uma nova subida nao reenvia nada
+        outboxLog = new OutboxLog(dir, 4096, true);
+        assertThat(outboxLog.read(outboxLog.checkpoint(), 10)).isEmpty();
+        outbox = null;
+    }
+
+    private void start() throws Exception {
+        outboxLog = new OutboxLog(dir, 4096, true);
+        outbox = new MappedEmailOutbox(
+                outboxLog,
+                emailService,
+                retryProperties,
+                new OutboxProperties(true, dir, DataSize.ofKilobytes(4), 2, 10, true, Duration.ofMillis(20)),
+                (envelope, attempts, error) -> {
+                    if (deadLetterOutages.getAndDecrement() > 0) {
+                        throw new IllegalStateException("broker down");
+                    }
+                    deadLettered.add(envelope.to() + ":" + attempts + ":" + error);
+                },
+                meterRegistry,
+                false
+        );
+        outbox.start();
+    }
+
+    private static EmailEnvelope envelope(String to) {
+        return new EmailEnvelope(to, "Bem-vindo", "<p>Ola</p>");
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    // Adia ou falha cada destinatario o numero de vezes configurado antes de aceitar
+    private static final class RecordingEmailService implements EmailService {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> deferrals = new ConcurrentHashMap<>();
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        @Override
+        public void sendEmail(String to, String subject, String body) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DeliveryResult> sendEmailAsync(String to, String subject, String body) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DeliveryResult> sendBatch(List<EmailEnvelope> envelopes) {
+            return envelopes.stream().map(envelope -> {
+                attempts.incrementAndGet();
+                AtomicInteger deferred = deferrals.get(envelope.to());
+                if (deferred != null && deferred.getAndDecrement() > 0) {
+                    return DeliveryResult.deferred(envelope.to(), "rate limited", Duration.ofMillis(20));
+                }
+                AtomicInteger remaining = failures.get(envelope.to());
+                if (remaining != null && remaining.getAndDecrement() > 0) {
+                    return DeliveryResult.failed(envelope.to(), "421 try again later");
+                }
+                sent.add(envelope.to());
+                return DeliveryResult.sent(envelope.to());
+            }).toList();
+        }
+
+        @Override
+        public List<DeliveryResult> sendBroadcast(String subject, String body, List<String> recipients) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DeliveryResult> sendPersonalized(String subject, EmailTemplate body, List<Personalization> recipients) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.undercontroll.infrastructure.outbox;
+
+import com.undercontroll.domain.model.EmailEnvelope;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void read_shouldReturnEntriesInAppendOrder() throws Exception {
+        try (OutboxLog log = new OutboxLog(dir, 4096, false)) {
+            log.append(List.of(entry("a@test.com"), entry("b@test.com")));
+            log.append(List.of(new OutboxEntry(envelope("c@test.com"), 2, 1234)));
+
+            List<OutboxLog.Record> records = log.read(log.checkpoint(), 10);
+
+            assertThat(records).extracting(record -> record.entry().envelope().to())
+                    .containsExactly("a@test.com", "b@test.com", "c@test.com");
+            assertThat(records.get(0).entry().envelope().body()).isEqualTo("<p>Ola a@test.com</p>");
+            assertThat(records.get(2).entry().attempt()).isEqualTo(2);
+            assertThat(records.get(2).entry().notBefore()).isEqualTo(1234);
+            assertThat(log.read(records.getLast().next(), 10)).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldReplayPendingEntries_afterRestart() throws Exception {
+        try (OutboxLog log = new OutboxLog(dir, 4096, true)) {
+            log.append(List.of(entry("a@test.com"), entry("b@test.com"), entry("c@test.com")));
+
+            List<OutboxLog.Record> records = log.read(log.checkpoint(), 10);
+            log.checkpoint(records.get(1).position());
+            // Concluida depois do checkpoint: nao volta na releitura
+            log.complete(records.get(2).position());
+        }
+
+        try (OutboxLog reopened = new OutboxLog(dir, 4096, true)) {
+            assertThat(reopened.read(reopened.checkpoint(), 10))
+                    .extracting(record -> record.entry().envelope().to())
+                    .containsExactly("b@test.com");
+        }
+    }
+
+    @Test
+    void shouldDiscardPartialTrailingRecord_onOpen() throws Exception {
+        long tail;
+        try (OutboxLog log = new OutboxLog(dir, 4096, false)) {
+            log.append(List.of(entry("a@test.com")));
+            tail = log.read(log.checkpoint(), 10).getLast().next();
+        }
+
+        // Registro com tamanho gravado mas payload que nao bate com o crc, como numa queda no meio da escrita
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(16).putInt(0, 4).putInt(4, 99).putInt(12, 7), OutboxLog.offsetOf(tail));
+        }
+
+        try (OutboxLog reopened = new OutboxLog(dir, 4096, false)) {
+            assertThat(reopened.read(reopened.checkpoint(), 10)).hasSize(1);
+
+            reopened.append(List.of(entry("b@test.com")));
+            assertThat(reopened.read(reopened.checkpoint(), 10))
+                    .extracting(record -> record.entry().envelope().to())
+                    .containsExactly("a@test.com", "b@test.com");
+        }
+    }
+
+    @Test
+    void shouldRollToNewSegment_whenEntryDoesNotFit() throws Exception {
+        try (OutboxLog log = new OutboxLog(dir, 256, false)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(List.of(entry("user" + i + "@test.com")));
+            }
+
+            assertThat(log.segmentCount()).isGreaterThan(1);
+            assertThat(log.read(log.checkpoint(), 100)).hasSize(10);
+        }
+    }
+
+    @Test
+    void checkpoint_shouldDeleteSegmentsBehindIt() throws Exception {
+        try (OutboxLog log = new OutboxLog(dir, 256, false)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(List.of(entry("user" + i + "@test.com")));
+            }
+            List<OutboxLog.Record> records = log.read(log.checkpoint(), 100);
+
+            log.checkpoint(records.getLast().position());
+
+            assertThat(log.segmentCount()).isEqualTo(1);
+            assertThat(segmentFiles()).hasSize(1);
+            assertThat(log.read(log.checkpoint(), 100))
+                    .extracting(record -> record.entry().envelope().to())
+                    .containsExactly("user9@test.com");
+        }
+    }
+
+    @Test
+    void append_shouldReject_entryLargerThanSegment() throws Exception {
+        try (OutboxLog log = new OutboxLog(dir, 64, false)) {
+            assertThatThrownBy(() -> log.append(List.of(entry("a@test.com"))))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private Path onlySegment() throws Exception {
+        List<Path> segments = segmentFiles();
+        assertThat(segments).hasSize(1);
+        return segments.getFirst();
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).toList();
+        }
+    }
+
+    private static OutboxEntry entry(String to) {
+        return OutboxEntry.of(envelope(to));
+    }
+
+    private static EmailEnvelope envelope(String to) {
+        return new EmailEnvelope(to, "Bem-vindo", "<p>Ola " + to + "</p>");
+    }
+}
@@ -0,0 +1,60 @@
+package com.undercontroll.infrastructure.threads;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.logging.DeferredLogs;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CarrierParallelismPostProcessorTest {
+
+    private final CarrierParallelismPostProcessor postProcessor = new CarrierParallelismPostProcessor(new DeferredLogs());
+
+    private String previous;
+
+    @BeforeEach
+    void setUp() {
+        previous = System.clearProperty(CarrierParallelismPostProcessor.PARALLELISM);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (previous != null) {
+            System.setProperty(CarrierParallelismPostProcessor.PARALLELISM, previous);
+        } else {
+            System.clearProperty(CarrierParallelismPostProcessor.PARALLELISM);
+        }
+    }
+
+    @Test
+    void shouldAddOneCarrierPerPooledConnection_whenVirtualThreadsEnabled() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", "true")
+                .withProperty("notification.mail.pool.size", "3");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        int expected = Runtime.version().feature() >= 24 ? -1 : Runtime.getRuntime().availableProcessors() + 3;
+        assertThat(Integer.getInteger(CarrierParallelismPostProcessor.PARALLELISM, -1)).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldKeepExplicitParallelism() {
+        System.setProperty(CarrierParallelismPostProcessor.PARALLELISM, "2");
+
+        postProcessor.postProcessEnvironment(
+                new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true"), new SpringApplication());
+
+        assertThat(System.getProperty(CarrierParallelismPostProcessor.PARALLELISM)).isEqualTo("2");
+    }
+
+    @Test
+    void shouldDoNothing_onPlatformThreads() {
+        postProcessor.postProcessEnvironment(new MockEnvironment(), new SpringApplication());
+
+        assertThat(System.getProperty(CarrierParallelismPostProcessor.PARALLELISM)).isNull();
+    }
+}
@@ -0,0 +1,26 @@
+package com.undercontroll.infrastructure.threads;
+
+import com.undercontroll.infrastructure.config.MailPoolProperties;
+import com.undercontroll.infrastructure.config.VirtualThreadProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PinningDiagnosticsTest {
+
+    private final PinningDiagnostics diagnostics = new PinningDiagnostics(
+            new VirtualThreadProperties(false, Duration.ofMillis(20)),
+            new MailPoolProperties(true, 8, 100, Duration.ofSeconds(5), Duration.ofSeconds(60), Duration.ofSeconds(30)),
+            new SimpleMeterRegistry()
+    );
+
+    @Test
+    void synchronizedBlockingCalls_shouldFindSmtpSendInsideMonitor() {
+        assertThat(diagnostics.synchronizedBlockingCalls())
+                .contains("SMTPTransport.sendMessage", "SMTPTransport.protocolConnect");
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.undercontroll.support;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Servidor SMTP em processo que aceita tudo e descarta o conteudo. Fala so o suficiente do protocolo
+ * para o Jakarta Mail (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT), sem auth nem TLS, para medir o
+ * caminho de envio sem rede nem provedor externo. Usado pelos benchmarks e pelo teste de carga.
+ */
+public final class SmtpStub implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong received = new AtomicLong();
+    private final Consumer<Received> listener;
+
+    /**
+     * Mensagem aceita pelo stub: destinatarios do envelope e o cabecalho Subject, como chegaram.
+     */
+    public record Received(List<String> recipients, String subject) {
+    }
+
+    public SmtpStub() throws IOException {
+        this(received -> {
+        });
+    }
+
+    public SmtpStub(Consumer<Received> listener) throws IOException {
+        this.listener = listener;
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::accept, "smtp-stub-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long received() {
+        return received.get();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+
+            reply(out, "220 localhost SMTP stub");
+
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+                    case "MAIL", "RSET" -> {
+                        recipients = new ArrayList<>();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        recipients.add(address(line));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        String subject = null;
+                        boolean headers = true;
+                        // Guarda so o Subject; o resto do corpo e descartado
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            if (headers && line.isEmpty()) {
+                                headers = false;
+                            } else if (headers && subject == null && line.regionMatches(true, 0, "Subject:", 0, 8)) {
+                                subject = line.substring(8).trim();
+                            }
+                        }
+                        received.incrementAndGet();
+                        listener.accept(new Received(List.copyOf(recipients), subject));
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // cliente fechou a conexao
+        }
+    }
+
+    private static String address(String command) {
+        int start = command.indexOf('<');
+        int end = command.indexOf('>', start + 1);
+        return start >= 0 && end > start ? command.substring(start + 1, end) : command.substring(command.indexOf(':') + 1).trim();
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}